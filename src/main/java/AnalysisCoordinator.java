@@ -0,0 +1,489 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coordinator of a distributed offline analysis: splits the work into jobs (batches of positions, or the
+ * root moves of one position) and hands them to {@link AnalysisWorker} processes that connect over TCP
+ * (framing see {@link AnalysisFrames}).
+ *
+ * <p>Every worker connection has one job in flight. If a worker dies, disconnects or does not answer within
+ * the job timeout, its job goes back to the front of the queue for the next worker. With a checkpoint file
+ * every finished job is appended to it, and a coordinator started again with the same file answers those
+ * jobs from the file, so an interrupted run resumes where it stopped.</p>
+ *
+ * <pre>
+ * usage: AnalysisCoordinator in=&lt;corpus&gt; out=&lt;scored corpus&gt; [depth=6] [workers=&lt;cores&gt;]
+ *                            [port=0] [bind=127.0.0.1] [checkpoint=&lt;file&gt;] [hash=64]
+ *        AnalysisCoordinator fen=&lt;fen&gt; [depth=8] [workers=...] ...    (root moves in parallel)
+ * </pre>
+ * <p><code>workers</code> local worker processes are started. The coordinator listens on the loopback
+ * address only; with <code>bind=0.0.0.0</code> (or the address of one interface) more workers can join from
+ * other machines with <code>AnalysisWorker host=&lt;coordinator&gt; port=&lt;port&gt;</code> (the port is
+ * printed at startup). Anyone who reaches that port can take jobs and send results, so only open it to a
+ * trusted network.</p>
+ */
+public final class AnalysisCoordinator implements Closeable {
+
+    public static final int DEFAULT_BATCH_SIZE = 16;
+    public static final long DEFAULT_JOB_TIMEOUT_MS = 10 * 60_000;
+    private static final int CHUNK_POSITIONS = 4096;          // positions per analyse() call of main
+    private static final int CHECKPOINT_HEADER_BYTES = 12;    // long id | int count, then count ints
+
+    /**
+     * Best move (null if there is none) and score from the side to move's point of view.
+     */
+    public static final class Result {
+        private final BitBoardUtils.MovePair move;
+        private final int score;
+
+        Result(BitBoardUtils.MovePair move, int score) {
+            this.move = move;
+            this.score = score;
+        }
+
+        public BitBoardUtils.MovePair getMove() {
+            return move;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return (move == null ? "-" : move.toString()) + " " + EngineProtocol.formatScore(score);
+        }
+    }
+
+    private static final class Job {
+        final long id;
+        final int depth;
+        final Board[] boards;
+        final CompletableFuture<int[]> result = new CompletableFuture<>();
+
+        Job(long id, int depth, Board[] boards) {
+            this.id = id;
+            this.depth = depth;
+            this.boards = boards;
+        }
+    }
+
+    private final ServerSocket server;
+    private final Thread acceptor;
+    private final LinkedBlockingDeque<Job> queue = new LinkedBlockingDeque<>();
+    private final Map<Long, int[]> finished = new ConcurrentHashMap<>();   // from the checkpoint file
+    private final Path checkpoint;
+    private DataOutputStream checkpointOut;
+    private final long jobTimeoutMs;
+    private final List<Socket> connections = new ArrayList<>();
+    private final AtomicInteger connected = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger resumed = new AtomicInteger();
+    private final AtomicLong nodes = new AtomicLong();
+    private volatile boolean closed;
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Listens on the loopback address, for workers on this machine.
+     *
+     * @param port         TCP port, 0 picks a free one ({@link #getPort()})
+     * @param checkpoint   file of finished jobs, read at start and appended to; null for none
+     * @param jobTimeoutMs time a worker may take for one job before it counts as failed
+     */
+    public AnalysisCoordinator(int port, Path checkpoint, long jobTimeoutMs) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, checkpoint, jobTimeoutMs);
+    }
+
+    /**
+     * @param bind address to listen on, e.g. 0.0.0.0 for workers on other machines
+     */
+    public AnalysisCoordinator(InetAddress bind, int port, Path checkpoint, long jobTimeoutMs) throws IOException {
+        this.checkpoint = checkpoint;
+        this.jobTimeoutMs = jobTimeoutMs;
+        if (checkpoint != null) {
+            loadCheckpoint();
+            checkpointOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(checkpoint,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        }
+        this.server = new ServerSocket(port, 50, bind);
+        this.acceptor = new Thread(this::accept, "coordinator-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Positions per job of {@link #analyse(List, int)}; small batches spread the work evenly, large ones
+     * save round trips.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @return currently connected workers
+     */
+    public int getWorkers() {
+        return connected.get();
+    }
+
+    /**
+     * @return jobs that had to be handed to another worker
+     */
+    public int getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * @return jobs answered from the checkpoint file
+     */
+    public int getResumed() {
+        return resumed.get();
+    }
+
+    public long getNodes() {
+        return nodes.get();
+    }
+
+    /* ---------- jobs ------------------------------------------------------------ */
+
+    /**
+     * Searches every position to {@code depth} on the workers; blocks until all are done.
+     *
+     * @return one result per position, in order
+     */
+    public List<Result> analyse(List<Board> positions, int depth) throws InterruptedException {
+        return analyse(positions, depth, batchSize);
+    }
+
+    private List<Result> analyse(List<Board> positions, int depth, int batchSize) throws InterruptedException {
+        List<Job> jobs = new ArrayList<>();
+        for (int from = 0; from < positions.size(); from += batchSize) {
+            Board[] batch = positions.subList(from, Math.min(positions.size(), from + batchSize)).toArray(new Board[0]);
+            Job job = new Job(jobId(batch, depth), depth, batch);
+            int[] known = finished.get(job.id);
+            if (known != null && known.length == 2 * batch.length) {
+                resumed.incrementAndGet();
+                job.result.complete(known);
+            } else {
+                queue.add(job);
+            }
+            jobs.add(job);
+        }
+        List<Result> results = new ArrayList<>(positions.size());
+        for (Job job : jobs) {
+            int[] r;
+            try {
+                r = job.result.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+            for (int i = 0; i < r.length; i += 2) {
+                results.add(new Result(r[i] == 0 ? null : BitBoardUtils.MovePair.fromInt(r[i]), r[i + 1]));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Searches the root moves of {@code root} in parallel (each child to {@code depth - 1}, one job per move).
+     *
+     * @return best root move and its score, move null if there is no legal move
+     */
+    public Result analyseRootMoves(Board root, int depth) throws InterruptedException {
+        BitBoardUtils utils = new BitBoardUtils();
+        Player mover = root.getCurrentPlayer();
+        int[] moves = new int[BitBoardUtils.MAX_MOVES];
+        int count = utils.generateAllLegalMoves(root, moves);
+        List<Board> children = new ArrayList<>();
+        List<Integer> searched = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Board child = root.copy();
+            BitBoardUtils.makeMove(moves[i], child);
+            if (BitBoardUtils.checkplayerWon(child, mover)) {
+                return new Result(BitBoardUtils.MovePair.fromInt(moves[i]), Search.WIN - 1);
+            }
+            children.add(child);
+            searched.add(moves[i]);
+        }
+        List<Result> replies = analyse(children, Math.max(1, depth - 1), 1);
+        Result best = new Result(null, -Search.WIN);
+        for (int i = 0; i < replies.size(); i++) {
+            int score = Search.scoreFromTable(-replies.get(i).getScore(), 1);   // win / loss one ply further
+            if (best.getMove() == null || score > best.getScore()) {
+                best = new Result(BitBoardUtils.MovePair.fromInt(searched.get(i)), score);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Stable id of a job (same positions and depth give the same id in every run), used for the checkpoint.
+     */
+    static long jobId(Board[] boards, int depth) {
+        long h = 0x9E3779B97F4A7C15L * (depth + 1);
+        for (Board b : boards) {
+            h = Long.rotateLeft(h ^ b.hashKey(), 27) * 0xBF58476D1CE4E5B9L;
+        }
+        return h;
+    }
+
+    /* ---------- workers ------------------------------------------------------- */
+
+    private void accept() {
+        int n = 0;
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                synchronized (connections) {
+                    connections.add(socket);
+                }
+                Thread t = new Thread(() -> serve(socket), "coordinator-worker-" + (++n));
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Feeds one worker connection, one job at a time, until the coordinator closes or the worker fails.
+     */
+    private void serve(Socket socket) {
+        Job job = null;
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, jobTimeoutMs));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            ByteBuffer hello = AnalysisFrames.read(in);
+            if (hello.limit() != 5 || hello.get(0) != AnalysisFrames.HELLO || hello.getInt(1) != AnalysisFrames.VERSION) {
+                throw new IOException("not an analysis worker of version " + AnalysisFrames.VERSION);
+            }
+            connected.incrementAndGet();
+            try {
+                while (!closed) {
+                    job = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (job == null || job.result.isDone()) {
+                        job = null;
+                        continue;
+                    }
+                    AnalysisFrames.write(out, AnalysisFrames.JOB, AnalysisFrames.job(job.id, job.depth, job.boards));
+                    ByteBuffer reply = AnalysisFrames.read(in);
+                    if (!AnalysisFrames.isResult(reply, job.id, job.boards.length)) {   // before decoding it
+                        throw new IOException("unexpected reply to job " + job.id);
+                    }
+                    nodes.addAndGet(AnalysisFrames.resultNodes(reply));
+                    complete(job, AnalysisFrames.results(reply));
+                    job = null;
+                }
+                AnalysisFrames.write(out, AnalysisFrames.BYE, AnalysisFrames.allocate(0));
+            } finally {
+                connected.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (EOFException | SocketException e) {
+            // worker gone (or coordinator closing); the job is handed on below
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("Worker failed: " + e.getMessage());
+            }
+        } finally {
+            synchronized (connections) {
+                connections.remove(socket);
+            }
+            if (job != null && !job.result.isDone()) {
+                failures.incrementAndGet();
+                queue.addFirst(job);                              // next worker takes it over
+            }
+        }
+    }
+
+    private void complete(Job job, int[] results) throws IOException {
+        if (checkpointOut != null) {
+            synchronized (this) {
+                checkpointOut.writeLong(job.id);
+                checkpointOut.writeInt(results.length);
+                for (int r : results) {
+                    checkpointOut.writeInt(r);
+                }
+                checkpointOut.flush();
+            }
+        }
+        job.result.complete(results);
+    }
+
+    /**
+     * Reads the finished jobs of an earlier run. A record cut off by a crash ends the file: it is truncated to
+     * the last complete record, so the records appended from now on stay aligned.
+     */
+    private void loadCheckpoint() throws IOException {
+        if (!Files.isRegularFile(checkpoint)) {
+            return;
+        }
+        long size = Files.size(checkpoint);
+        long complete = 0;                                        // end of the last complete record
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpoint)))) {
+            while (size - complete >= CHECKPOINT_HEADER_BYTES) {
+                long id = in.readLong();
+                int count = in.readInt();
+                if (count < 0 || count > (size - complete - CHECKPOINT_HEADER_BYTES) / 4) {
+                    break;                                        // torn (or garbage) record
+                }
+                int[] results = new int[count];
+                for (int i = 0; i < count; i++) {
+                    results[i] = in.readInt();
+                }
+                finished.put(id, results);
+                complete += CHECKPOINT_HEADER_BYTES + 4L * count;
+            }
+        }
+        if (complete < size) {
+            System.err.println("Checkpoint: dropping " + (size - complete) + " bytes of an incomplete record");
+            try (FileChannel channel = FileChannel.open(checkpoint, StandardOpenOption.WRITE)) {
+                channel.truncate(complete);
+            }
+        }
+    }
+
+    /**
+     * Sends BYE to all workers, stops accepting and closes the checkpoint. Jobs still queued stay unanswered.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        long deadline = System.currentTimeMillis() + 1000;
+        while (connected.get() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);                                 // idle workers say goodbye within 100 ms
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        synchronized (connections) {
+            for (Socket s : connections) {
+                s.close();                                        // busy workers: cut off
+            }
+        }
+        if (checkpointOut != null) {
+            synchronized (this) {
+                checkpointOut.close();
+            }
+        }
+    }
+
+    /* ---------- command line ---------------------------------------------------- */
+
+    public static void main(String[] args) throws Exception {
+        Path in = null;
+        Path out = null;
+        String fen = null;
+        int depth = 6;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int port = 0;
+        InetAddress bind = InetAddress.getLoopbackAddress();
+        Path checkpoint = null;
+        int hashMb = 64;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "in" -> in = Path.of(kv[1]);
+                case "out" -> out = Path.of(kv[1]);
+                case "fen" -> fen = kv[1];
+                case "depth" -> depth = Integer.parseInt(kv[1]);
+                case "workers" -> workers = Integer.parseInt(kv[1]);
+                case "port" -> port = Integer.parseInt(kv[1]);
+                case "bind" -> bind = InetAddress.getByName(kv[1]);
+                case "checkpoint" -> checkpoint = Path.of(kv[1]);
+                case "hash" -> hashMb = Integer.parseInt(kv[1]);
+                default -> throw new IllegalArgumentException("unknown argument " + arg);
+            }
+        }
+        if (fen == null && (in == null || out == null)) {
+            throw new IllegalArgumentException("in=<corpus> out=<file> or fen=<fen> required");
+        }
+
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(bind, port, checkpoint, DEFAULT_JOB_TIMEOUT_MS)) {
+            System.out.println("Coordinator listening on " + bind.getHostAddress() + " port " + coordinator.getPort());
+            InetAddress local = bind.isAnyLocalAddress() ? InetAddress.getLoopbackAddress() : bind;
+            List<Process> processes = startLocalWorkers(workers, local.getHostAddress(), coordinator.getPort(), hashMb);
+            long start = System.currentTimeMillis();
+            try {
+                if (fen != null) {
+                    System.out.println(coordinator.analyseRootMoves(new Board(fen), depth));
+                } else {
+                    analyseCorpus(coordinator, in, out, depth);
+                }
+            } finally {
+                processes.forEach(Process::destroy);
+            }
+            System.out.printf("%d nodes in %d ms, %d jobs resumed, %d jobs reassigned%n", coordinator.getNodes(),
+                    System.currentTimeMillis() - start, coordinator.getResumed(), coordinator.getFailures());
+        }
+    }
+
+    private static void analyseCorpus(AnalysisCoordinator coordinator, Path in, Path out, int depth)
+            throws IOException, InterruptedException {
+        try (PositionCorpus corpus = new PositionCorpus(in); PositionWriter writer = new PositionWriter(out)) {
+            for (long from = 0; from < corpus.size(); from += CHUNK_POSITIONS) {
+                List<Board> chunk = new ArrayList<>();
+                for (long i = from; i < Math.min(corpus.size(), from + CHUNK_POSITIONS); i++) {
+                    Board b = new Board();
+                    corpus.read(i, b);
+                    chunk.add(b);
+                }
+                List<Result> results = coordinator.analyse(chunk, depth);
+                for (int i = 0; i < chunk.size(); i++) {
+                    writer.write(chunk.get(i), results.get(i).getScore(), results.get(i).getMove());
+                }
+                System.out.printf("%d / %d positions%n", from + chunk.size(), corpus.size());
+            }
+        }
+    }
+
+    /**
+     * Starts {@code count} worker JVMs on this machine with the coordinator's class path.
+     */
+    static List<Process> startLocalWorkers(int count, String host, int port, int hashMb) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "AnalysisWorker",
+                    "host=" + host, "port=" + port, "hash=" + hashMb).inheritIO().start());
+        }
+        return processes;
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary framing between {@link AnalysisCoordinator} and {@link AnalysisWorker}.
+ *
+ * <pre>
+ * frame   int length (of type + payload, big endian as written by DataOutputStream) | byte type | payload
+ *         (all payload fields little endian)
+ * HELLO   worker → coordinator   int version
+ * JOB     coordinator → worker   long id | int depth | int count | count × 32-byte {@link PositionCodec} record
+ * RESULT  worker → coordinator   long id | long nodes | int count | count × (int move, int score)
+ * BYE     coordinator → worker   (empty) – no more jobs, disconnect
+ * </pre>
+ */
+final class AnalysisFrames {
+
+    static final int VERSION = 1;
+    static final byte HELLO = 1;
+    static final byte JOB = 2;
+    static final byte RESULT = 3;
+    static final byte BYE = 4;
+    /** Upper bound for one frame, so a corrupt length cannot make the reader allocate gigabytes. */
+    static final int MAX_FRAME_BYTES = 1 << 24;
+
+    private AnalysisFrames() {
+    }
+
+    static void write(DataOutputStream out, byte type, ByteBuffer payload) throws IOException {
+        int length = 1 + payload.limit();
+        out.writeInt(length);
+        out.writeByte(type);
+        out.write(payload.array(), 0, payload.limit());
+        out.flush();
+    }
+
+    /**
+     * Reads one frame; the type is the first byte of the returned buffer, the payload follows.
+     *
+     * @throws EOFException if the peer closed the connection
+     */
+    static ByteBuffer read(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME_BYTES) {
+            throw new IOException("bad frame length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /* ---------- payloads ------------------------------------------------------- */
+
+    static ByteBuffer hello() {
+        return allocate(4).putInt(0, VERSION);
+    }
+
+    static ByteBuffer job(long id, int depth, Board[] boards) {
+        ByteBuffer b = allocate(16 + boards.length * PositionCodec.RECORD_BYTES);
+        b.putLong(0, id).putInt(8, depth).putInt(12, boards.length);
+        for (int i = 0; i < boards.length; i++) {
+            PositionCodec.encode(b, 16 + i * PositionCodec.RECORD_BYTES, boards[i], 0, 0, 0);
+        }
+        return b;
+    }
+
+    /**
+     * @param frame a JOB frame as returned by {@link #read(DataInputStream)}
+     */
+    static Board[] jobBoards(ByteBuffer frame) {
+        int count = frame.getInt(1 + 12);
+        Board[] boards = new Board[count];
+        for (int i = 0; i < count; i++) {
+            boards[i] = new Board();
+            PositionCodec.decode(frame, 1 + 16 + i * PositionCodec.RECORD_BYTES, boards[i]);
+        }
+        return boards;
+    }
+
+    static long jobId(ByteBuffer frame) {
+        return frame.getLong(1);
+    }
+
+    static int jobDepth(ByteBuffer frame) {
+        return frame.getInt(1 + 8);
+    }
+
+    /**
+     * @param results move and score per position, interleaved
+     */
+    static ByteBuffer result(long id, long nodes, int[] results) {
+        ByteBuffer b = allocate(20 + results.length * 4);
+        b.putLong(0, id).putLong(8, nodes).putInt(16, results.length / 2);
+        for (int i = 0; i < results.length; i++) {
+            b.putInt(20 + i * 4, results[i]);
+        }
+        return b;
+    }
+
+    /**
+     * @return whether {@code frame} is a complete RESULT frame of job {@code id} with {@code count} positions;
+     *         check this before decoding a frame from the network
+     */
+    static boolean isResult(ByteBuffer frame, long id, int count) {
+        return frame.limit() == 1 + 20 + 8 * count && frame.get(0) == RESULT && jobId(frame) == id
+                && frame.getInt(1 + 16) == count;
+    }
+
+    static long resultNodes(ByteBuffer frame) {
+        return frame.getLong(1 + 8);
+    }
+
+    /**
+     * @return move and score per position, interleaved
+     */
+    static int[] results(ByteBuffer frame) {
+        int[] results = new int[frame.getInt(1 + 16) * 2];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = frame.getInt(1 + 20 + i * 4);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,282 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local JSON-over-HTTP analysis service for many concurrent jobs.
+ *
+ * <p><code>POST /analyse</code> with <code>{"fen": "...", "depth": 6, "top": 3, "deadlineMs": 2000}</code>
+ * answers <code>{"bestMove": "D5-D4-1", "score": 2, "depth": 6, "topMoves": [...], ...}</code>.</p>
+ *
+ * <p>Connections are accepted on virtual threads when the running JVM has them (one per request, so
+ * hundreds of waiting clients cost almost nothing) and on a cached platform thread pool otherwise.
+ * The actual searches run on a fixed number of worker threads, each with its own {@link Search}
+ * (boards and move buffers per ply); all workers share one {@link TranspositionTable}.
+ * Jobs wait in a bounded queue – when it is full the service answers 503 immediately instead of
+ * piling up latency (backpressure). Every job has a deadline that includes its time in the queue:
+ * an expired job is answered with 504, a job that runs out of time during the search returns the
+ * deepest completed iteration with <code>"complete": false</code>.</p>
+ */
+public final class AnalysisService {
+
+    /* ————————————————————————————————————  configuration  ———————————————————————————————————— */
+
+    public static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_DEPTH = 6;
+    private static final long DEFAULT_DEADLINE_MS = 10_000;
+    private static final long MAX_DEADLINE_MS = 300_000;
+    private static final long RESPONSE_GRACE_MS = 200;   // time for a worker to hand back a finished search
+
+    /* ————————————————————————————————————  service fields  ———————————————————————————————————— */
+
+    private final HttpServer server;
+    private final ExecutorService connectionExecutor;
+    private final ThreadPoolExecutor workers;
+    private final BitBoardUtils utils = new BitBoardUtils();
+    private final SearchTable table;
+    private final ThreadLocal<Search> searches;
+    private final Gson gson = new Gson();
+
+    /**
+     * @param port          TCP port on localhost, 0 picks a free one
+     * @param workerCount   number of parallel searches
+     * @param queueCapacity number of jobs that may wait for a worker before requests are rejected
+     * @param hashMb        size of the shared transposition table
+     */
+    public AnalysisService(int port, int workerCount, int queueCapacity, int hashMb) throws IOException {
+        this.table = new TranspositionTable(hashMb);
+        this.searches = ThreadLocal.withInitial(() -> new Search(utils, table));
+
+        AtomicInteger workerIds = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "analysis-worker-" + workerIds.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.workers.prestartAllCoreThreads();
+
+        this.connectionExecutor = newConnectionExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/analyse", this::handleAnalyse);
+        this.server.setExecutor(connectionExecutor);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        int hashMb = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        AnalysisService service = new AnalysisService(port, workerCount, queueCapacity, hashMb);
+        service.start();
+        System.out.printf("Analysis service on http://localhost:%d/analyse – %d workers, queue %d, %s%n",
+                service.getPort(), workerCount, queueCapacity,
+                service.usesVirtualThreads() ? "virtual threads" : "platform threads");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        workers.shutdownNow();
+        connectionExecutor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public boolean usesVirtualThreads() {
+        return !(connectionExecutor instanceof ThreadPoolExecutor);
+    }
+
+    /**
+     * Virtual-thread-per-task executor if the JVM provides one (Java 21+), cached platform threads otherwise.
+     * Looked up reflectively because the project still compiles for older language levels.
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "analysis-connection");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /* =================================================================================================================
+                                              │ request handling │
+       ===============================================================================================================*/
+
+    private void handleAnalyse(HttpExchange exchange) throws IOException {
+        long received = System.nanoTime();
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, new ErrorResponse("use POST"));
+                return;
+            }
+
+            AnalysisRequest request;
+            Board board;
+            try (InputStream body = exchange.getRequestBody()) {
+                request = gson.fromJson(new String(body.readAllBytes(), StandardCharsets.UTF_8), AnalysisRequest.class);
+                if (request == null || request.fen == null)
+                    throw new IllegalArgumentException("missing 'fen'");
+                board = new Board(request.fen.trim());
+            } catch (JsonParseException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                respond(exchange, 400, new ErrorResponse("bad request: " + e.getMessage()));
+                return;
+            }
+
+            long deadlineMs = request.deadlineMs > 0 ? Math.min(request.deadlineMs, MAX_DEADLINE_MS) : DEFAULT_DEADLINE_MS;
+            long deadline = received + deadlineMs * 1_000_000L;
+
+            Future<AnalysisResponse> job;
+            try {
+                job = workers.submit(() -> analyse(request, board, deadline));
+            } catch (RejectedExecutionException e) {
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                respond(exchange, 503, new ErrorResponse("all workers busy, queue full"));
+                return;
+            }
+
+            try {
+                long waitMs = Math.max(0, (deadline - System.nanoTime()) / 1_000_000L) + RESPONSE_GRACE_MS;
+                AnalysisResponse response = job.get(waitMs, TimeUnit.MILLISECONDS);
+                if (response == null) {
+                    respond(exchange, 504, new ErrorResponse("deadline expired before a search iteration finished"));
+                } else {
+                    respond(exchange, 200, response);
+                }
+            } catch (TimeoutException e) {
+                job.cancel(true);
+                respond(exchange, 504, new ErrorResponse("deadline expired"));
+            } catch (ExecutionException e) {
+                respond(exchange, 500, new ErrorResponse("search failed: " + e.getCause()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                respond(exchange, 503, new ErrorResponse("service shutting down"));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Runs on a worker thread.
+     *
+     * @return the analysis, or null if the deadline passed before the first iteration completed
+     */
+    private AnalysisResponse analyse(AnalysisRequest request, Board board, long deadline) {
+        long remainingMs = (deadline - System.nanoTime()) / 1_000_000L;
+        if (remainingMs <= 0) {
+            return null;                                   // expired while waiting in the queue
+        }
+        int depth = request.depth > 0 ? Math.min(request.depth, Search.MAX_PLY) : DEFAULT_DEPTH;
+
+        Search search = searches.get();
+        search.setMultiPv(Math.max(1, Math.min(request.top, BitBoardUtils.MAX_MOVES)));
+        SearchResult result = search.search(board, new SearchLimits().setDepth(depth).setMoveTimeMs(remainingMs).setNodes(request.nodes));
+        if (result.getBestMove() != null && result.getDepth() == 0) {
+            return null;
+        }
+
+        AnalysisResponse response = new AnalysisResponse();
+        response.fen = request.fen;
+        response.bestMove = result.getBestMove() == null ? null : result.getBestMove().toMove().toAlgebraic();
+        response.score = result.getScore();
+        response.depth = result.getDepth();
+        response.complete = result.getBestMove() == null || result.getDepth() >= depth;
+        response.nodes = result.getNodes();
+        response.timeMs = result.getTimeMs();
+        response.pv = new ArrayList<>();
+        for (BitBoardUtils.MovePair m : result.getPv()) {
+            response.pv.add(m.toMove().toAlgebraic());
+        }
+        response.topMoves = new ArrayList<>();
+        for (SearchResult.ScoredMove m : result.getTopMoves()) {
+            response.topMoves.add(new TopMove(m.getMove().toMove().toAlgebraic(), m.getScore()));
+        }
+        return response;
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /* =================================================================================================================
+                                               │ JSON records │
+       ===============================================================================================================*/
+
+    static class AnalysisRequest {
+        String fen;                  // FEN + side to move
+        int depth;                   // target depth, default 6
+        int top = 1;                 // number of best moves to list, at most BitBoardUtils.MAX_MOVES
+        long deadlineMs;             // overall time budget incl. queueing, default 10 s
+        long nodes;                  // optional node limit
+    }
+
+    static class AnalysisResponse {
+        String fen;
+        String bestMove;             // null if the side to move has no legal move
+        int score;                   // side-to-move point of view
+        int depth;                   // deepest completed iteration
+        boolean complete;            // false if the deadline cut the search short
+        long nodes;
+        long timeMs;
+        List<String> pv;
+        List<TopMove> topMoves;
+    }
+
+    static class TopMove {
+        String move;
+        int score;
+
+        TopMove(String move, int score) {
+            this.move = move;
+            this.score = score;
+        }
+    }
+
+    static class ErrorResponse {
+        String error;
+
+        ErrorResponse(String error) {
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * Worker process of a distributed analysis: connects to an {@link AnalysisCoordinator}, searches the
+ * positions of every job it receives to the job's depth and streams back best move and score per position
+ * (framing see {@link AnalysisFrames}).
+ *
+ * <p>Each connection has its own {@link Search} and transposition table; a process can open several
+ * connections to use several cores. The worker ends when the coordinator says BYE or goes away.</p>
+ *
+ * <pre>
+ * usage: AnalysisWorker port=&lt;port&gt; [host=localhost] [threads=1] [hash=64]
+ * </pre>
+ */
+public final class AnalysisWorker implements Runnable {
+
+    private final String host;
+    private final int port;
+    private final Search search;
+    private long jobs;
+
+    public AnalysisWorker(String host, int port, int hashMb) {
+        this.host = host;
+        this.port = port;
+        this.search = new Search(new BitBoardUtils(), new TranspositionTable(hashMb));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = "localhost";
+        int port = -1;
+        int threads = 1;
+        int hashMb = 64;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "host" -> host = kv[1];
+                case "port" -> port = Integer.parseInt(kv[1]);
+                case "threads" -> threads = Integer.parseInt(kv[1]);
+                case "hash" -> hashMb = Integer.parseInt(kv[1]);
+                default -> throw new IllegalArgumentException("unknown argument " + arg);
+            }
+        }
+        if (port < 0) {
+            throw new IllegalArgumentException("port=<port> of the coordinator is required");
+        }
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new AnalysisWorker(host, port, hashMb), "analysis-worker-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            serve();
+        } catch (IOException e) {
+            System.err.println("Worker lost the coordinator: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles jobs until the coordinator sends BYE or closes the connection.
+     */
+    public void serve() throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            AnalysisFrames.write(out, AnalysisFrames.HELLO, AnalysisFrames.hello());
+            while (true) {
+                ByteBuffer frame;
+                try {
+                    frame = AnalysisFrames.read(in);
+                } catch (EOFException e) {
+                    return;
+                }
+                switch (frame.get(0)) {
+                    case AnalysisFrames.JOB -> AnalysisFrames.write(out, AnalysisFrames.RESULT, analyse(frame));
+                    case AnalysisFrames.BYE -> {
+                        return;
+                    }
+                    default -> throw new IOException("unexpected frame type " + frame.get(0));
+                }
+            }
+        }
+    }
+
+    private ByteBuffer analyse(ByteBuffer job) {
+        Board[] boards = AnalysisFrames.jobBoards(job);
+        int depth = AnalysisFrames.jobDepth(job);
+        int[] results = new int[boards.length * 2];
+        long nodes = 0;
+        for (int i = 0; i < boards.length; i++) {
+            search.clearHistory();
+            SearchResult r = search.search(boards[i], SearchLimits.depth(depth));
+            results[2 * i] = r.getBestMove() == null ? 0 : r.getBestMove().toInt();
+            results[2 * i + 1] = r.getScore();
+            nodes += r.getNodes();
+        }
+        jobs++;
+        return AnalysisFrames.result(AnalysisFrames.jobId(job), nodes, results);
+    }
+
+    public long getJobs() {
+        return jobs;
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Evaluates many positions at once from parallel plane arrays (struct of arrays) instead of one
+ * {@link Board} at a time through getters.
+ *
+ * <p>Every feature of {@link Evaluation} is computed in its own loop over the arrays, so the loops consist
+ * of nothing but loads, masks and {@link Long#bitCount(long)} and can be unrolled / vectorised by the JIT.
+ * If the JVM runs with <code>--add-modules jdk.incubator.vector</code> and the classes of the
+ * <code>vector</code> Maven profile are on the classpath, a Vector API kernel is used instead; the result
+ * is identical, {@link #kernelName()} tells which one is active.</p>
+ *
+ * <p>Used for the root move ordering of {@link Search} and for scoring corpus blocks.</p>
+ */
+public final class BatchEvaluator {
+
+    /**
+     * A kernel evaluates {@code count} positions starting at {@code from}; scores are red minus blue.
+     */
+    interface Kernel {
+        void evaluate(Batch batch, int from, int count, int[] weights, int[] out);
+    }
+
+    private static final String VECTOR_KERNEL_CLASS = "VectorBatchKernel";
+    private static final Kernel KERNEL = loadKernel();
+
+    private BatchEvaluator() {
+    }
+
+    /**
+     * Positions as parallel arrays: {@code stacks[level][i]} is tower level {@code level} of position {@code i}.
+     */
+    public static final class Batch {
+        final long[] guards;
+        final long[] red;
+        final long[] blue;
+        final long[][] stacks = new long[7][];
+        final boolean[] blueToMove;
+        private int size;
+
+        public Batch(int capacity) {
+            guards = new long[capacity];
+            red = new long[capacity];
+            blue = new long[capacity];
+            for (int level = 0; level < 7; level++) {
+                stacks[level] = new long[capacity];
+            }
+            blueToMove = new boolean[capacity];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int capacity() {
+            return red.length;
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        public boolean isFull() {
+            return size == red.length;
+        }
+
+        /**
+         * Appends the planes of {@code board}.
+         */
+        public void add(Board board) {
+            int i = size++;
+            guards[i] = board.getGuards();
+            red[i] = board.getRed();
+            blue[i] = board.getBlue();
+            for (int level = 0; level < 7; level++) {
+                stacks[level][i] = board.getStack(level);
+            }
+            blueToMove[i] = board.getCurrentPlayer() == Player.BLUE;
+        }
+
+        public long[] guards() {
+            return guards;
+        }
+
+        public long[] red() {
+            return red;
+        }
+
+        public long[] blue() {
+            return blue;
+        }
+
+        public long[] stack(int level) {
+            return stacks[level];
+        }
+    }
+
+    /**
+     * @param out receives {@link Evaluation#evaluate(Board)} of every position in the batch (red minus blue)
+     */
+    public static void evaluate(Batch batch, int[] out) {
+        KERNEL.evaluate(batch, 0, batch.size(), Evaluation.weights(), out);
+    }
+
+    /**
+     * Like {@link #evaluate(Batch, int[])}, but from the point of view of each position's side to move.
+     */
+    public static void evaluateRelative(Batch batch, int[] out) {
+        evaluate(batch, out);
+        for (int i = 0, n = batch.size(); i < n; i++) {
+            if (batch.blueToMove[i]) out[i] = -out[i];
+        }
+    }
+
+    /**
+     * Fills {@code batch} (after clearing it) with the next positions of {@code cursor}.
+     *
+     * @return number of positions read, 0 at the end of the corpus
+     */
+    public static int fill(PositionCorpus.Cursor cursor, Batch batch) {
+        batch.clear();
+        while (!batch.isFull() && cursor.next()) {
+            batch.add(cursor.board());
+        }
+        return batch.size();
+    }
+
+    public static String kernelName() {
+        return KERNEL instanceof ScalarKernel ? "scalar" : "vector";
+    }
+
+    /* ---------- scalar kernel ------------------------------------------------ */
+
+    static final class ScalarKernel implements Kernel {
+        @Override
+        public void evaluate(Batch b, int from, int count, int[] w, int[] out) {
+            int end = from + count;
+            long[] guards = b.guards;
+            long[] red = b.red;
+            long[] blue = b.blue;
+
+            // material and stacked: pieces per tower level
+            int wMaterial = w[Evaluation.MATERIAL];
+            int wStacked = w[Evaluation.STACKED];
+            long[] ground = b.stacks[0];
+            for (int i = from; i < end; i++) {
+                out[i] = wMaterial * (Long.bitCount(ground[i] & red[i]) - Long.bitCount(ground[i] & blue[i]));
+            }
+            for (int level = 1; level < 7; level++) {
+                long[] s = b.stacks[level];
+                int weight = wMaterial + wStacked;
+                for (int i = from; i < end; i++) {
+                    out[i] += weight * (Long.bitCount(s[i] & red[i]) - Long.bitCount(s[i] & blue[i]));
+                }
+            }
+
+            // towers, center, advance
+            int wTowers = w[Evaluation.TOWERS];
+            int wCenter = w[Evaluation.CENTER];
+            int wAdvance = w[Evaluation.ADVANCE];
+            for (int i = from; i < end; i++) {
+                long towers = ground[i] & ~guards[i];
+                long r = towers & red[i];
+                long bl = towers & blue[i];
+                out[i] += wTowers * (Long.bitCount(r) - Long.bitCount(bl))
+                        + wCenter * (Long.bitCount(r & Evaluation.CENTER_MASK) - Long.bitCount(bl & Evaluation.CENTER_MASK))
+                        + wAdvance * (Long.bitCount(r & Evaluation.BLUE_HALF) - Long.bitCount(bl & Evaluation.RED_HALF));
+            }
+
+            // guard shield and guard distance
+            int wShield = w[Evaluation.GUARD_SHIELD];
+            int wDistance = w[Evaluation.GUARD_DISTANCE];
+            for (int i = from; i < end; i++) {
+                long redGuard = guards[i] & red[i];
+                long blueGuard = guards[i] & blue[i];
+                out[i] += wShield * (Long.bitCount(Evaluation.neighbours(redGuard) & red[i] & ~guards[i])
+                        - Long.bitCount(Evaluation.neighbours(blueGuard) & blue[i] & ~guards[i]))
+                        + (wDistance == 0 ? 0 : wDistance * guardDistance(redGuard, blueGuard, red[i], blue[i]));
+            }
+        }
+    }
+
+    /* ---------- helpers ------------------------------------------------------ */
+
+    /**
+     * {@link Evaluation#GUARD_DISTANCE} from the lane's masks (flood fill, so it stays scalar in every kernel).
+     */
+    static int guardDistance(long redGuard, long blueGuard, long red, long blue) {
+        return GuardRace.castleDistance(blueGuard, blue, Evaluation.RED_CASTLE)
+                - GuardRace.castleDistance(redGuard, red, Evaluation.BLUE_CASTLE);
+    }
+
+    /**
+     * The Vector API kernel is only compiled with the <code>vector</code> profile and only usable when the
+     * incubator module is present, so it is looked up reflectively.
+     */
+    private static Kernel loadKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (Kernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // fall through to the scalar kernel
+            }
+        }
+        return new ScalarKernel();
+    }
+}
@@ -1,73 +1,44 @@
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 
+/**
+ * Move generation, move execution and the reference searches.
+ *
+ * <p>The precomputed move tables are static, immutable and built once per JVM, so instances cost nothing and
+ * any number of threads may generate moves at the same time. Searches keep all their mutable state (boards
+ * and move buffers per ply, counters, deadline or stop flag) in per-search objects: {@link Search} and
+ * {@link MonteCarloSearch} instances, or a private context for {@link #minimax(BitBoardUtils, Board, int,
+ * boolean, AtomicInteger)} and {@link #minimaxAlphaBeta(BitBoardUtils, Board, long, AtomicInteger)}. Instances
+ * have no state at all; picking a move for a game is {@link EngineSession#pickMove(Board)}, one session per
+ * game.</p>
+ */
 public final class BitBoardUtils {
-    private static final BitBoardUtils UTILS = new BitBoardUtils();
     private static final int MAX_PLIES = 5;   // depth guard
     public static final int BOARD_SIZE = 7;
-    private final Map<MovePair, Long> pathMaskMap = new HashMap<>();
-    private long[] leftMasks = new long[BOARD_SIZE];
-    private long[] rightMasks = new long[BOARD_SIZE];
-    private long fullMask;
-
-    public BitBoardUtils() {
-        this.fullMask = (1L << 49) - 1;
+    /** Upper bound for the number of legal moves in a position, used to size move buffers. */
+    public static final int MAX_MOVES = 256;
+    static final int NORTH = 0;
+    static final int SOUTH = 1;
+    static final int EAST = 2;
+    static final int WEST = 3;
+
+    /* ---------- move tables: written once in the static initialiser, read-only afterwards ---- */
+    // squares between from and to (index from * 49 + to); PATH_LENGTHS is 0 for non-orthogonal pairs
+    private static final long[] PATH_MASKS = new long[49 * 49];
+    private static final int[] PATH_LENGTHS = new int[49 * 49];
+    // files a tower of height i + 1 cannot leave towards the west / east edge
+    private static final long[] LEFT_MASKS = new long[BOARD_SIZE];
+    private static final long[] RIGHT_MASKS = new long[BOARD_SIZE];
+    private static final long FULL_MASK = (1L << 49) - 1;
+
+    static {
         precomputePathMasks();
-        long leftMask1 = 1L << 6;
-        long rightMask1 = 1L;
-        for (int i = 0; i < 6; i++) {
-            leftMask1 = leftMask1 << 7 | leftMask1;
-            rightMask1 = rightMask1 << 7 | rightMask1;
-        }
-        this.leftMasks[0] = leftMask1;
-        this.rightMasks[0] = rightMask1;
-
-        for (int i = 1; i <= 6; i++) {
-            this.leftMasks[i] = this.leftMasks[i - 1] | this.leftMasks[i - 1] >>> 1;
-            this.rightMasks[i] = this.rightMasks[i - 1] | this.rightMasks[i - 1] >>> 1;
-        }
+        precomputeEdgeMasks();
     }
 
-    public MovePair pickMove(Board board) {
-        BitBoardUtils utils = new BitBoardUtils();
-        List<MovePair> legalMoves = utils.generateAllLegalMoves(board);
-        boolean maximizingPlayer;
-        AtomicInteger stateCounter = new AtomicInteger();
-
-        if (board.getCurrentPlayer() == Player.BLUE) {
-            maximizingPlayer = false;
-        } else {
-            maximizingPlayer = true;
-        }
-
-        MovePair bestMove = null;
-        int bestValue = maximizingPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
-
-        // start global timer only ONCE
-        long startTime = System.currentTimeMillis();
-
-        for (BitBoardUtils.MovePair move : legalMoves) {
-            Board newBoard = BitBoardUtils.makeMove(move, board.copy());
-
-            int eval = minimaxAlphaBeta(newBoard, 1000, stateCounter);
-
-            if (maximizingPlayer && eval > bestValue) {
-                bestValue = eval;
-                bestMove = move;
-            } else if (!maximizingPlayer && eval < bestValue) {
-                bestValue = eval;
-                bestMove = move;
-            }
-            // stop looping if we ran out of time
-            if (System.currentTimeMillis() - startTime > 500) break;
-        }
-        System.out.println("Time: " + (System.currentTimeMillis() - startTime) + "ms");
-        System.out.println("Bewertete Zustände:" + stateCounter.get());
-        return bestMove;
+    public BitBoardUtils() {
     }
 
 
@@ -99,10 +70,55 @@ public final class BitBoardUtils {
         return false;
     }
 
+    /**
+     * Checks whether the opponent of {@code player} could capture {@code player}'s guard with the next move.
+     * Walks the four rays from the guard to the first occupied square: an enemy guard there attacks from
+     * distance 1, an enemy tower from any distance up to its height.
+     */
+    public static boolean isGuardAttacked(Board board, Player player) {
+        long own = player == Player.RED ? board.getRed() : board.getBlue();
+        long enemy = player == Player.RED ? board.getBlue() : board.getRed();
+        long guard = board.getGuards() & own;
+        if (guard == 0) {
+            return false;
+        }
+        int square = Long.numberOfTrailingZeros(guard);
+        int x = square % BOARD_SIZE;
+        int y = square / BOARD_SIZE;
+        for (int dir = 0; dir < 4; dir++) {
+            int dx = dir == EAST ? 1 : dir == WEST ? -1 : 0;
+            int dy = dir == NORTH ? 1 : dir == SOUTH ? -1 : 0;
+            for (int k = 1; k < BOARD_SIZE; k++) {
+                int nx = x + dx * k;
+                int ny = y + dy * k;
+                if (nx < 0 || nx >= BOARD_SIZE || ny < 0 || ny >= BOARD_SIZE) break;
+                long bit = 1L << (ny * BOARD_SIZE + nx);
+                if ((board.getStack(0) & bit) == 0) continue;
+                if ((enemy & bit) != 0) {
+                    if ((board.getGuards() & bit) != 0) {
+                        if (k == 1) return true;
+                    } else if ((board.getStack(k - 1) & bit) != 0) {
+                        return true;                        // tower of height >= k
+                    }
+                }
+                break;                                      // path blocked
+            }
+        }
+        return false;
+    }
+
     public static Board makeMove(MovePair move, Board board) {
-        long to = (1L << move.getTo());
+        return makeMove(move.toInt(), board);
+    }
+
+    /**
+     * Same as {@link #makeMove(MovePair, Board)} for a move packed with {@link MovePair#toInt()}.
+     */
+    public static Board makeMove(int move, Board board) {
+        int moveHeight = (move >>> 12) & 7;
+        long to = (1L << ((move >>> 6) & 63));
 
-        long from = (1L << move.getFrom());
+        long from = (1L << (move & 63));
         long friendly = 0;
         long enemy = 0;
 
@@ -118,7 +134,7 @@ public final class BitBoardUtils {
         Board returnBoard = board;
 
         //Delete "From" Position
-        int n = move.getHeight();
+        int n = moveHeight;
         for (int i = 6; i >= 0; i--) {
             //If there is a bit present at the "from" position the ^= operation will lead to that bit being deleted which means the height of the Stack at that position will be decreased by 1
             if ((returnBoard.getStack(i) | from) == returnBoard.getStack(i)) {
@@ -150,7 +166,7 @@ public final class BitBoardUtils {
 
 
         //increase Stacks which player who moved owns
-        n = move.getHeight();
+        n = moveHeight;
         for (int i = 0; i < 7; i++) {
             //If there is no bit present at the "to" position the | operation will lead to that bit being added which means the height of the Stack at that position will be increased by 1
             if ((returnBoard.getStack(i) | to) != returnBoard.getStack(i)) {
@@ -286,8 +302,24 @@ public final class BitBoardUtils {
      * @return List of MovePairs, giving all possible moves in all direction for the current state of the Game.
      */
     public List<MovePair> generateAllLegalMoves(Board board) {
+        int[] buffer = new int[MAX_MOVES];
+        int count = generateAllLegalMoves(board, buffer);
+        List<MovePair> moves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            moves.add(MovePair.fromInt(buffer[i]));
+        }
+        return moves;
+    }
+
+    /**
+     * Allocation-free variant of {@link #generateAllLegalMoves(Board)}: writes the moves packed with
+     * {@link MovePair#toInt()} into a caller-owned buffer, in the same order as the List variant.
+     *
+     * @param moves buffer with room for {@link #MAX_MOVES} moves
+     * @return number of moves written
+     */
+    public int generateAllLegalMoves(Board board, int[] moves) {
         long empty = ~board.getStack(0);
-        List<MovePair> moves = new ArrayList<>();
         long playerMask = 0L;
         if (board.getCurrentPlayer() == Player.RED) {
             playerMask = board.getRed();
@@ -295,15 +327,16 @@ public final class BitBoardUtils {
             playerMask = board.getBlue();
         }
 
+        int count = 0;
         for (int i = 0; i < 7; i++) {
-            moves.addAll(generateMovesInDirection(board.getStack(i) & playerMask, empty, "N", i + 1, board)); // North
-            moves.addAll(generateMovesInDirection(board.getStack(i) & playerMask, empty, "S", i + 1, board)); // South
-            moves.addAll(generateMovesInDirection(board.getStack(i) & playerMask, empty, "E", i + 1, board)); // East
-            moves.addAll(generateMovesInDirection(board.getStack(i) & playerMask, empty, "W", i + 1, board)); // West
-
+            long fromBits = board.getStack(i) & playerMask;
+            count = generateMovesInDirection(fromBits, empty, NORTH, i + 1, board, moves, count);
+            count = generateMovesInDirection(fromBits, empty, SOUTH, i + 1, board, moves, count);
+            count = generateMovesInDirection(fromBits, empty, EAST, i + 1, board, moves, count);
+            count = generateMovesInDirection(fromBits, empty, WEST, i + 1, board, moves, count);
         }
 
-        return moves;
+        return count;
     }
 
     /**
@@ -311,12 +344,13 @@ public final class BitBoardUtils {
      *
      * @param fromBits Bitboard containing starting positions of all relevant pieces
      * @param empty    Bitboard containing position of empty fields
-     * @param dir      String giving the Direction for which the moves should be calculated (North-> "N",East-> "E", South-> "S", West-> "W" )
+     * @param dir      Direction for which the moves should be calculated ({@link #NORTH}, {@link #EAST}, {@link #SOUTH}, {@link #WEST})
      * @param height   int specifying the Minimum height of the Stacks for which the Moves should be calculated. Also determines the Number of steps one Move has.
-     * @return List of MovePairs, giving all possible moves which do not violate Boundary's for the specified Direction.
+     * @param moves    buffer receiving the packed moves
+     * @param count    number of moves already in the buffer
+     * @return new number of moves in the buffer
      */
-    private List<MovePair> generateMovesInDirection(long fromBits, long empty, String dir, int height, Board board) {
-        List<MovePair> moves = new ArrayList<>();
+    private static int generateMovesInDirection(long fromBits, long empty, int dir, int height, Board board, int[] moves, int count) {
         long shifted;
         int shift = 0;
         long friendly = 0;
@@ -333,25 +367,25 @@ public final class BitBoardUtils {
 
         //check Direction and shift by required amount
         fromBits &= ~(board.getGuards() & friendly);
-        if (dir.equals("E")) {
+        if (dir == EAST) {
             shift = height;
-            fromBits &= ~rightMasks[height - 1];
-            shifted = (fromBits >>> shift) & fullMask;
-            guardMoves = ((guardMoves & ~rightMasks[height - 1]) >>> shift) & ~(board.getStack(0) & friendly) & fullMask;
-        } else if (dir.equals("W")) {
+            fromBits &= ~RIGHT_MASKS[height - 1];
+            shifted = (fromBits >>> shift) & FULL_MASK;
+            guardMoves = ((guardMoves & ~RIGHT_MASKS[height - 1]) >>> shift) & ~(board.getStack(0) & friendly) & FULL_MASK;
+        } else if (dir == WEST) {
             shift = height;
-            fromBits &= ~leftMasks[height - 1];
-            guardMoves = ((guardMoves & ~leftMasks[height - 1]) << shift) & ~(board.getStack(0) & friendly) & fullMask;
-            shifted = (fromBits << shift) & fullMask;
+            fromBits &= ~LEFT_MASKS[height - 1];
+            guardMoves = ((guardMoves & ~LEFT_MASKS[height - 1]) << shift) & ~(board.getStack(0) & friendly) & FULL_MASK;
+            shifted = (fromBits << shift) & FULL_MASK;
 
-        } else if (dir.equals("N")) {
+        } else if (dir == NORTH) {
             shift = 7 * height;
-            shifted = (fromBits << shift) & fullMask;
-            guardMoves = (guardMoves << shift) & ~(board.getStack(0) & friendly) & fullMask;
+            shifted = (fromBits << shift) & FULL_MASK;
+            guardMoves = (guardMoves << shift) & ~(board.getStack(0) & friendly) & FULL_MASK;
         } else { // South
             shift = 7 * height;
-            shifted = (fromBits >>> shift) & fullMask;
-            guardMoves = (guardMoves >>> shift) & ~(board.getStack(0) & friendly) & fullMask;
+            shifted = (fromBits >>> shift) & FULL_MASK;
+            guardMoves = (guardMoves >>> shift) & ~(board.getStack(0) & friendly) & FULL_MASK;
         }
         //shifted ohne züge bei denen der eigene Guard das Ziel ist
         shifted = (shifted & ~(board.getGuards() & friendly));
@@ -367,24 +401,39 @@ public final class BitBoardUtils {
         while (shifted != 0) {
             int to = Long.numberOfTrailingZeros(shifted);
             int from = 0;
-            if (dir == "S" || dir == "E") {
+            if (dir == SOUTH || dir == EAST) {
                 from = to + shift;
             } else {
                 from = to - shift;
             }
-            MovePair move = new MovePair(from, to, height);
             //Checking for jumping violations and out of bounds violations
-            if (from >= 0 && from < 49 && moveDoesntJump(move, board)) { //&& moveDoesntJump(move, board)
-                moves.add(move);
+            if (from >= 0 && from < 49 && moveDoesntJump(from, to, height, board)) {
+                moves[count++] = from | to << 6 | height << 12;
             }
             shifted &= shifted - 1; //niedrigstes Bit löschen
         }
 
-        return moves;
+        return count;
 
     }
 
-    private void precomputePathMasks() {
+    private static void precomputeEdgeMasks() {
+        long leftMask1 = 1L << 6;
+        long rightMask1 = 1L;
+        for (int i = 0; i < 6; i++) {
+            leftMask1 = leftMask1 << 7 | leftMask1;
+            rightMask1 = rightMask1 << 7 | rightMask1;
+        }
+        LEFT_MASKS[0] = leftMask1;
+        RIGHT_MASKS[0] = rightMask1;
+
+        for (int i = 1; i <= 6; i++) {
+            LEFT_MASKS[i] = LEFT_MASKS[i - 1] | LEFT_MASKS[i - 1] >>> 1;
+            RIGHT_MASKS[i] = RIGHT_MASKS[i - 1] | RIGHT_MASKS[i - 1] << 1;
+        }
+    }
+
+    private static void precomputePathMasks() {
         for (int from = 0; from < 49; from++) {
             int x1 = from % BOARD_SIZE;
             int y1 = from / BOARD_SIZE;
@@ -423,18 +472,20 @@ public final class BitBoardUtils {
 
                     }
 
-                    pathMaskMap.put(new MovePair(from, to, height), mask);
+                    PATH_MASKS[from * 49 + to] = mask;
+                    PATH_LENGTHS[from * 49 + to] = height;
                 }
             }
         }
     }
 
 
-    private boolean moveDoesntJump(MovePair move, Board board) {
-        if (pathMaskMap.get(move) == null) {
+    private static boolean moveDoesntJump(int from, int to, int height, Board board) {
+        // the distance of a move always equals the number of moved pieces; other (from, to) pairs do not exist
+        if (PATH_LENGTHS[from * 49 + to] != height) {
             return false;
         }
-        return (board.getStack(0) & pathMaskMap.get(move)) == 0;
+        return (board.getStack(0) & PATH_MASKS[from * 49 + to]) == 0;
     }
 
     public static void printBitboard(long bitboard) {
@@ -505,6 +556,26 @@ public final class BitBoardUtils {
             return result;
         }
 
+        /**
+         * Packs the move into an int (from | to << 6 | height << 12). 0 never denotes a legal move.
+         */
+        public int toInt() {
+            return from | to << 6 | height << 12;
+        }
+
+        public static MovePair fromInt(int packed) {
+            return new MovePair(packed & 63, (packed >>> 6) & 63, (packed >>> 12) & 7);
+        }
+
+        /**
+         * Inverse of {@link #toMove()}.
+         */
+        public static MovePair fromMove(Move move) {
+            int from = (6 - move.fromRow) * BOARD_SIZE + (6 - move.fromCol);
+            int to = (6 - move.toRow) * BOARD_SIZE + (6 - move.toCol);
+            return new MovePair(from, to, move.moveHeight);
+        }
+
         public Move toMove() {
             int fromCol = 6 - (this.from % BOARD_SIZE);
             int fromRow = 6 - (this.from / BOARD_SIZE);
@@ -520,112 +591,183 @@ public final class BitBoardUtils {
         }
     }
 
+    /**
+     * Static evaluation, positive if red is better. See {@link Evaluation} for the terms and their weights.
+     */
     public static int evaluate(Board board) {
-        return board.numPieces(Player.RED) - board.numPieces(Player.BLUE);
+        return Evaluation.evaluate(board);
     }
 
     public static int minimax(Board board, int depth, boolean maximizingPlayer, AtomicInteger stateCounter) {
+        return minimax(new BitBoardUtils(), board, depth, maximizingPlayer, stateCounter);
+    }
+
+    /**
+     * Plain minimax using the move tables of {@code utils} (usually those of an {@link EngineSession}).
+     */
+    public static int minimax(BitBoardUtils utils, Board board, int depth, boolean maximizingPlayer, AtomicInteger stateCounter) {
+        SearchContext ctx = new SearchContext(utils, board, depth, stateCounter, 0L, Long.MAX_VALUE);
+        return minimax(ctx, 0, depth, maximizingPlayer);
+    }
+
+    private static int minimax(SearchContext ctx, int ply, int depth, boolean maximizingPlayer) {
+        Board board = ctx.boards[ply];
 
         /* ---------- hard stop: search horizon reached ------------------------- */
         if (depth == 0){
-            stateCounter.incrementAndGet();
+            ctx.stateCounter.incrementAndGet();
             return evaluate(board);
         }
 
         /* ---------- game end check (the side that just moved) ------------------ */
         Player prev = (board.getCurrentPlayer() == Player.RED) ? Player.BLUE : Player.RED;
-        if (UTILS.checkplayerWon(board, prev)){
-            stateCounter.incrementAndGet();
+        if (checkplayerWon(board, prev)){
+            ctx.stateCounter.incrementAndGet();
             return evaluate(board);
         }
 
         /* ---------- generate legal moves --------------------------------------- */
-        List<MovePair> moves = UTILS.generateAllLegalMoves(board);
-        if (moves.isEmpty())                           // stalemate or no moves
+        int[] moves = ctx.moves[ply];
+        int count = ctx.utils.generateAllLegalMoves(board, moves);
+        if (count == 0)                                // stalemate or no moves
             return evaluate(board);
 
         /* ---------- recursive descent ------------------------------------------ */
+        Board child = ctx.boards[ply + 1];
         if (maximizingPlayer) {
             int best = Integer.MIN_VALUE;
-            for (MovePair m : moves) {
-                Board child = UTILS.makeMove(m, board.copy());  // safe copy
-                int score = minimax(child, depth - 1, false, stateCounter);
+            for (int i = 0; i < count; i++) {
+                child.copyFrom(board);
+                makeMove(moves[i], child);
+                int score = minimax(ctx, ply + 1, depth - 1, false);
                 best = Math.max(best, score);
             }
-            stateCounter.incrementAndGet();
+            ctx.stateCounter.incrementAndGet();
             return best;
         } else {                                       // minimizing player
             int best = Integer.MAX_VALUE;
-            for (MovePair m : moves) {
-                Board child = UTILS.makeMove(m, board.copy());
-                int score = minimax(child, depth - 1, true, stateCounter);
+            for (int i = 0; i < count; i++) {
+                child.copyFrom(board);
+                makeMove(moves[i], child);
+                int score = minimax(ctx, ply + 1, depth - 1, true);
                 best = Math.min(best, score);
             }
-            stateCounter.incrementAndGet();
+            ctx.stateCounter.incrementAndGet();
             return best;
         }
     }
 
 
     public static int minimaxAlphaBeta(Board root, long timeLimitMs, AtomicInteger stateCounter) {              // convenience
+        return minimaxAlphaBeta(new BitBoardUtils(), root, timeLimitMs, stateCounter);
+    }
+
+    public static int minimaxAlphaBeta(BitBoardUtils utils, Board root, long timeLimitMs, AtomicInteger stateCounter) {
         long start = System.currentTimeMillis();
         boolean maximizingPlayer = (root.getCurrentPlayer() == Player.RED) ? true : false;
-        return minimaxAlphaBeta(root,                                     /* board    */
+        SearchContext ctx = new SearchContext(utils, root, MAX_PLIES, stateCounter, start, timeLimitMs);
+        return minimaxAlphaBeta(ctx,                              /* context  */
                 maximizingPlayer,                                     /* max ply  */
                 Integer.MIN_VALUE, Integer.MAX_VALUE,     /* α, β     */
-                start, timeLimitMs,                       /* timing   */
-                0,
-                stateCounter);                                       /* ply = 0  */
+                0);                                       /* ply = 0  */
     }
 
     // -----------------------------------------------------------------------------
 //  Core recursive search
 // -----------------------------------------------------------------------------
-    private static int minimaxAlphaBeta(Board board, boolean maximizingPlayer, int alpha, int beta, long startTime, long timeLimitMs, int ply, AtomicInteger stateCounter) {
+    private static int minimaxAlphaBeta(SearchContext ctx, boolean maximizingPlayer, int alpha, int beta, int ply) {
+        Board board = ctx.boards[ply];
 
         /* ---------- hard stops: out of time OR too deep ------------------------ */
-        if (System.currentTimeMillis() - startTime > timeLimitMs || ply >= MAX_PLIES){
-            stateCounter.incrementAndGet();
+        if (System.currentTimeMillis() - ctx.startTime > ctx.timeLimitMs || ply >= MAX_PLIES){
+            ctx.stateCounter.incrementAndGet();
             return evaluate(board);
         }
 
         /* ---------- game-ending positions -------------------------------------- */
         Player prev = (board.getCurrentPlayer() == Player.RED) ? Player.BLUE : Player.RED;
-        if (UTILS.checkplayerWon(board, prev)) {          // last mover just won
-            stateCounter.incrementAndGet();
-            return evaluate(board);
+        if (checkplayerWon(board, prev)) {          // last mover just won, the sooner the better
+            ctx.stateCounter.incrementAndGet();
+            return prev == Player.RED ? Search.WIN - ply : -(Search.WIN - ply);
         }
 
         /* ---------- enumerate legal moves -------------------------------------- */
-        List<MovePair> moves = UTILS.generateAllLegalMoves(board);
-        if (moves.isEmpty()) {                            // stalemate or no moves
-            stateCounter.incrementAndGet();
+        int[] moves = ctx.moves[ply];
+        int count = ctx.utils.generateAllLegalMoves(board, moves);
+        if (count == 0) {                            // stalemate or no moves
+            ctx.stateCounter.incrementAndGet();
             return evaluate(board);
         }
-        /* ---------- standard alpha–beta recursion ------------------------------ */
+        /* ---------- principal variation search ------------------------------- */
+        // first child with the full window, the others with a null window; re-search only on a fail high
+        Board child = ctx.boards[ply + 1];
         if (maximizingPlayer) {
             int best = Integer.MIN_VALUE;
-            for (MovePair m : moves) {
-                Board child = UTILS.makeMove(m, board.copy());           // safe copy
-                int score = minimaxAlphaBeta(child, false, alpha, beta, startTime, timeLimitMs, ply + 1, stateCounter);
+            for (int i = 0; i < count; i++) {
+                child.copyFrom(board);
+                makeMove(moves[i], child);
+                int score;
+                if (i == 0) {
+                    score = minimaxAlphaBeta(ctx, false, alpha, beta, ply + 1);
+                } else {
+                    score = minimaxAlphaBeta(ctx, false, alpha, alpha + 1, ply + 1);
+                    if (score > alpha && score < beta) {
+                        score = minimaxAlphaBeta(ctx, false, alpha, beta, ply + 1);
+                    }
+                }
                 best = Math.max(best, score);
                 alpha = Math.max(alpha, best);
                 if (alpha >= beta) break;                                // cut-off
             }
-            stateCounter.incrementAndGet();
+            ctx.stateCounter.incrementAndGet();
             return best;
         } else { // minimizing player
             int best = Integer.MAX_VALUE;
-            for (MovePair m : moves) {
-                Board child = UTILS.makeMove(m, board.copy());
-                int score = minimaxAlphaBeta(child, true, alpha, beta, startTime, timeLimitMs, ply + 1, stateCounter);
+            for (int i = 0; i < count; i++) {
+                child.copyFrom(board);
+                makeMove(moves[i], child);
+                int score;
+                if (i == 0) {
+                    score = minimaxAlphaBeta(ctx, true, alpha, beta, ply + 1);
+                } else {
+                    score = minimaxAlphaBeta(ctx, true, beta - 1, beta, ply + 1);
+                    if (score < beta && score > alpha) {
+                        score = minimaxAlphaBeta(ctx, true, alpha, beta, ply + 1);
+                    }
+                }
                 best = Math.min(best, score);
                 beta = Math.min(beta, best);
                 if (beta <= alpha) break;
             }
-            stateCounter.incrementAndGet();
+            ctx.stateCounter.incrementAndGet();
             return best;
         }
     }
 
+    /**
+     * Mutable state of one reference search: a board and a move buffer per ply, the node counter and the
+     * deadline. The recursion writes nothing else, so searches on different contexts never interfere.
+     */
+    private static final class SearchContext {
+        final BitBoardUtils utils;
+        final Board[] boards;
+        final int[][] moves;
+        final AtomicInteger stateCounter;
+        final long startTime;
+        final long timeLimitMs;
+
+        SearchContext(BitBoardUtils utils, Board root, int maxPly, AtomicInteger stateCounter, long startTime, long timeLimitMs) {
+            this.utils = utils;
+            this.boards = new Board[maxPly + 1];
+            this.moves = new int[maxPly + 1][MAX_MOVES];
+            for (int i = 0; i <= maxPly; i++) {
+                boards[i] = new Board();
+            }
+            boards[0].copyFrom(root);
+            this.stateCounter = stateCounter;
+            this.startTime = startTime;
+            this.timeLimitMs = timeLimitMs;
+        }
+    }
+
 }
\ No newline at end of file
@@ -247,6 +247,92 @@ public class Board {
         return numPiece;
     }
 
+    /**
+     * Inverse of {@link #Board(String)}: same square order (index 48 first), empty squares as digits, towers as
+     * colour and height, guards as RG / BG, then the side to move ("r" or "b", nothing if unknown).
+     *
+     * @return FEN string of this position
+     */
+    public String toFen() {
+        StringBuilder sb = new StringBuilder(64);
+        int empty = 0;
+        for (int i = 48; i >= 0; i--) {
+            long bit = 1L << i;
+            if ((stacks[0] & bit) == 0) {
+                empty++;
+            } else {
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                boolean isRed = (red & bit) != 0;
+                if ((guards & bit) != 0) {
+                    sb.append(isRed ? "RG" : "BG");
+                } else {
+                    int height = 0;
+                    while (height < stacks.length && (stacks[height] & bit) != 0) {
+                        height++;
+                    }
+                    sb.append(isRed ? 'r' : 'b').append(height);
+                }
+            }
+            if (i % 7 == 0) {
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                if (i > 0) {
+                    sb.append('/');
+                }
+            }
+        }
+        sb.append(' ');
+        if (currentPlayer == Player.RED) {
+            sb.append('r');
+        } else if (currentPlayer == Player.BLUE) {
+            sb.append('b');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 64-bit key of this position, used to index the transposition table.
+     * Mixes all planes and the side to move, so two boards have the same key exactly when they are equal
+     * (up to hash collisions).
+     *
+     * @return hash key of the position
+     */
+    public long hashKey() {
+        long h = currentPlayer == Player.RED ? 0x2545F4914F6CDD1DL : 0x6A09E667F3BCC909L;
+        h = mixKey(h, guards);
+        h = mixKey(h, red);
+        for (int i = 0; i < 7; i++) {
+            h = mixKey(h, stacks[i]);
+        }
+        // final avalanche so that the low bits (table index) depend on every plane
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static long mixKey(long h, long plane) {
+        h ^= plane;
+        h *= 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * Overwrites this board with the position of {@code other} without allocating, so search code can
+     * keep one preallocated Board per ply.
+     */
+    public void copyFrom(Board other) {
+        this.guards = other.guards;
+        this.blue = other.blue;
+        this.red = other.red;
+        System.arraycopy(other.stacks, 0, this.stacks, 0, 7);
+        this.currentPlayer = other.currentPlayer;
+    }
+
     public Board copy() {
         Board b = new Board();
         b.setBlue(this.blue);
@@ -0,0 +1,100 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps one live {@link Board} in step with the FEN strings of the game server, so a game is a sequence of
+ * moves instead of unrelated positions.
+ *
+ * <p>For the live position the FEN after every legal move is predicted in advance
+ * ({@link #predictReplies()}, e.g. while the opponent thinks). A new server FEN is then looked up among the
+ * predictions and the matching move is applied with {@link BitBoardUtils#makeMove(int, Board)}; only a FEN
+ * that matches no prediction (first state, server reset, different formatting) is parsed from scratch.</p>
+ */
+public final class BoardSync {
+
+    private final BitBoardUtils utils;
+    private final int[] moves = new int[BitBoardUtils.MAX_MOVES];
+    private final Map<String, Integer> replies = new HashMap<>();   // FEN after a legal move -> move
+    private boolean predicted;
+
+    private Board board;               // live position, null before the first state
+    private String fen;                // the server's FEN of it
+    private int lastMove;              // move that led to it, 0 if it was parsed
+    private long applied;
+    private long parsed;
+
+    public BoardSync(BitBoardUtils utils) {
+        this.utils = utils;
+    }
+
+    /**
+     * Brings the live board to {@code serverFen}.
+     *
+     * @return the live board (the same instance as long as the game continues move by move)
+     * @throws IllegalArgumentException if the FEN has to be parsed and is invalid
+     */
+    public Board update(String serverFen) {
+        if (serverFen.equals(fen)) {
+            return board;                                        // the server repeats the state while we poll
+        }
+        predictReplies();
+        Integer move = replies.get(serverFen);
+        if (move != null) {
+            BitBoardUtils.makeMove(move, board);
+            lastMove = move;
+            applied++;
+        } else {
+            board = new Board(serverFen);
+            lastMove = 0;
+            parsed++;
+        }
+        fen = serverFen;
+        replies.clear();
+        predicted = false;
+        return board;
+    }
+
+    /**
+     * Computes the FEN after each legal move of the live position, if not done yet. Cheap to call repeatedly.
+     */
+    public void predictReplies() {
+        if (predicted || board == null) {
+            return;
+        }
+        int count = utils.generateAllLegalMoves(board, moves);
+        for (int i = 0; i < count; i++) {
+            Board next = board.copy();
+            BitBoardUtils.makeMove(moves[i], next);
+            replies.put(next.toFen(), moves[i]);
+        }
+        predicted = true;
+    }
+
+    /**
+     * @return the live board, null before the first {@link #update(String)}
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * @return the move that led from the previous to the live position, or 0 if it was parsed
+     */
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    /**
+     * @return number of positions reached by applying a predicted move
+     */
+    public long getApplied() {
+        return applied;
+    }
+
+    /**
+     * @return number of positions that had to be parsed
+     */
+    public long getParsed() {
+        return parsed;
+    }
+}
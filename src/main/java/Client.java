@@ -13,6 +13,10 @@ import java.util.List;
  *
  * <p>It relies exclusively on already-existing engine classes
  * (Board, BitBoardUtils, Move, …) – no changes to the server code required.</p>
+ *
+ * <p>All output goes through a {@link GameRecorder}: every server position and every move we play (with
+ * search statistics and clock) ends up in the game record under <code>engine.logDir</code>, and the console
+ * lines are printed by the recorder's thread, never on the thread that answers the server.</p>
  */
 public class Client {
 
@@ -32,7 +36,10 @@ public class Client {
     /* ————————————————————————————————————game/engine fields———————————————————————————————————— */
 
     private char myTurnToken;      // 'r' or 'b'
-    private final BitBoardUtils engine = new BitBoardUtils();
+    private final EngineSession session = new EngineSession();   // tables, hash and search history for the whole game
+    private final BoardSync sync = new BoardSync(session.getUtils());   // live board, follows the server move by move
+    private final GameRecorder recorder = GameRecorder.open();   // game record, written off the move thread
+    private long clockMs;          // our remaining time as last reported by the server
 
     /* =================================================================================================================
                                               │ public bootstrap │
@@ -47,6 +54,7 @@ public class Client {
     }
 
     public void start() throws IOException, InterruptedException {
+        session.setRecorder(recorder);
         connect();
         gameLoop();
         close();
@@ -68,8 +76,8 @@ public class Client {
         int playerId = firstByte - '0';
         myTurnToken = (playerId == 0) ? 'r' : 'b';
 
-        System.out.printf("Connected – I am player %d (%s)%n",
-                playerId, (myTurnToken == 'r' ? "RED" : "BLUE"));
+        recorder.startGame(String.format("Connected – I am player %d (%s)",
+                playerId, (myTurnToken == 'r' ? "RED" : "BLUE")));
     }
 
     private void close() {
@@ -77,6 +85,11 @@ public class Client {
             if (socket != null) socket.close();
         } catch (IOException ignored) {
         }
+        try {
+            recorder.close();                           // writes what is still buffered
+        } catch (IOException e) {
+            System.err.println("Could not write game record: " + e.getMessage());
+        }
     }
 
     /**
@@ -102,34 +115,45 @@ public class Client {
     private void gameLoop() throws IOException, InterruptedException {
 
         GameState state = requestGameState();           // initial state
-        while (!state.bothConnected) {                  // wait for opponent
-            Thread.sleep(200);
-            state = requestGameState();
+        if (!state.bothConnected) {
+            // use the waiting time to get the search code JIT-compiled before our first move
+            Warmup warmup = new Warmup(session.getUtils());
+            warmup.start();
+            while (!state.bothConnected) {              // wait for opponent
+                Thread.sleep(200);
+                state = requestGameState();
+            }
+            recorder.info(warmup.stop().toString());
         }
 
         while (!state.end) {
+            clockMs = state.timeMs;
+            recordPosition(state.board);
 
             boolean myTurn = (myTurnToken == state.turn.charAt(0));
             if (myTurn) {
                 String moveStr = chooseMove(state.board);
 
                 if (moveStr == null) {                  // no legal move – concede
-                    System.err.println("No legal moves! Terminating.");
+                    recorder.info("No legal moves! Terminating.");
                     break;
                 }
-                System.out.println("This is the current baord:");
-                FenUtils.printBoard(state.board);
-                System.out.println("I play: " + moveStr);
                 state = sendMove(moveStr);              // server responds with an updated state
 
             } else {
-                // poll politely while the opponent thinks
+                // poll politely while the opponent thinks; meanwhile predict the positions after each reply
+                sync.predictReplies();
                 Thread.sleep(100);
                 state = requestGameState();
             }
         }
 
-        System.out.println("Game finished – server reported ‘end=true’. Closing connection.");
+        recorder.endGame("Game finished – server reported ‘end=true’ (" + state.board + "). Closing connection.");
+        try {
+            session.saveTable();                        // next game starts with what this one learned
+        } catch (IOException e) {
+            System.err.println("Could not save hash table: " + e.getMessage());
+        }
     }
 
     /* =================================================================================================================
@@ -154,13 +178,32 @@ public class Client {
 
 
 
+    /**
+     * Brings the live board up to date (applying the move that was played, parsing only if no predicted
+     * position matches) and appends it to the game history unless it is the one recorded last (the server
+     * repeats the same state while we poll). A new position also goes into the game record.
+     */
+    private void recordPosition(String fen) {
+        try {
+            long before = sync.getApplied() + sync.getParsed();
+            Board board = sync.update(fen);
+            session.record(board);
+            if (sync.getApplied() + sync.getParsed() != before) {
+                recorder.position(board, sync.getLastMove(), clockMs);
+            }
+        } catch (Exception e) {                                 // unparsable state – the move search reports it
+            recorder.info("Could not record position: " + e.getMessage());
+        }
+    }
+
     /**
      * Builds a legal move for the current FEN and converts it into the server’s “A7-B7-1” format.
      */
     private String chooseMove(String fen) {
         try {
-            Board board = new Board(fen);
-            BitBoardUtils.MovePair choice = engine.pickMove(board);
+            Board board = sync.update(fen);                    // already synced by recordPosition
+            BitBoardUtils.MovePair choice = session.pickMove(board);
+            recorder.move(board, choice, session.getLastResult(), clockMs);
             Move m = choice.toMove();
             return m.toAlgebraic();
 
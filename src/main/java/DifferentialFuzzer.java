@@ -0,0 +1,562 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Differential tester: walks random playouts and compares, for every position on the way, the optimised
+ * bitboard code against a deliberately simple square-array model ({@link Ref}) of the rules.
+ *
+ * <p>Checked per position: the invariants of the planes (nested {@code stacks}, disjoint colours, guards of
+ * height one, nothing beyond square 48), FEN round trips (also against {@link FenUtils#parseBoard(String)},
+ * which reads the ranks in the opposite order and has no side to move), move generation, {@link
+ * BitBoardUtils#makeMove(int, Board)} for every legal move (the parent must stay untouched, copy-make being our
+ * unmake), hash keys of equal boards, game end, guard attacks, piece counts, the evaluation features and
+ * the batch kernel, and every {@link #PERFT_EVERY}th position {@link Match#perft(BitBoardUtils, Board, int)}.</p>
+ *
+ * <p>Workers run in parallel with their own seed. A failing position is shrunk (pieces removed, towers
+ * lowered) while the same check keeps failing, and reported as a minimal FEN.</p>
+ *
+ * <pre>
+ * usage: DifferentialFuzzer [positions=1000000] [threads=&lt;cores&gt;] [seed=1]
+ * </pre>
+ */
+public final class DifferentialFuzzer {
+
+    public static final int MAX_PLAYOUT_PLIES = 120;
+    static final int PERFT_EVERY = 64;                  // the reference perft is slow
+    private static final int MAX_FAILURES = 20;
+
+    private final long positions;
+    private final int threads;
+    private final long seed;
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong movesChecked = new AtomicLong();
+    private final List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+
+    public DifferentialFuzzer(long positions, int threads, long seed) {
+        this.positions = positions;
+        this.threads = Math.max(1, threads);
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long positions = 1_000_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "positions" -> positions = Long.parseLong(kv[1]);
+                case "threads" -> threads = Integer.parseInt(kv[1]);
+                case "seed" -> seed = Long.parseLong(kv[1]);
+                default -> throw new IllegalArgumentException("unknown argument " + arg);
+            }
+        }
+        DifferentialFuzzer fuzzer = new DifferentialFuzzer(positions, threads, seed);
+        long start = System.nanoTime();
+        List<Failure> found = fuzzer.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d positions, %d moves in %.1f s (%.0f positions/s), %d failures%n",
+                fuzzer.getChecked(), fuzzer.getMovesChecked(), seconds, fuzzer.getChecked() / seconds, found.size());
+        found.forEach(System.out::println);
+        if (!found.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Checks {@code positions} positions on {@code threads} threads.
+     *
+     * @return the failures found (at most {@value #MAX_FAILURES}, each shrunk to a minimal FEN)
+     */
+    public List<Failure> run() throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            long share = positions / threads + (i < positions % threads ? 1 : 0);
+            Random random = new Random(seed * 0x9E3779B97F4A7C15L + i);
+            workers[i] = new Thread(() -> work(share, random), "fuzz-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return List.copyOf(failures);
+    }
+
+    public long getChecked() {
+        return checked.get();
+    }
+
+    public long getMovesChecked() {
+        return movesChecked.get();
+    }
+
+    private void work(long count, Random random) {
+        BitBoardUtils utils = new BitBoardUtils();
+        Checker checker = new Checker(utils);
+        int[] moves = new int[BitBoardUtils.MAX_MOVES];
+        Board board = new Board();
+        int ply = 0;
+        for (long n = 0; n < count && failures.size() < MAX_FAILURES; n++) {
+            boolean perft = random.nextInt(PERFT_EVERY) == 0;
+            String failed = checker.firstFailure(board, perft);
+            checked.incrementAndGet();
+            movesChecked.addAndGet(checker.lastMoveCount);
+            if (failed != null) {
+                Board failing = board.copy();
+                String minimal = shrink(failing, b -> failed.equals(new Checker(utils).firstFailure(b, perft)));
+                failures.add(new Failure(failed, failing.toFen(), minimal));
+                board = new Board();
+                ply = 0;
+                continue;
+            }
+            int moveCount = utils.generateAllLegalMoves(board, moves);
+            if (moveCount == 0 || ply >= MAX_PLAYOUT_PLIES
+                    || BitBoardUtils.checkplayerWon(board, Player.RED) || BitBoardUtils.checkplayerWon(board, Player.BLUE)) {
+                board = new Board();
+                ply = 0;
+            } else {
+                BitBoardUtils.makeMove(moves[random.nextInt(moveCount)], board);
+                ply++;
+            }
+        }
+    }
+
+    /* ---------- shrinking ------------------------------------------------------ */
+
+    /**
+     * Removes pieces and lowers towers one step at a time as long as {@code fails} still holds.
+     *
+     * @return FEN of the smallest failing position found
+     */
+    static String shrink(Board failing, Predicate<Board> fails) {
+        Ref current = Ref.of(failing);
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (int sq = 0; sq < 49 && !progress; sq++) {
+                if (current.height[sq] == 0) continue;
+                for (int lower = current.height[sq] - 1; lower >= 0 && !progress; lower--) {
+                    if (current.guard[sq] && lower > 0) continue;
+                    Ref candidate = current.copy();
+                    candidate.setHeight(sq, lower);
+                    if (failsSafely(fails, candidate.toBoard())) {
+                        current = candidate;
+                        progress = true;
+                    }
+                }
+            }
+        }
+        return current.toBoard().toFen();
+    }
+
+    private static boolean failsSafely(Predicate<Board> fails, Board board) {
+        try {
+            return fails.test(board);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * One failed check: its name, the position where it failed and the shrunk position.
+     */
+    public static final class Failure {
+        private final String check;
+        private final String fen;
+        private final String minimalFen;
+
+        Failure(String check, String fen, String minimalFen) {
+            this.check = check;
+            this.fen = fen;
+            this.minimalFen = minimalFen;
+        }
+
+        public String getCheck() {
+            return check;
+        }
+
+        public String getFen() {
+            return fen;
+        }
+
+        public String getMinimalFen() {
+            return minimalFen;
+        }
+
+        @Override
+        public String toString() {
+            return check + ": " + minimalFen + "   (found at " + fen + ")";
+        }
+    }
+
+    /* ---------- the checks ----------------------------------------------------- */
+
+    /**
+     * Runs all comparisons for one position; one instance per thread (it owns its buffers).
+     */
+    static final class Checker {
+        private final BitBoardUtils utils;
+        private final int[] fast = new int[BitBoardUtils.MAX_MOVES];
+        private final int[] features = new int[Evaluation.FEATURE_COUNT];
+        private final int[] weights = Evaluation.weights();
+        private final BatchEvaluator.Batch batch = new BatchEvaluator.Batch(1);
+        private final int[] batchScore = new int[1];
+        private final Board child = new Board();
+        private final Board parent = new Board();
+        int lastMoveCount;
+
+        Checker(BitBoardUtils utils) {
+            this.utils = utils;
+        }
+
+        /**
+         * @return name of the first check that fails on {@code board}, or null if all pass
+         */
+        String firstFailure(Board board, boolean perft) {
+            lastMoveCount = 0;
+            try {
+                return runChecks(board, perft);
+            } catch (RuntimeException e) {
+                return "exception " + e.getClass().getSimpleName();
+            }
+        }
+
+        private String runChecks(Board board, boolean perft) {
+            if (!planesValid(board)) return "planes";
+            Ref ref = Ref.of(board);
+            if (!ref.toBoard().equals(board)) return "reference round trip";
+            Board fromFen = new Board(board.toFen());
+            if (!fromFen.equals(board) || fromFen.hashKey() != board.hashKey()) return "fen";
+            if (!fenUtilsAgrees(board)) return "FenUtils.parseBoard";
+
+            // move generation: same set, List and buffer variants in the same order
+            int count = utils.generateAllLegalMoves(board, fast);
+            lastMoveCount = count;
+            int[] expected = ref.moves();
+            int[] actual = Arrays.copyOf(fast, count);
+            List<BitBoardUtils.MovePair> list = utils.generateAllLegalMoves(board);
+            for (int i = 0; i < list.size() && i < count; i++) {
+                if (list.get(i).toInt() != fast[i]) return "move list order";
+            }
+            if (list.size() != count) return "move list size";
+            Arrays.sort(actual);
+            Arrays.sort(expected);
+            if (!Arrays.equals(actual, expected)) return "move generation";
+
+            // make move on a copy; the parent must not change
+            parent.copyFrom(board);
+            for (int i = 0; i < count; i++) {
+                child.copyFrom(board);
+                BitBoardUtils.makeMove(fast[i], child);
+                Board expectedChild = ref.play(fast[i]).toBoard();
+                if (!child.equals(expectedChild)) return "makeMove";
+                if (!planesValid(child)) return "makeMove planes";
+                if (child.hashKey() != expectedChild.hashKey()) return "hashKey";
+                if (child.hashKey() == board.hashKey()) return "hashKey unchanged by move";
+            }
+            if (!parent.equals(board)) return "parent modified";
+
+            // game end and guard safety
+            for (Player p : new Player[]{Player.RED, Player.BLUE}) {
+                if (BitBoardUtils.checkplayerWon(board, p) != ref.won(p == Player.RED ? Ref.RED : Ref.BLUE)) {
+                    return "checkplayerWon";
+                }
+                if (BitBoardUtils.isGuardAttacked(board, p) != ref.guardAttacked(p == Player.RED ? Ref.RED : Ref.BLUE)) {
+                    return "isGuardAttacked";
+                }
+                long side = p == Player.RED ? board.getRed() : board.getBlue();
+                long empty = Evaluation.FULL & ~board.getStack(0);
+                if ((GuardRace.attacks(board, side) & empty) != (ref.targets(p == Player.RED ? Ref.RED : Ref.BLUE) & empty)) {
+                    return "GuardRace.attacks";
+                }
+                if (board.numPieces(p) != ref.pieces(p == Player.RED ? Ref.RED : Ref.BLUE)) return "numPieces";
+            }
+
+            // evaluation
+            Evaluation.features(board, features);
+            int[] expectedFeatures = ref.features();
+            if (!Arrays.equals(features, expectedFeatures)) return "evaluation features";
+            int score = 0;
+            for (int i = 0; i < weights.length; i++) score += weights[i] * expectedFeatures[i];
+            if (Evaluation.evaluate(board) != score) return "evaluate";
+            batch.clear();
+            batch.add(board);
+            BatchEvaluator.evaluate(batch, batchScore);
+            if (batchScore[0] != score) return "batch evaluation";
+
+            if (perft && Match.perft(utils, board, 2) != ref.perft(2)) return "perft";
+            return null;
+        }
+
+        private static boolean planesValid(Board b) {
+            long full = Evaluation.FULL;
+            if (((b.getRed() | b.getBlue() | b.getGuards()) & ~full) != 0) return false;
+            if ((b.getRed() & b.getBlue()) != 0) return false;
+            if ((b.getRed() | b.getBlue()) != b.getStack(0)) return false;
+            if ((b.getGuards() & ~b.getStack(0)) != 0 || (b.getGuards() & b.getStack(1)) != 0) return false;
+            if (Long.bitCount(b.getGuards() & b.getRed()) > 1 || Long.bitCount(b.getGuards() & b.getBlue()) > 1) return false;
+            for (int i = 1; i < 7; i++) {
+                if ((b.getStack(i) & ~b.getStack(i - 1)) != 0) return false;
+            }
+            return b.getCurrentPlayer() != null;
+        }
+
+        private static boolean fenUtilsAgrees(Board board) {
+            Board parsed = FenUtils.parseBoard(board.toFen().split(" ")[0]);
+            if (Symmetry.rotate180(parsed.getGuards()) != board.getGuards()
+                    || Symmetry.rotate180(parsed.getRed()) != board.getRed()
+                    || Symmetry.rotate180(parsed.getBlue()) != board.getBlue()) {
+                return false;
+            }
+            for (int i = 0; i < 7; i++) {
+                if (Symmetry.rotate180(parsed.getStack(i)) != board.getStack(i)) return false;
+            }
+            return true;
+        }
+    }
+
+    /* ---------- reference model ------------------------------------------------ */
+
+    /**
+     * The rules written out square by square, with no bit tricks: height and owner per square, guard flags.
+     */
+    static final class Ref {
+        static final int RED = 1;
+        static final int BLUE = 2;
+        private static final int[][] DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};   // dx, dy
+
+        final int[] height = new int[49];
+        final int[] owner = new int[49];
+        final boolean[] guard = new boolean[49];
+        int side;
+
+        static Ref of(Board b) {
+            Ref r = new Ref();
+            for (int sq = 0; sq < 49; sq++) {
+                long bit = 1L << sq;
+                int h = 0;
+                while (h < 7 && (b.getStack(h) & bit) != 0) h++;
+                r.height[sq] = h;
+                r.owner[sq] = (b.getRed() & bit) != 0 ? RED : (b.getBlue() & bit) != 0 ? BLUE : 0;
+                r.guard[sq] = (b.getGuards() & bit) != 0;
+            }
+            r.side = b.getCurrentPlayer() == Player.RED ? RED : BLUE;
+            return r;
+        }
+
+        Board toBoard() {
+            long guards = 0;
+            long red = 0;
+            long blue = 0;
+            long[] stacks = new long[7];
+            for (int sq = 0; sq < 49; sq++) {
+                long bit = 1L << sq;
+                for (int h = 0; h < height[sq]; h++) stacks[h] |= bit;
+                if (owner[sq] == RED) red |= bit;
+                if (owner[sq] == BLUE) blue |= bit;
+                if (guard[sq]) guards |= bit;
+            }
+            return new Board(guards, blue, red, stacks, side == RED ? Player.RED : Player.BLUE);
+        }
+
+        Ref copy() {
+            Ref r = new Ref();
+            System.arraycopy(height, 0, r.height, 0, 49);
+            System.arraycopy(owner, 0, r.owner, 0, 49);
+            System.arraycopy(guard, 0, r.guard, 0, 49);
+            r.side = side;
+            return r;
+        }
+
+        void setHeight(int sq, int h) {
+            height[sq] = h;
+            if (h == 0) {
+                owner[sq] = 0;
+                guard[sq] = false;
+            }
+        }
+
+        /**
+         * A guard steps one square onto anything but an own piece. A tower moves k of its pieces exactly k
+         * squares over empty squares, onto an empty square, an own tower or an enemy piece of height &lt;= k.
+         */
+        int[] moves() {
+            return movesOf(side);
+        }
+
+        int[] movesOf(int player) {
+            int[] out = new int[BitBoardUtils.MAX_MOVES];
+            int n = 0;
+            for (int from = 0; from < 49; from++) {
+                if (owner[from] != player) continue;
+                int maxSteps = guard[from] ? 1 : height[from];
+                for (int[] d : DIRECTIONS) {
+                    for (int k = 1; k <= maxSteps; k++) {
+                        int x = from % 7 + d[0] * k;
+                        int y = from / 7 + d[1] * k;
+                        if (x < 0 || x > 6 || y < 0 || y > 6) break;
+                        int to = y * 7 + x;
+                        boolean pathFree = true;
+                        for (int j = 1; j < k; j++) {
+                            if (height[(from / 7 + d[1] * j) * 7 + from % 7 + d[0] * j] != 0) pathFree = false;
+                        }
+                        if (!pathFree) break;
+                        boolean legal;
+                        if (owner[to] == 0) {
+                            legal = true;
+                        } else if (owner[to] == player) {
+                            legal = !guard[from] && !guard[to];
+                        } else {
+                            legal = guard[from] || guard[to] || height[to] <= k;
+                        }
+                        if (legal) out[n++] = from | to << 6 | k << 12;
+                    }
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+
+        Ref play(int move) {
+            int from = move & 63;
+            int to = (move >>> 6) & 63;
+            int k = (move >>> 12) & 7;
+            Ref r = copy();
+            boolean movingGuard = guard[from];
+            r.height[from] -= k;
+            if (r.height[from] == 0) {
+                r.owner[from] = 0;
+            }
+            r.guard[from] = false;
+            if (owner[to] == side) {
+                r.height[to] = Math.min(7, height[to] + k);
+            } else {
+                r.height[to] = k;
+                r.owner[to] = side;
+                r.guard[to] = movingGuard;
+            }
+            r.side = side == RED ? BLUE : RED;
+            return r;
+        }
+
+        boolean won(int player) {
+            int castle = player == RED ? Evaluation.BLUE_CASTLE : Evaluation.RED_CASTLE;
+            boolean enemyGuard = false;
+            for (int sq = 0; sq < 49; sq++) {
+                if (guard[sq] && owner[sq] != player) enemyGuard = true;
+            }
+            return (guard[castle] && owner[castle] == player) || !enemyGuard;
+        }
+
+        boolean guardAttacked(int player) {
+            int enemy = player == RED ? BLUE : RED;
+            for (int m : movesOf(enemy)) {
+                int to = (m >>> 6) & 63;
+                if (guard[to] && owner[to] == player) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Squares a piece of {@code player} could reach ignoring what stands on the target.
+         */
+        long targets(int player) {
+            long result = 0;
+            for (int from = 0; from < 49; from++) {
+                if (owner[from] != player) continue;
+                int maxSteps = guard[from] ? 1 : height[from];
+                for (int[] d : DIRECTIONS) {
+                    for (int k = 1; k <= maxSteps; k++) {
+                        int x = from % 7 + d[0] * k;
+                        int y = from / 7 + d[1] * k;
+                        if (x < 0 || x > 6 || y < 0 || y > 6) break;
+                        result |= 1L << (y * 7 + x);
+                        if (height[y * 7 + x] != 0) break;
+                    }
+                }
+            }
+            return result;
+        }
+
+        int pieces(int player) {
+            int n = 0;
+            for (int sq = 0; sq < 49; sq++) {
+                if (owner[sq] == player) n += height[sq];
+            }
+            return n;
+        }
+
+        int[] features() {
+            int[] f = new int[Evaluation.FEATURE_COUNT];
+            f[Evaluation.MATERIAL] = pieces(RED) - pieces(BLUE);
+            f[Evaluation.GUARD_DISTANCE] = guardSteps(BLUE, Evaluation.RED_CASTLE) - guardSteps(RED, Evaluation.BLUE_CASTLE);
+            for (int sq = 0; sq < 49; sq++) {
+                if (owner[sq] == 0) continue;
+                int sign = owner[sq] == RED ? 1 : -1;
+                int x = sq % 7;
+                int y = sq / 7;
+                if (!guard[sq]) {
+                    f[Evaluation.TOWERS] += sign;
+                    if (x >= 2 && x <= 4 && y >= 2 && y <= 4) f[Evaluation.CENTER] += sign;
+                    if (owner[sq] == RED ? y <= 2 : y >= 4) f[Evaluation.ADVANCE] += sign;
+                    for (int[] d : DIRECTIONS) {
+                        int nx = x + d[0];
+                        int ny = y + d[1];
+                        if (nx >= 0 && nx <= 6 && ny >= 0 && ny <= 6 && guard[ny * 7 + nx] && owner[ny * 7 + nx] == owner[sq]) {
+                            f[Evaluation.GUARD_SHIELD] += sign;
+                        }
+                    }
+                }
+                f[Evaluation.STACKED] += sign * (height[sq] - 1);
+            }
+            return f;
+        }
+
+        /**
+         * Breadth-first search of the guard to {@code castle}, not through own pieces.
+         */
+        private int guardSteps(int player, int castle) {
+            int start = -1;
+            for (int sq = 0; sq < 49; sq++) {
+                if (guard[sq] && owner[sq] == player) start = sq;
+            }
+            if (start < 0) return Evaluation.NO_GUARD_DISTANCE;
+            int[] dist = new int[49];
+            Arrays.fill(dist, -1);
+            int[] queue = new int[49];
+            int head = 0;
+            int tail = 0;
+            dist[start] = 0;
+            queue[tail++] = start;
+            while (head < tail) {
+                int sq = queue[head++];
+                if (sq == castle) return Math.min(dist[sq], Evaluation.NO_GUARD_DISTANCE);
+                for (int[] d : DIRECTIONS) {
+                    int nx = sq % 7 + d[0];
+                    int ny = sq / 7 + d[1];
+                    if (nx < 0 || nx > 6 || ny < 0 || ny > 6) continue;
+                    int n = ny * 7 + nx;
+                    if (dist[n] >= 0 || (owner[n] == player && n != castle)) continue;
+                    dist[n] = dist[sq] + 1;
+                    queue[tail++] = n;
+                }
+            }
+            return Evaluation.NO_GUARD_DISTANCE;
+        }
+
+        long perft(int depth) {
+            if (depth == 0) return 1;
+            long leaves = 0;
+            for (int m : moves()) {
+                Ref next = play(m);
+                int mover = side;
+                leaves += next.won(mover) || depth == 1 ? 1 : next.perft(depth - 1);
+            }
+            return leaves;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Line-based, UCI-like text protocol over stdin/stdout, so the engine can be driven by GUIs, match tools
+ * or a shell pipe without the network {@link Client}.
+ *
+ * <p>Supported commands (moves use the server's "A7-B7-1" format):</p>
+ * <ul>
+ *   <li><code>uci</code>, <code>isready</code>, <code>ucinewgame</code>, <code>quit</code></li>
+ *   <li><code>position startpos [moves m1 m2 …]</code> / <code>position fen &lt;board&gt; &lt;side&gt; [moves …]</code></li>
+ *   <li><code>go [depth N] [movetime MS] [nodes N] [infinite]</code> – searches in the background and
+ *       streams <code>info depth … score cp|mate … nodes … nps … time … pv …</code> lines, then <code>bestmove</code></li>
+ *   <li><code>stop</code> – ends the running search, which still reports its best move</li>
+ *   <li><code>setoption name Hash value MB</code> / <code>setoption name Threads value N</code> /
+ *       <code>setoption name Statistics value true</code> (pruning counters as <code>info string</code>) /
+ *       <code>setoption name Engine value alphabeta|mcts</code></li>
+ * </ul>
+ * Commands are handled as soon as they arrive. While a search is running, every command except
+ * <code>stop</code>, <code>isready</code> and <code>quit</code> waits for it to finish, so a file with
+ * thousands of <code>position</code>/<code>go</code> pairs can simply be piped through. An infinite search
+ * (<code>go infinite</code> or a plain <code>go</code>) would never finish, so such a command stops it first.
+ */
+public final class EngineProtocol {
+
+    private static final String ENGINE_NAME = "Projekt-KI-Gruppe-U";
+    private static final int DEFAULT_HASH_MB = 16;
+    private static final int MAX_HASH_MB = 4096;
+    private static final int MAX_THREADS = 64;
+
+    private final BufferedReader in;
+    private final PrintStream out;
+
+    private final BitBoardUtils utils = new BitBoardUtils();
+    private final TranspositionTable table = new TranspositionTable(DEFAULT_HASH_MB);
+    private int threads = 1;
+    private final SearchOptions options = new SearchOptions();
+    private EngineSession.EngineType engine = EngineSession.EngineType.ALPHA_BETA;
+    private MonteCarloSearch mcts;
+    private Board position = new Board();
+    private final PositionHistory history = new PositionHistory();   // positions of the last "position" command
+
+    private Thread searchThread;
+    private AtomicBoolean stopFlag = new AtomicBoolean();
+    private boolean infinite;
+
+    public EngineProtocol(InputStream in, PrintStream out) {
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        new EngineProtocol(System.in, System.out).run();
+    }
+
+    /**
+     * Reads and executes commands until <code>quit</code> or end of input. At end of input a running
+     * depth/time/node limited search is allowed to finish, an infinite one is stopped.
+     */
+    public void run() throws IOException, InterruptedException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!handle(line.trim())) {
+                stopSearch();
+                break;
+            }
+        }
+        if (infinite) {
+            stopSearch();
+        }
+        waitForSearch();
+        out.flush();
+    }
+
+    /**
+     * Executes a single command.
+     *
+     * @return false if the engine should quit
+     */
+    boolean handle(String line) throws InterruptedException {
+        if (line.isEmpty()) {
+            return true;
+        }
+        String[] tokens = line.split("\\s+");
+        String command = tokens[0];
+
+        switch (command) {
+            case "quit":
+                return false;
+            case "stop":
+                stopSearch();
+                return true;
+            case "isready":
+                out.println("readyok");
+                return true;
+            default:
+                break;
+        }
+
+        if (infinite) {
+            stopSearch();                                  // would otherwise block the reader forever
+        }
+        waitForSearch();
+        try {
+            switch (command) {
+                case "uci" -> {
+                    out.println("id name " + ENGINE_NAME);
+                    out.println("id author Gruppe U");
+                    out.println("option name Hash type spin default " + DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+                    out.println("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                    out.println("option name Statistics type check default false");
+                    out.println("option name Engine type combo default alphabeta var alphabeta var mcts");
+                    out.println("uciok");
+                }
+                case "ucinewgame" -> {
+                    table.clear();
+                    position = new Board();
+                    history.clear();
+                }
+                case "position" -> position = parsePosition(tokens);
+                case "go" -> startSearch(parseGo(tokens));
+                case "setoption" -> setOption(tokens);
+                default -> out.println("info string unknown command: " + command);
+            }
+        } catch (RuntimeException e) {                     // malformed input must not kill the engine
+            out.println("info string error: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /* ---------- command parsing --------------------------------------------- */
+
+    private Board parsePosition(String[] tokens) {
+        if (tokens.length < 2)
+            throw new IllegalArgumentException("position needs 'startpos' or 'fen'");
+
+        Board board;
+        int index;
+        if (tokens[1].equals("startpos")) {
+            board = new Board();
+            index = 2;
+        } else if (tokens[1].equals("fen")) {
+            if (tokens.length < 4)
+                throw new IllegalArgumentException("position fen needs a board and the side to move");
+            board = new Board(tokens[2] + " " + tokens[3]);
+            index = 4;
+        } else {
+            throw new IllegalArgumentException("position needs 'startpos' or 'fen'");
+        }
+
+        history.clear();
+        history.push(board.hashKey());
+        if (index < tokens.length && tokens[index].equals("moves")) {
+            for (int i = index + 1; i < tokens.length; i++) {
+                BitBoardUtils.MovePair move = BitBoardUtils.MovePair.fromMove(Move.fromAlgebraic(tokens[i]));
+                if (!utils.generateAllLegalMoves(board).contains(move))
+                    throw new IllegalArgumentException("illegal move " + tokens[i]);
+                board = BitBoardUtils.makeMove(move, board);
+                history.push(board.hashKey());
+            }
+        }
+        return board;
+    }
+
+    private SearchLimits parseGo(String[] tokens) {
+        SearchLimits limits = new SearchLimits();
+        infinite = false;
+        for (int i = 1; i < tokens.length; i++) {
+            switch (tokens[i]) {
+                case "depth" -> limits.setDepth(Integer.parseInt(tokens[++i]));
+                case "movetime" -> limits.setMoveTimeMs(Long.parseLong(tokens[++i]));
+                case "nodes" -> limits.setNodes(Long.parseLong(tokens[++i]));
+                case "infinite" -> infinite = true;
+                default -> throw new IllegalArgumentException("unknown go parameter: " + tokens[i]);
+            }
+        }
+        if (limits.getDepth() == 0 && limits.getMoveTimeMs() == 0 && limits.getNodes() == 0 && !infinite) {
+            infinite = true;                               // plain "go" searches until "stop"
+        }
+        return limits;
+    }
+
+    private void setOption(String[] tokens) {
+        // setoption name <id> value <x>
+        String name = null;
+        String value = null;
+        for (int i = 1; i < tokens.length - 1; i++) {
+            if (tokens[i].equals("name")) name = tokens[i + 1];
+            if (tokens[i].equals("value")) value = tokens[i + 1];
+        }
+        if (name == null || value == null)
+            throw new IllegalArgumentException("setoption needs 'name <id> value <x>'");
+
+        if (name.equalsIgnoreCase("Hash")) {
+            table.resize(Math.max(1, Math.min(MAX_HASH_MB, Integer.parseInt(value))));
+        } else if (name.equalsIgnoreCase("Threads")) {
+            threads = Math.max(1, Math.min(MAX_THREADS, Integer.parseInt(value)));
+        } else if (name.equalsIgnoreCase("Statistics")) {
+            options.setStatistics(Boolean.parseBoolean(value));
+        } else if (name.equalsIgnoreCase("Engine")) {
+            engine = EngineSession.EngineType.parse(value);
+        } else {
+            throw new IllegalArgumentException("unknown option: " + name);
+        }
+    }
+
+    /* ---------- search control ---------------------------------------------- */
+
+    private void startSearch(SearchLimits limits) {
+        if (engine == EngineSession.EngineType.MCTS) {
+            startMonteCarloSearch(limits);
+            return;
+        }
+        Board root = position.copy();
+        stopFlag = new AtomicBoolean();
+        AtomicBoolean stop = stopFlag;
+
+        Search main = new Search(utils, table, stop);
+        main.setListener(this::printInfo);
+        main.setOptions(options);
+        main.setHistory(history);
+
+        searchThread = new Thread(() -> {
+            // helper threads share table and stop flag; only the main search reports
+            List<Thread> helpers = new ArrayList<>();
+            for (int i = 1; i < threads; i++) {
+                Search helper = new Search(utils, table, stop);
+                helper.setOptions(options);
+                helper.setHistory(history);
+                helper.setStartDepth(1 + i % 2);
+                Board helperRoot = root.copy();
+                Thread t = new Thread(() -> helper.search(helperRoot, new SearchLimits().setDepth(limits.getDepth())),
+                        "search-helper-" + i);
+                t.setDaemon(true);
+                t.start();
+                helpers.add(t);
+            }
+
+            SearchResult result = main.search(root, limits);
+            stop.set(true);
+            for (Thread t : helpers) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (result.getStatistics() != null) {
+                out.println("info string " + result.getStatistics());
+            }
+            BitBoardUtils.MovePair best = result.getBestMove();
+            out.println("bestmove " + (best == null ? "(none)" : best.toMove().toAlgebraic()));
+            out.flush();
+        }, "search-main");
+        searchThread.start();
+    }
+
+    /**
+     * Runs {@link MonteCarloSearch} with the configured number of threads; "nodes" are playouts. The stop
+     * command reaches it through the stop flag, which its workers poll.
+     */
+    private void startMonteCarloSearch(SearchLimits limits) {
+        if (mcts == null) {
+            mcts = new MonteCarloSearch(utils, 1 << 20);
+        }
+        MonteCarloSearch search = mcts;
+        search.setThreads(threads);
+        if (limits.getMoveTimeMs() == 0 && limits.getNodes() == 0 && !infinite) {
+            limits.setNodes(10_000L * limits.getDepth());  // MCTS has no depth: scale the playouts instead
+        }
+        Board root = position.copy();
+        stopFlag = new AtomicBoolean();
+        AtomicBoolean stop = stopFlag;
+
+        searchThread = new Thread(() -> {
+            SearchResult result = search.search(root, limits, stop);
+            printInfo(result.getDepth(), result.getScore(), result.getNodes(), result.getTimeMs(), result.getPv());
+            BitBoardUtils.MovePair best = result.getBestMove();
+            out.println("bestmove " + (best == null ? "(none)" : best.toMove().toAlgebraic()));
+            out.flush();
+        }, "search-main");
+        searchThread.start();
+    }
+
+    /**
+     * "cp n", or "mate n" in moves (negative when we get mated) for win / loss scores.
+     */
+    static String formatScore(int score) {
+        int plies = Search.pliesToWin(score);
+        if (plies == 0) {
+            return "cp " + score;
+        }
+        return "mate " + (plies > 0 ? (plies + 1) / 2 : -(-plies + 1) / 2);
+    }
+
+    private void printInfo(int depth, int score, long nodes, long timeMs, List<BitBoardUtils.MovePair> pv) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("info depth ").append(depth)
+                .append(" score ").append(formatScore(score))
+                .append(" nodes ").append(nodes)
+                .append(" nps ").append(timeMs > 0 ? nodes * 1000 / timeMs : nodes * 1000)
+                .append(" time ").append(timeMs)
+                .append(" pv");
+        for (BitBoardUtils.MovePair m : pv) {
+            sb.append(' ').append(m.toMove().toAlgebraic());
+        }
+        out.println(sb);
+        out.flush();
+    }
+
+    private void stopSearch() {
+        stopFlag.set(true);
+    }
+
+    private void waitForSearch() throws InterruptedException {
+        if (searchThread != null) {
+            searchThread.join();
+            searchThread = null;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Everything the engine learns during one game, kept from move to move: the precomputed move tables
+ * ({@link BitBoardUtils}), the transposition table, the {@link Search} with its killer and history tables,
+ * the positions played so far and the principal variation of the last search.
+ *
+ * <p>The moves come from one of two engines, selectable at runtime ({@link #setEngine(EngineType)}, default
+ * from the system property <code>engine.type</code>): iterative-deepening alpha-beta ({@link Search}) or
+ * Monte Carlo tree search ({@link MonteCarloSearch}).</p>
+ *
+ * <p>Before the main search {@link #pickMove(Board)} plays a winning move at once ({@link Threats}) and
+ * gives the proof-number solver a small node budget; a proven forced win is played at once, too.</p>
+ *
+ * <p>With the system property <code>engine.hashFile</code> the default session uses an off-heap table of
+ * <code>engine.hashMb</code> megabytes ({@link OffHeapTranspositionTable}) that is loaded from that file at
+ * startup and written back by {@link #saveTable()}.</p>
+ *
+ * <p>With a {@link GameRecorder} ({@link #setRecorder(GameRecorder)}) the session's messages go to the game
+ * record instead of the console, so nothing is printed on the thread that has to send the move.</p>
+ *
+ * <p>If the opponent answers with the move our last principal variation expected, the next search starts
+ * with the continuation of that variation (in addition to whatever the table still knows).</p>
+ */
+public final class EngineSession {
+
+    public static final int DEFAULT_HASH_MB = 16;
+    public static final long DEFAULT_MOVE_TIME_MS = 1000;
+    public static final String ENGINE_PROPERTY = "engine.type";
+    public static final String HASH_FILE_PROPERTY = "engine.hashFile";
+    public static final String HASH_MB_PROPERTY = "engine.hashMb";
+    private static final int MCTS_NODES = 1 << 19;
+    public static final long DEFAULT_SOLVER_NODES = 50_000;
+    private static final int SOLVER_HASH_MB = 4;
+    private static final int SOLVER_TIME_SHARE = 2;        // the solver may use at most 1/2 of the move time
+
+    public enum EngineType {
+        ALPHA_BETA, MCTS;
+
+        /**
+         * Accepts the protocol's spelling ("alphabeta", "mcts") as well as the constant names, in any case.
+         */
+        public static EngineType parse(String name) {
+            return switch (name.trim().toLowerCase()) {
+                case "alphabeta", "alpha_beta" -> ALPHA_BETA;
+                case "mcts" -> MCTS;
+                default -> throw new IllegalArgumentException("unknown engine: " + name);
+            };
+        }
+    }
+
+    private final BitBoardUtils utils;
+    private final SearchTable table;
+    private final Path tableFile;                          // null: the table is not persisted
+    private final Search search;
+    private final PositionHistory history = new PositionHistory();
+    private final long moveTimeMs;
+    private EngineType engine = engineFromProperty();
+    private MonteCarloSearch mcts;                         // created on first use
+    private ProofNumberSearch solver;                      // created on first use
+    private long solverNodes = DEFAULT_SOLVER_NODES;
+    private int threads = 1;
+    private GameRecorder recorder;                         // null: messages go to the console
+    private SearchResult lastResult;
+
+    private List<BitBoardUtils.MovePair> lastPv = List.of();
+    private long expectedKey;          // position after our last move and the expected reply
+    private int expectedMove;          // our planned answer to it
+
+    public EngineSession() {
+        this(new BitBoardUtils(), defaultTable(), DEFAULT_MOVE_TIME_MS, hashFile());
+    }
+
+    public EngineSession(BitBoardUtils utils, int hashMb, long moveTimeMs) {
+        this(utils, new TranspositionTable(hashMb), moveTimeMs, null);
+    }
+
+    /**
+     * @param tableFile where {@link #saveTable()} writes an {@link OffHeapTranspositionTable}, or null
+     */
+    public EngineSession(BitBoardUtils utils, SearchTable table, long moveTimeMs, Path tableFile) {
+        this.utils = utils;
+        this.table = table;
+        this.search = new Search(utils, table);
+        this.moveTimeMs = moveTimeMs;
+        this.tableFile = tableFile;
+        search.setHistory(history);
+    }
+
+    private static EngineType engineFromProperty() {
+        String name = System.getProperty(ENGINE_PROPERTY);
+        if (name == null) {
+            return EngineType.ALPHA_BETA;
+        }
+        try {
+            return EngineType.parse(name);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + ", using alphabeta");
+            return EngineType.ALPHA_BETA;
+        }
+    }
+
+    private static Path hashFile() {
+        String file = System.getProperty(HASH_FILE_PROPERTY);
+        return file == null ? null : Paths.get(file);
+    }
+
+    private static SearchTable defaultTable() {
+        Path file = hashFile();
+        if (file == null) {
+            return new TranspositionTable(DEFAULT_HASH_MB);
+        }
+        OffHeapTranspositionTable table = new OffHeapTranspositionTable(Integer.getInteger(HASH_MB_PROPERTY, DEFAULT_HASH_MB));
+        try {
+            if (table.load(file)) {
+                System.out.println("Hash table loaded from " + file);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not load hash table: " + e.getMessage());
+        }
+        return table;
+    }
+
+    /**
+     * Writes an off-heap table to its file (see {@link #HASH_FILE_PROPERTY}), e.g. at the end of a game; does
+     * nothing for a session without one. No search may run meanwhile.
+     */
+    public void saveTable() throws IOException {
+        if (tableFile != null && table instanceof OffHeapTranspositionTable) {
+            ((OffHeapTranspositionTable) table).save(tableFile);
+        }
+    }
+
+    public EngineType getEngine() {
+        return engine;
+    }
+
+    public void setEngine(EngineType engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Worker threads of the Monte Carlo search (the alpha-beta search of a session is single-threaded).
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Node budget of the proof-number solver in {@link #pickMove(Board)}; 0 switches it off.
+     */
+    public void setSolverNodes(long solverNodes) {
+        this.solverNodes = Math.max(0, solverNodes);
+    }
+
+    /**
+     * Sends the session's messages to {@code recorder} (null: back to the console).
+     */
+    public void setRecorder(GameRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Forgets everything learned, for a new game with the same session; a persisted table is kept, since
+     * its entries stay valid from game to game.
+     */
+    public void newGame() {
+        if (tableFile == null) {
+            table.clear();
+        }
+        search.clearHistory();
+        if (solver != null) {
+            solver.clear();
+        }
+        history.clear();
+        lastPv = List.of();
+        lastResult = null;
+        expectedKey = 0;
+        expectedMove = 0;
+    }
+
+    /**
+     * Appends a position of the game to the history unless it is the one recorded last.
+     */
+    public void record(Board board) {
+        long key = board.hashKey();
+        if (history.last() != key) {
+            history.push(key);
+        }
+    }
+
+    /**
+     * Searches {@code board} for the session's move time and remembers the result for the next move.
+     */
+    public BitBoardUtils.MovePair pickMove(Board board) {
+        return pickMove(board, history);
+    }
+
+    /**
+     * @param gameHistory positions played before {@code board}, in place of the session's own history
+     */
+    BitBoardUtils.MovePair pickMove(Board board, PositionHistory gameHistory) {
+        int win = Threats.winningMove(board);
+        if (win != 0) {                                      // no search needed: the game ends with this move
+            BitBoardUtils.MovePair move = BitBoardUtils.MovePair.fromInt(win);
+            if (gameHistory == history) {
+                record(board);
+            }
+            remember(board, List.of(move));
+            lastResult = new SearchResult(move, Search.WIN - 1, 1, 0, 0, List.of(move), List.of());
+            report("Win in one: " + move);
+            return move;
+        }
+        long start = System.nanoTime();
+        BitBoardUtils.MovePair proven = solve(board);
+        long solverMs = (System.nanoTime() - start) / 1_000_000L;
+        if (proven != null) {
+            if (gameHistory == history) {
+                record(board);
+            }
+            remember(board, List.of(proven));
+            // the solver proves a win within its horizon, not its length: score the longest such win
+            lastResult = new SearchResult(proven, Search.WIN - ProofNumberSearch.MAX_DEPTH, 0, solver.getNodes(), 0,
+                    List.of(proven), List.of());
+            report("Forced win proven (" + solver.getNodes() + " nodes): " + proven);
+            return proven;
+        }
+        // the solver's time comes out of the same budget
+        SearchResult result = search(board, gameHistory, SearchLimits.moveTime(Math.max(1, moveTimeMs - solverMs)));
+        lastResult = result;
+        if (recorder == null) {                              // the game record has these in its MOVE line
+            System.out.println("Time: " + result.getTimeMs() + "ms, depth " + result.getDepth());
+            System.out.println("Bewertete Zustände:" + result.getNodes());
+        }
+        return result.getBestMove();
+    }
+
+    public SearchResult search(Board board, SearchLimits limits) {
+        return search(board, history, limits);
+    }
+
+    /**
+     * @param gameHistory positions played before {@code board}, in place of the session's own history
+     */
+    SearchResult search(Board board, PositionHistory gameHistory, SearchLimits limits) {
+        if (gameHistory == history) {
+            record(board);
+        }
+        if (engine == EngineType.MCTS) {
+            if (mcts == null) {
+                mcts = new MonteCarloSearch(utils, MCTS_NODES);
+            }
+            mcts.setThreads(threads);
+            SearchResult result = mcts.search(board, limits);
+            remember(board, result.getPv());
+            return result;
+        }
+        if (expectedMove != 0 && board.hashKey() == expectedKey) {
+            search.setRootHint(expectedMove);                // the opponent played the predicted reply
+        }
+        search.setHistory(gameHistory);
+        SearchResult result = search.search(board, limits);
+        search.setHistory(history);
+        remember(board, result.getPv());
+        return result;
+    }
+
+    /**
+     * Runs the proof-number solver within {@link #setSolverNodes(long)} and half the move time.
+     *
+     * @return a move that forces a win, or null if none was proven
+     */
+    BitBoardUtils.MovePair solve(Board board) {
+        if (solverNodes == 0 || board.getCurrentPlayer() == null) {
+            return null;
+        }
+        if (solver == null) {
+            solver = new ProofNumberSearch(utils, SOLVER_HASH_MB);
+        }
+        ProofNumberSearch.Status status = solver.solve(board, solverNodes, moveTimeMs / SOLVER_TIME_SHARE);
+        return status == ProofNumberSearch.Status.PROVEN ? solver.getBestMove() : null;
+    }
+
+    private void report(String message) {
+        if (recorder != null) {
+            recorder.info(message);
+        } else {
+            System.out.println(message);
+        }
+    }
+
+    private void remember(Board root, List<BitBoardUtils.MovePair> pv) {
+        lastPv = pv;
+        expectedKey = 0;
+        expectedMove = 0;
+        if (pv.size() >= 3) {
+            Board b = root.copy();
+            BitBoardUtils.makeMove(pv.get(0).toInt(), b);
+            BitBoardUtils.makeMove(pv.get(1).toInt(), b);
+            expectedKey = b.hashKey();
+            expectedMove = pv.get(2).toInt();
+        }
+    }
+
+    /**
+     * @return principal variation of the last search, starting with the move that was played
+     */
+    public List<BitBoardUtils.MovePair> getLastPv() {
+        return lastPv;
+    }
+
+    /**
+     * @return result of the last {@link #pickMove(Board)} (for a proven win: depth 0, solver nodes and the score
+     *         of a win in {@link ProofNumberSearch#MAX_DEPTH} plies, the solver's horizon), null before the first one
+     */
+    public SearchResult getLastResult() {
+        return lastResult;
+    }
+
+    public BitBoardUtils getUtils() {
+        return utils;
+    }
+
+    public SearchTable getTable() {
+        return table;
+    }
+
+    public PositionHistory getHistory() {
+        return history;
+    }
+
+    /* ---------- reference searches ------------------------------------------- */
+
+    /**
+     * Plain minimax with the session's move tables (see {@link BitBoardUtils#minimax(BitBoardUtils, Board, int, boolean, AtomicInteger)}).
+     */
+    public int minimax(Board board, int depth, boolean maximizingPlayer, AtomicInteger stateCounter) {
+        return BitBoardUtils.minimax(utils, board, depth, maximizingPlayer, stateCounter);
+    }
+
+    /**
+     * Time-limited alpha-beta with the session's move tables.
+     */
+    public int minimaxAlphaBeta(Board root, long timeLimitMs, AtomicInteger stateCounter) {
+        return BitBoardUtils.minimaxAlphaBeta(utils, root, timeLimitMs, stateCounter);
+    }
+}
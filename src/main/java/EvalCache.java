@@ -0,0 +1,57 @@
+import java.util.Arrays;
+
+/**
+ * Direct-mapped cache of static evaluations keyed by {@link Board#hashKey()}, so positions that the search
+ * reaches again through other move orders (mostly at the horizon) are not evaluated again.
+ *
+ * <p>One long per entry: the upper 32 bits of the key as check, the score in the lower 32 bits. A lookup
+ * is a single array read, and because an entry is written as a whole, threads may share a cache without
+ * locks (a torn or overwritten entry just fails the check). The evaluation weights are fixed for the
+ * lifetime of the JVM, so entries never go stale.</p>
+ */
+public final class EvalCache {
+
+    /** Returned by {@link #probe(long)} on a miss; no evaluation comes anywhere near it. */
+    public static final int MISS = Integer.MIN_VALUE;
+    public static final int DEFAULT_ENTRIES = 1 << 16;   // 512 KB, fits the L2 cache
+
+    private static final long CHECK_MASK = 0xFFFFFFFF_00000000L;
+    private static final long EMPTY = CHECK_MASK | (MISS & 0xFFFFFFFFL);   // what an unused entry holds
+
+    private final long[] entries;
+    private final int mask;
+
+    /**
+     * @param entries number of entries, rounded down to a power of two
+     */
+    public EvalCache(int entries) {
+        int size = Integer.highestOneBit(Math.max(1, entries));
+        this.entries = new long[size];
+        this.mask = size - 1;
+        clear();
+    }
+
+    public EvalCache() {
+        this(DEFAULT_ENTRIES);
+    }
+
+    /**
+     * @return the stored score of the position with this key, or {@link #MISS}
+     */
+    public int probe(long key) {
+        long e = entries[(int) key & mask];
+        return ((e ^ key) & CHECK_MASK) == 0 ? (int) e : MISS;
+    }
+
+    public void store(long key, int score) {
+        entries[(int) key & mask] = (key & CHECK_MASK) | (score & 0xFFFFFFFFL);
+    }
+
+    public void clear() {
+        Arrays.fill(entries, EMPTY);
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+}
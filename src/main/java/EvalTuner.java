@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Texel-style tuner for the {@link Evaluation} weights.
+ *
+ * <p>Loads labelled positions from a {@link PositionCorpus} and minimises the mean squared error between
+ * the label and {@code sigmoid(K * evaluate(position))}. Labels are the game result (1 red win, ½ draw,
+ * 0 blue win), a deep-search score mapped through the same sigmoid, or a mix of both.</p>
+ *
+ * <p>The features of all positions are extracted once into feature-major primitive arrays; every iteration
+ * then is one parallel pass over these arrays (split into chunks on a fork/join pool) that computes the
+ * error and its gradient, followed by an Adam step. The rounded weights are written as a properties file
+ * that {@link Evaluation} loads at startup when it is named with <code>-Dengine.weights=...</code>.</p>
+ *
+ * <pre>
+ * usage: EvalTuner corpus.bin [out=eval-weights.properties] [label=result|score|mix] [lambda=0.5]
+ *                             [iterations=1000] [threads=N] [k=...]
+ * </pre>
+ */
+public final class EvalTuner {
+
+    /** Sigmoid scale used to turn search scores into expected results (100 = one piece ≈ 62 %). */
+    static final double SCORE_SCALE = 0.005;
+
+    private static final int CHUNK = 1 << 16;
+    private static final double LEARNING_RATE = 1.0;
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+    private static final double EPSILON = 1e-8;
+
+    public enum Label { RESULT, SCORE, MIX }
+
+    private final short[][] features;     // features[f][position]
+    private final float[] targets;
+    private final int size;
+    private final ForkJoinPool pool;
+
+    EvalTuner(short[][] features, float[] targets, int size, ForkJoinPool pool) {
+        this.features = features;
+        this.targets = targets;
+        this.size = size;
+        this.pool = pool;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: EvalTuner corpus.bin [out=...] [label=result|score|mix] [lambda=0.5] [iterations=1000] [threads=N] [k=...]");
+            return;
+        }
+        Path corpusFile = Paths.get(args[0]);
+        Path out = Paths.get(Evaluation.DEFAULT_WEIGHTS_FILE);
+        Label label = Label.RESULT;
+        double lambda = 0.5;
+        int iterations = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double k = 0;
+        for (int i = 1; i < args.length; i++) {
+            String[] kv = args[i].split("=", 2);
+            switch (kv[0]) {
+                case "out" -> out = Paths.get(kv[1]);
+                case "label" -> label = Label.valueOf(kv[1].toUpperCase());
+                case "lambda" -> lambda = Double.parseDouble(kv[1]);
+                case "iterations" -> iterations = Integer.parseInt(kv[1]);
+                case "threads" -> threads = Integer.parseInt(kv[1]);
+                case "k" -> k = Double.parseDouble(kv[1]);
+                default -> throw new IllegalArgumentException("unknown argument " + args[i]);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        EvalTuner tuner;
+        try (PositionCorpus corpus = new PositionCorpus(corpusFile)) {
+            tuner = load(corpus, label, lambda, pool);
+        }
+        System.out.printf("Loaded %d labelled positions in %d ms%n", tuner.size(), (System.nanoTime() - start) / 1_000_000);
+        if (tuner.size() == 0) {
+            System.err.println("No positions with the requested label in " + corpusFile);
+            return;
+        }
+
+        double[] weights = toDouble(Evaluation.weights());
+        if (k <= 0) {
+            k = label == Label.SCORE ? SCORE_SCALE : tuner.fitScale(weights);
+        }
+        System.out.printf("K = %.6f, start error %.6f%n", k, tuner.error(weights, k));
+
+        int[] tuned = tuner.tune(weights, k, iterations, true);
+        Evaluation.writeWeights(out, tuned, "tuned on " + tuner.size() + " positions from " + corpusFile.getFileName()
+                + ", label " + label.name().toLowerCase() + ", K " + k);
+        System.out.printf("Final error %.6f, weights %s written to %s (%d s)%n", tuner.error(toDouble(tuned), k),
+                Arrays.toString(tuned), out, (System.nanoTime() - start) / 1_000_000_000L);
+        pool.shutdown();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /* =================================================================================================================
+                                              │ loading │
+       ===============================================================================================================*/
+
+    /**
+     * Extracts features and labels of all corpus records that carry the requested label. Runs in two parallel
+     * passes: count usable records per chunk, then fill the arrays at the prefix-sum offsets.
+     */
+    static EvalTuner load(PositionCorpus corpus, Label label, double lambda, ForkJoinPool pool) {
+        int required = requiredFlags(label);
+        int chunks = (int) ((corpus.size() + CHUNK - 1) / CHUNK);
+
+        int[] counts = invoke(pool, () -> IntStream.range(0, chunks).parallel().map(c -> {
+            int n = 0;
+            for (long i = (long) c * CHUNK, end = Math.min(corpus.size(), i + CHUNK); i < end; i++) {
+                if ((corpus.flags(i) & required) == required) n++;
+            }
+            return n;
+        }).toArray());
+        int[] offsets = new int[chunks + 1];
+        for (int c = 0; c < chunks; c++) {
+            offsets[c + 1] = offsets[c] + counts[c];
+        }
+        int size = offsets[chunks];
+
+        short[][] features = new short[Evaluation.FEATURE_COUNT][size];
+        float[] targets = new float[size];
+        invoke(pool, () -> {
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int[] f = new int[Evaluation.FEATURE_COUNT];
+                int n = offsets[c];
+                PositionCorpus.Cursor cursor = corpus.cursor((long) c * CHUNK, (long) (c + 1) * CHUNK);
+                while (cursor.next()) {
+                    int flags = cursor.flags();
+                    if ((flags & required) != required) continue;
+                    Board board = cursor.board();
+                    Evaluation.features(board, f);
+                    for (int j = 0; j < f.length; j++) {
+                        features[j][n] = (short) f[j];
+                    }
+                    targets[n] = (float) target(label, lambda, board, flags, cursor.score());
+                    n++;
+                }
+            });
+            return null;
+        });
+        return new EvalTuner(features, targets, size, pool);
+    }
+
+    private static int requiredFlags(Label label) {
+        return switch (label) {
+            case RESULT -> PositionCodec.FLAG_RESULT;
+            case SCORE -> PositionCodec.FLAG_SCORE;
+            case MIX -> PositionCodec.FLAG_RESULT | PositionCodec.FLAG_SCORE;
+        };
+    }
+
+    /**
+     * @return expected result for red in [0, 1]
+     */
+    private static double target(Label label, double lambda, Board board, int flags, int score) {
+        double result = PositionCodec.resultOf(flags) / 2.0;
+        int redScore = board.getCurrentPlayer() == Player.RED ? score : -score;
+        double fromScore = sigmoid(SCORE_SCALE * redScore);
+        return switch (label) {
+            case RESULT -> result;
+            case SCORE -> fromScore;
+            case MIX -> lambda * result + (1 - lambda) * fromScore;
+        };
+    }
+
+    /* =================================================================================================================
+                                              │ optimisation │
+       ===============================================================================================================*/
+
+    /**
+     * Runs Adam on the mean squared error.
+     *
+     * @return the tuned weights, rounded
+     */
+    int[] tune(double[] start, double k, int iterations, boolean verbose) {
+        int n = start.length;
+        double[] w = start.clone();
+        double[] m = new double[n];
+        double[] v = new double[n];
+        for (int t = 1; t <= iterations; t++) {
+            double[] g = errorAndGradient(w, k);
+            for (int j = 0; j < n; j++) {
+                m[j] = BETA1 * m[j] + (1 - BETA1) * g[j];
+                v[j] = BETA2 * v[j] + (1 - BETA2) * g[j] * g[j];
+                double mHat = m[j] / (1 - Math.pow(BETA1, t));
+                double vHat = v[j] / (1 - Math.pow(BETA2, t));
+                w[j] -= LEARNING_RATE * mHat / (Math.sqrt(vHat) + EPSILON);
+            }
+            if (verbose && (t % 100 == 0 || t == iterations)) {
+                System.out.printf("iteration %5d: error %.6f%n", t, g[n]);
+            }
+        }
+        int[] rounded = new int[n];
+        for (int j = 0; j < n; j++) {
+            rounded[j] = (int) Math.round(w[j]);
+        }
+        return rounded;
+    }
+
+    /**
+     * Golden-section search for the sigmoid scale K that fits the current weights best.
+     */
+    double fitScale(double[] weights) {
+        double lo = 1e-5;
+        double hi = 0.1;
+        double phi = (Math.sqrt(5) - 1) / 2;
+        for (int i = 0; i < 40; i++) {
+            double a = hi - phi * (hi - lo);
+            double b = lo + phi * (hi - lo);
+            if (error(weights, a) < error(weights, b)) {
+                hi = b;
+            } else {
+                lo = a;
+            }
+        }
+        return (lo + hi) / 2;
+    }
+
+    double error(double[] weights, double k) {
+        return errorAndGradient(weights, k)[weights.length];
+    }
+
+    /**
+     * One parallel pass over all positions.
+     *
+     * @return gradient of the mean squared error in slots 0..n-1, the error itself in slot n
+     */
+    double[] errorAndGradient(double[] weights, double k) {
+        int n = weights.length;
+        int chunks = (size + CHUNK - 1) / CHUNK;
+        double[] sum = invoke(pool, () -> IntStream.range(0, chunks).parallel()
+                .mapToObj(c -> chunkGradient(weights, k, c * CHUNK, Math.min(size, (c + 1) * CHUNK)))
+                .reduce(new double[n + 1], EvalTuner::add));
+        double[] result = new double[n + 1];
+        for (int j = 0; j < n; j++) {
+            result[j] = 2 * sum[j] / size;
+        }
+        result[n] = sum[n] / size;
+        return result;
+    }
+
+    private double[] chunkGradient(double[] w, double k, int from, int to) {
+        int n = w.length;
+        double[] g = new double[n + 1];
+        for (int i = from; i < to; i++) {
+            double eval = 0;
+            for (int j = 0; j < n; j++) {
+                eval += w[j] * features[j][i];
+            }
+            double s = sigmoid(k * eval);
+            double d = s - targets[i];
+            g[n] += d * d;
+            double common = d * s * (1 - s) * k;
+            for (int j = 0; j < n; j++) {
+                g[j] += common * features[j][i];
+            }
+        }
+        return g;
+    }
+
+    /* ---------- helpers ------------------------------------------------------ */
+
+    private static double[] add(double[] a, double[] b) {
+        double[] r = new double[a.length];
+        for (int i = 0; i < a.length; i++) r[i] = a[i] + b[i];
+        return r;
+    }
+
+    static double sigmoid(double x) {
+        return 1.0 / (1.0 + Math.exp(-x));
+    }
+
+    private static double[] toDouble(int[] values) {
+        double[] d = new double[values.length];
+        for (int i = 0; i < values.length; i++) d[i] = values[i];
+        return d;
+    }
+
+    private static <T> T invoke(ForkJoinPool pool, java.util.concurrent.Callable<T> task) {
+        try {
+            return pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("tuning interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("tuning failed", e.getCause());
+        }
+    }
+}
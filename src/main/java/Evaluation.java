@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Static evaluation as a weighted sum of simple bitboard features (point of view: red minus blue).
+ *
+ * <p>Tuned weights (as written by {@link EvalTuner}) are read once at startup, and only from the file named
+ * explicitly by the system property <code>engine.weights</code>, so a file lying around in the working
+ * directory never changes how the engine plays. Without it only material counts, with 100 per piece.</p>
+ */
+public final class Evaluation {
+
+    /* ---------- features ----------------------------------------------------- */
+    public static final int MATERIAL = 0;        // pieces (all tower levels + guard)
+    public static final int GUARD_DISTANCE = 1;  // enemy guard's steps to our castle minus ours to theirs (GuardRace)
+    public static final int TOWERS = 2;          // occupied tower squares
+    public static final int STACKED = 3;         // pieces above the first level
+    public static final int GUARD_SHIELD = 4;    // own pieces orthogonally next to the own guard
+    public static final int CENTER = 5;          // tower squares in the central 3x3
+    public static final int ADVANCE = 6;         // tower squares in the enemy half
+    public static final int FEATURE_COUNT = 7;
+
+    static final String[] FEATURE_NAMES = {
+            "material", "guardDistance", "towers", "stacked", "guardShield", "center", "advance"
+    };
+    static final int[] DEFAULT_WEIGHTS = {100, 0, 0, 0, 0, 0, 0};
+
+    public static final String WEIGHTS_PROPERTY = "engine.weights";
+    public static final String DEFAULT_WEIGHTS_FILE = "eval-weights.properties";   // EvalTuner's default output
+
+    /* ---------- board geometry (index = row * 7 + col, row 0 = blue's home rank) ---- */
+    static final int RED_CASTLE = 45;              // red guard start, blue's target
+    static final int BLUE_CASTLE = 3;              // blue guard start, red's target
+    static final long FULL = (1L << 49) - 1;
+    static final long COL_0 = 0x0040810204081L;                    // squares 0, 7, ..., 42
+    static final long COL_6 = COL_0 << 6;
+    static final long CENTER_MASK = 0x1C3870000L;                  // cols 2-4 of rows 2-4
+    static final long BLUE_HALF = (1L << 21) - 1;                  // rows 0-2
+    static final long RED_HALF = FULL & ~((1L << 28) - 1);         // rows 4-6
+    static final int NO_GUARD_DISTANCE = 12;
+
+    private static final int[] WEIGHTS = loadWeights();
+
+    private Evaluation() {
+    }
+
+    /**
+     * @return score of the position, positive if red is better
+     */
+    public static int evaluate(Board board) {
+        // terms with weight 0 are skipped: with the default weights no leaf pays for the guard flood fills
+        int[] w = WEIGHTS;
+        int score = 0;
+        if (w[MATERIAL] != 0) score += w[MATERIAL] * material(board);
+        if (w[GUARD_DISTANCE] != 0) score += w[GUARD_DISTANCE] * guardDistance(board);
+        if (w[TOWERS] != 0) score += w[TOWERS] * towers(board);
+        if (w[STACKED] != 0) score += w[STACKED] * stacked(board);
+        if (w[GUARD_SHIELD] != 0) score += w[GUARD_SHIELD] * guardShield(board);
+        if (w[CENTER] != 0) score += w[CENTER] * center(board);
+        if (w[ADVANCE] != 0) score += w[ADVANCE] * advance(board);
+        return score;
+    }
+
+    /**
+     * Writes the feature values (red minus blue) of {@code board} into {@code out}, so that
+     * {@link #evaluate(Board)} equals the dot product with {@link #weights()}.
+     */
+    public static void features(Board board, int[] out) {
+        out[MATERIAL] = material(board);
+        out[GUARD_DISTANCE] = guardDistance(board);
+        out[TOWERS] = towers(board);
+        out[STACKED] = stacked(board);
+        out[GUARD_SHIELD] = guardShield(board);
+        out[CENTER] = center(board);
+        out[ADVANCE] = advance(board);
+    }
+
+    /**
+     * @return copy of the weights in use
+     */
+    public static int[] weights() {
+        return WEIGHTS.clone();
+    }
+
+    /* ---------- feature terms ------------------------------------------------ */
+
+    static int material(Board b) {
+        int red = 0;
+        int blue = 0;
+        for (int i = 0; i < 7; i++) {
+            long s = b.getStack(i);
+            red += Long.bitCount(s & b.getRed());
+            blue += Long.bitCount(s & b.getBlue());
+        }
+        return red - blue;
+    }
+
+    static int guardDistance(Board b) {
+        return GuardRace.castleDistance(b.getGuards() & b.getBlue(), b.getBlue(), RED_CASTLE)
+                - GuardRace.castleDistance(b.getGuards() & b.getRed(), b.getRed(), BLUE_CASTLE);
+    }
+
+    static int towers(Board b) {
+        long towers = b.getStack(0) & ~b.getGuards();
+        return Long.bitCount(towers & b.getRed()) - Long.bitCount(towers & b.getBlue());
+    }
+
+    static int stacked(Board b) {
+        int red = 0;
+        int blue = 0;
+        for (int i = 1; i < 7; i++) {
+            long s = b.getStack(i);
+            red += Long.bitCount(s & b.getRed());
+            blue += Long.bitCount(s & b.getBlue());
+        }
+        return red - blue;
+    }
+
+    static int guardShield(Board b) {
+        long redTowers = b.getRed() & ~b.getGuards();
+        long blueTowers = b.getBlue() & ~b.getGuards();
+        return Long.bitCount(neighbours(b.getGuards() & b.getRed()) & redTowers)
+                - Long.bitCount(neighbours(b.getGuards() & b.getBlue()) & blueTowers);
+    }
+
+    static int center(Board b) {
+        long towers = b.getStack(0) & ~b.getGuards() & CENTER_MASK;
+        return Long.bitCount(towers & b.getRed()) - Long.bitCount(towers & b.getBlue());
+    }
+
+    static int advance(Board b) {
+        long towers = b.getStack(0) & ~b.getGuards();
+        return Long.bitCount(towers & b.getRed() & BLUE_HALF) - Long.bitCount(towers & b.getBlue() & RED_HALF);
+    }
+
+    /**
+     * Orthogonal neighbour squares of all set bits (no wrap-around between files).
+     */
+    static long neighbours(long bits) {
+        return ((bits << 7) | (bits >>> 7) | ((bits & ~COL_6) << 1) | ((bits & ~COL_0) >>> 1)) & FULL;
+    }
+
+    /* ---------- weights file ------------------------------------------------- */
+
+    private static int[] loadWeights() {
+        String name = System.getProperty(WEIGHTS_PROPERTY);
+        if (name == null || name.isBlank()) {
+            return DEFAULT_WEIGHTS.clone();
+        }
+        Path file = Paths.get(name);
+        if (!Files.isRegularFile(file)) {
+            System.err.println("Evaluation weights file " + file + " not found, using defaults");
+            return DEFAULT_WEIGHTS.clone();
+        }
+        try {
+            return readWeights(file);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Could not read evaluation weights from " + file + ", using defaults: " + e.getMessage());
+            return DEFAULT_WEIGHTS.clone();
+        }
+    }
+
+    /**
+     * Reads a weights file; features missing in the file keep their default weight.
+     */
+    static int[] readWeights(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        int[] weights = DEFAULT_WEIGHTS.clone();
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            String value = properties.getProperty(FEATURE_NAMES[i]);
+            if (value != null) {
+                weights[i] = Integer.parseInt(value.trim());
+            }
+        }
+        return weights;
+    }
+
+    static void writeWeights(Path file, int[] weights, String comment) throws IOException {
+        Properties properties = new Properties();
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            properties.setProperty(FEATURE_NAMES[i], Integer.toString(weights[i]));
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, comment);
+        }
+    }
+}
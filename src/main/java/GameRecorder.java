@@ -0,0 +1,354 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Game record of every production game, written off the move thread.
+ *
+ * <p>Callers only copy a few fields (and the board planes) into a preallocated slot of a lock-free ring
+ * buffer; a background thread formats the records and writes them. Recording never blocks and allocates
+ * nothing: if the buffer is full the record is dropped and counted ({@link #getDropped()}).</p>
+ *
+ * <p>One tab-separated line per record, starting with kind and wall clock (ms):</p>
+ * <pre>
+ * START  time  text
+ * POS    time  fen  move-that-led-here|-  clock-ms
+ * MOVE   time  fen  move  score  depth  nodes  search-ms  clock-ms
+ * INFO   time  text
+ * END    time  text
+ * </pre>
+ * <p>Every game starts a new file <code>game-yyyyMMdd-HHmmss-SSS.tsv</code> in the log directory; a file
+ * that grows beyond the size limit is continued in <code>…-2.tsv</code>, <code>…-3.tsv</code> and so on.</p>
+ */
+public final class GameRecorder implements Closeable {
+
+    public static final String LOG_DIR_PROPERTY = "engine.logDir";
+    public static final int DEFAULT_CAPACITY = 1 << 12;
+    public static final long DEFAULT_MAX_FILE_BYTES = 16L << 20;
+    private static final long IDLE_PARK_NANOS = 5_000_000;
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private static final int START = 0;
+    private static final int POS = 1;
+    private static final int MOVE = 2;
+    private static final int INFO = 3;
+    private static final int END = 4;
+    private static final String[] KIND_NAMES = {"START", "POS", "MOVE", "INFO", "END"};
+
+    /**
+     * One record; written by the producer that claimed it, read by the drain thread after {@code sequence}
+     * says it is published.
+     */
+    private static final class Slot {
+        volatile long sequence;
+        int kind;
+        long time;
+        final Board board = new Board();
+        int move;
+        int score;
+        int depth;
+        long nodes;
+        long searchMs;
+        long clockMs;
+        String text;
+    }
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final boolean echo;
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();    // next sequence to claim
+    private volatile long head;                          // next sequence to drain (drain thread only writes)
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread drainer;
+    private volatile boolean closed;
+
+    /* ---------- drain thread state ------------------------------------------ */
+    private BufferedWriter writer;
+    private String fileBase;
+    private int part;
+    private long fileBytes;
+    private IOException failure;
+    private final StringBuilder line = new StringBuilder(256);
+
+    /**
+     * @param directory    where the game files go (created if missing)
+     * @param capacity     records the buffer holds, rounded up to a power of two
+     * @param maxFileBytes size after which a game file is continued in the next part
+     * @param echo         also print every record to the console (from the drain thread)
+     */
+    public GameRecorder(Path directory, int capacity, long maxFileBytes, boolean echo) {
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.echo = echo;
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            slots[i].sequence = i;
+        }
+        this.mask = size - 1;
+        this.drainer = new Thread(this::drain, "game-recorder");
+        drainer.setDaemon(true);
+    }
+
+    /**
+     * Recorder in the directory of the system property {@value #LOG_DIR_PROPERTY} (default <code>games</code>),
+     * already started and echoing to the console.
+     */
+    public static GameRecorder open() {
+        GameRecorder recorder = new GameRecorder(Path.of(System.getProperty(LOG_DIR_PROPERTY, "games")),
+                DEFAULT_CAPACITY, DEFAULT_MAX_FILE_BYTES, true);
+        recorder.start();
+        return recorder;
+    }
+
+    /**
+     * Starts the drain thread; records made before are kept (as far as the buffer holds them).
+     */
+    public void start() {
+        drainer.start();
+    }
+
+    /* ---------- recording (any thread, never blocks) ------------------------- */
+
+    /**
+     * Begins a new game file.
+     */
+    public void startGame(String text) {
+        Slot s = claim();
+        if (s != null) {
+            s.kind = START;
+            s.text = text;
+            publish(s);
+        }
+    }
+
+    /**
+     * A new position from the server.
+     *
+     * @param move packed move that led to it, 0 if unknown
+     */
+    public void position(Board board, int move, long clockMs) {
+        Slot s = claim();
+        if (s != null) {
+            s.kind = POS;
+            s.board.copyFrom(board);
+            s.move = move;
+            s.clockMs = clockMs;
+            publish(s);
+        }
+    }
+
+    /**
+     * Our move in {@code board}, with the statistics of the search that chose it ({@code result} may be null).
+     */
+    public void move(Board board, BitBoardUtils.MovePair move, SearchResult result, long clockMs) {
+        Slot s = claim();
+        if (s != null) {
+            s.kind = MOVE;
+            s.board.copyFrom(board);
+            s.move = move == null ? 0 : move.toInt();
+            if (result != null) {
+                s.score = result.getScore();
+                s.depth = result.getDepth();
+                s.nodes = result.getNodes();
+                s.searchMs = result.getTimeMs();
+            }
+            s.clockMs = clockMs;
+            publish(s);
+        }
+    }
+
+    public void info(String text) {
+        Slot s = claim();
+        if (s != null) {
+            s.kind = INFO;
+            s.text = text;
+            publish(s);
+        }
+    }
+
+    /**
+     * Ends the current game and closes its file.
+     */
+    public void endGame(String text) {
+        Slot s = claim();
+        if (s != null) {
+            s.kind = END;
+            s.text = text;
+            publish(s);
+        }
+    }
+
+    /**
+     * @return records lost because the buffer was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes what is buffered, stops the drain thread and closes the file.
+     *
+     * @throws IOException the first write error of the drain thread, if any
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (drainer.isAlive()) {
+            LockSupport.unpark(drainer);
+            try {
+                drainer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            drain();                                     // never started: write the buffer on this thread
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /* ---------- ring buffer ---------------------------------------------------- */
+
+    /**
+     * Multi-producer claim: a slot is free for sequence n when its own sequence is n.
+     *
+     * @return the claimed slot, or null if the buffer is full
+     */
+    private Slot claim() {
+        while (true) {
+            long seq = tail.get();
+            Slot s = slots[(int) seq & mask];
+            long diff = s.sequence - seq;
+            if (diff == 0) {
+                if (tail.compareAndSet(seq, seq + 1)) {
+                    s.time = System.currentTimeMillis();
+                    return s;
+                }
+            } else if (diff < 0) {
+                dropped.incrementAndGet();               // not drained yet: full
+                return null;
+            }
+            // diff > 0: another producer took this sequence, retry with the new tail
+        }
+    }
+
+    private static void publish(Slot s) {
+        s.sequence = s.sequence + 1;                     // volatile write: makes the fields visible to the drain
+    }
+
+    private void drain() {
+        while (true) {
+            long seq = head;
+            Slot s = slots[(int) seq & mask];
+            if (s.sequence == seq + 1) {
+                write(s);
+                s.text = null;
+                s.score = 0;
+                s.depth = 0;
+                s.nodes = 0;
+                s.searchMs = 0;
+                s.sequence = seq + slots.length;         // free for the producer one lap later
+                head = seq + 1;
+            } else if (closed && tail.get() == seq) {
+                closeFile();
+                return;
+            } else {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /* ---------- formatting and files (drain thread) -------------------------- */
+
+    private void write(Slot s) {
+        line.setLength(0);
+        line.append(KIND_NAMES[s.kind]).append('\t').append(s.time);
+        switch (s.kind) {
+            case POS -> line.append('\t').append(s.board.toFen())
+                    .append('\t').append(s.move == 0 ? "-" : algebraic(s.move))
+                    .append('\t').append(s.clockMs);
+            case MOVE -> line.append('\t').append(s.board.toFen())
+                    .append('\t').append(s.move == 0 ? "-" : algebraic(s.move))
+                    .append('\t').append(s.score)
+                    .append('\t').append(s.depth)
+                    .append('\t').append(s.nodes)
+                    .append('\t').append(s.searchMs)
+                    .append('\t').append(s.clockMs);
+            default -> line.append('\t').append(s.text);
+        }
+        if (echo) {
+            System.out.println(line);
+        }
+        if (failure != null) {
+            return;
+        }
+        try {
+            if (s.kind == START || writer == null) {
+                openGame(s.time);
+            } else if (fileBytes >= maxFileBytes) {
+                openPart();
+            }
+            line.append('\n');
+            writer.append(line);
+            fileBytes += line.length();
+            if (s.kind == END) {
+                closeFile();
+            } else if (head + 1 == tail.get()) {
+                writer.flush();                          // idle: make the record visible on disk
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private static String algebraic(int move) {
+        return BitBoardUtils.MovePair.fromInt(move).toMove().toAlgebraic();
+    }
+
+    private void openGame(long time) throws IOException {
+        closeFile();
+        Files.createDirectories(directory);
+        String base = "game-" + LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()).format(FILE_TIME);
+        fileBase = base;
+        for (int n = 2; Files.exists(directory.resolve(fileBase + ".tsv")); n++) {
+            fileBase = base + "_" + n;                   // two games in the same millisecond
+        }
+        part = 0;
+        openPart();
+    }
+
+    private void openPart() throws IOException {
+        closeFile();
+        part++;
+        Path file = directory.resolve(part == 1 ? fileBase + ".tsv" : fileBase + "-" + part + ".tsv");
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        fileBytes = 0;
+    }
+
+    private void closeFile() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            writer = null;
+        }
+    }
+}
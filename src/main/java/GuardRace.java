@@ -0,0 +1,122 @@
+/**
+ * Bit-parallel flood fills over the 49-bit board masks for the guard race: how many steps a guard needs to
+ * the enemy castle or to any other square, and which squares a side can reach with its next move.
+ *
+ * <p>A fill step is {@link Evaluation#neighbours(long)} of the frontier, so a distance costs a few shifts per
+ * step instead of a queue-based BFS; everything here is branch-light and allocation-free, cheap enough for
+ * every node and leaf.</p>
+ */
+public final class GuardRace {
+
+    /** Distance of a guard that cannot reach its target (or does not exist). */
+    public static final int UNREACHABLE = 64;
+
+    private static final int MAX_HEIGHT = 7;            // stack levels of a Board
+    private static final long FULL = Evaluation.FULL;
+    private static final long NOT_COL_0 = FULL & ~Evaluation.COL_0;
+    private static final long NOT_COL_6 = FULL & ~Evaluation.COL_6;
+
+    private GuardRace() {
+    }
+
+    /**
+     * @param from     start squares (usually one guard)
+     * @param passable squares a step may enter
+     * @param target   squares to reach; may lie outside {@code passable}
+     * @return minimum number of steps from {@code from} to any target square, or {@link #UNREACHABLE}
+     */
+    public static int distance(long from, long passable, long target) {
+        if (from == 0) {
+            return UNREACHABLE;
+        }
+        long reached = from;
+        for (int steps = 0; ; steps++) {
+            if ((reached & target) != 0) {
+                return steps;
+            }
+            long next = reached | (Evaluation.neighbours(reached) & (passable | target));
+            if (next == reached) {
+                return UNREACHABLE;
+            }
+            reached = next;
+        }
+    }
+
+    /**
+     * Writes the squares at exactly 0, 1, 2, … steps from {@code from} into {@code layers}.
+     *
+     * @return number of layers written (0 if {@code from} is empty)
+     */
+    public static int fill(long from, long passable, long[] layers) {
+        long reached = from;
+        long frontier = from;
+        int count = 0;
+        while (frontier != 0 && count < layers.length) {
+            layers[count++] = frontier;
+            frontier = Evaluation.neighbours(frontier) & passable & ~reached;
+            reached |= frontier;
+        }
+        return count;
+    }
+
+    /**
+     * Guard steps to the enemy castle, not through own pieces (the guard cannot enter them) but through
+     * enemy ones (it can capture them). Capped at {@link Evaluation#NO_GUARD_DISTANCE}, which also stands for
+     * a missing guard.
+     */
+    static int castleDistance(long guard, long own, int castle) {
+        int d = distance(guard, FULL & ~own, 1L << castle);
+        return Math.min(d, Evaluation.NO_GUARD_DISTANCE);
+    }
+
+    /**
+     * Guard steps of {@code player} to the enemy castle using only squares that are empty and not reachable by
+     * any enemy move, i.e. a path the opponent cannot block or hit without first moving a piece there.
+     */
+    public static int safeCastleDistance(Board board, Player player) {
+        long own = player == Player.RED ? board.getRed() : board.getBlue();
+        long enemy = player == Player.RED ? board.getBlue() : board.getRed();
+        long castle = 1L << (player == Player.RED ? Evaluation.BLUE_CASTLE : Evaluation.RED_CASTLE);
+        long empty = FULL & ~board.getStack(0);
+        return distance(board.getGuards() & own, empty & ~attacks(board, enemy), castle);
+    }
+
+    /**
+     * @return guard steps of {@code player} to the nearest enemy piece, ignoring what may move in between
+     */
+    public static int enemyDistance(Board board, Player player) {
+        long own = player == Player.RED ? board.getRed() : board.getBlue();
+        long enemy = player == Player.RED ? board.getBlue() : board.getRed();
+        return distance(board.getGuards() & own, FULL & ~own, enemy);
+    }
+
+    /**
+     * Squares the pieces in {@code side} could move to with one move: the guard one step in every direction,
+     * a tower of height h up to h squares along a free line (the first occupied square included).
+     *
+     * <p>All towers advance together: iterating the heights from 7 down to 1, towers of exactly that height
+     * join the ray heads, so every head shifted in one iteration has the same number of steps left.</p>
+     */
+    public static long attacks(Board board, long side) {
+        long guards = board.getGuards();
+        long towers = side & ~guards;
+        long empty = FULL & ~board.getStack(0);
+        long result = Evaluation.neighbours(guards & side);
+        long north = 0;
+        long south = 0;
+        long east = 0;
+        long west = 0;
+        long higher = 0;
+        for (int h = MAX_HEIGHT; h >= 1; h--) {
+            long atLeast = towers & board.getStack(h - 1);
+            long origins = atLeast & ~higher;
+            higher = atLeast;
+            north = (((north & empty) | origins) << 7) & FULL;
+            south = ((south & empty) | origins) >>> 7;
+            east = (((east & empty) | origins) & NOT_COL_6) << 1;
+            west = (((west & empty) | origins) & NOT_COL_0) >>> 1;
+            result |= north | south | east | west;
+        }
+        return result;
+    }
+}
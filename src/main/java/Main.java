@@ -43,11 +43,12 @@ public class Main {
          */
         Board board = new Board();
         BitBoardUtils utils = new BitBoardUtils();
+        EngineSession session = new EngineSession();
         board.printBoard();
         int numberOfTurns = 100;
         while (!(utils.checkplayerWon(board, Player.BLUE) && utils.checkplayerWon(board, Player.RED))) {
 
-            BitBoardUtils.MovePair chosenMove = utils.pickMove(board);
+            BitBoardUtils.MovePair chosenMove = session.pickMove(board);
             board = utils.makeMove(chosenMove, board);
             board.printBoard();
 
@@ -0,0 +1,184 @@
+import java.util.Random;
+
+/**
+ * Plays games between two engine configurations at equal time per move and reports the score and the
+ * throughput of both engines (alpha-beta: nodes per second, MCTS: playouts and playout plies per second),
+ * next to the raw move generator speed from {@link #perft(BitBoardUtils, Board, int)}.
+ *
+ * <p>Each game starts from the start position plus {@link #OPENING_PLIES} random plies (seeded, so runs are
+ * repeatable); every opening is played twice with swapped colours.</p>
+ *
+ * <pre>
+ * usage: Match [games=20] [movetime=200] [a=alpha_beta] [b=mcts] [threads=1] [seed=1]
+ * </pre>
+ */
+public final class Match {
+
+    public static final int OPENING_PLIES = 2;
+    public static final int MAX_GAME_PLIES = 200;      // longer games are scored as draws
+
+    private final EngineSession a;
+    private final EngineSession b;
+    private final long moveTimeMs;
+
+    /* ---------- accumulated results, from a's point of view ------------------ */
+    private int wins;
+    private int draws;
+    private int losses;
+    private final long[] nodes = new long[2];
+    private final long[] timeMs = new long[2];
+
+    public Match(EngineSession a, EngineSession b, long moveTimeMs) {
+        this.a = a;
+        this.b = b;
+        this.moveTimeMs = moveTimeMs;
+    }
+
+    public static void main(String[] args) {
+        int games = 20;
+        long moveTime = 200;
+        EngineSession.EngineType typeA = EngineSession.EngineType.ALPHA_BETA;
+        EngineSession.EngineType typeB = EngineSession.EngineType.MCTS;
+        int threads = 1;
+        long seed = 1;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "games" -> games = Integer.parseInt(kv[1]);
+                case "movetime" -> moveTime = Long.parseLong(kv[1]);
+                case "a" -> typeA = EngineSession.EngineType.parse(kv[1]);
+                case "b" -> typeB = EngineSession.EngineType.parse(kv[1]);
+                case "threads" -> threads = Integer.parseInt(kv[1]);
+                case "seed" -> seed = Long.parseLong(kv[1]);
+                default -> throw new IllegalArgumentException("unknown argument " + arg);
+            }
+        }
+
+        BitBoardUtils utils = new BitBoardUtils();
+        long start = System.nanoTime();
+        long leaves = perft(utils, new Board(), 4);
+        double perftRate = leaves / ((System.nanoTime() - start) / 1e9);
+        System.out.printf("perft(4) from the start position: %d leaves, %.1f M moves/s%n", leaves, perftRate / 1e6);
+
+        EngineSession sessionA = new EngineSession(utils, EngineSession.DEFAULT_HASH_MB, moveTime);
+        EngineSession sessionB = new EngineSession(utils, EngineSession.DEFAULT_HASH_MB, moveTime);
+        sessionA.setEngine(typeA);
+        sessionB.setEngine(typeB);
+        sessionA.setThreads(threads);
+        sessionB.setThreads(threads);
+        Match match = new Match(sessionA, sessionB, moveTime);
+        match.play(games, seed);
+        System.out.println(typeA + " vs " + typeB + ": " + match);
+    }
+
+    /**
+     * Plays {@code games} games (rounded up to an even number), alternating colours.
+     */
+    public void play(int games, long seed) {
+        Random random = new Random(seed);
+        BitBoardUtils utils = a.getUtils();
+        for (int g = 0; g < games; g += 2) {
+            Board opening = randomOpening(utils, random);
+            record(playGame(opening, a, b), true);
+            record(playGame(opening, b, a), false);
+        }
+    }
+
+    private void record(int redResult, boolean aIsRed) {
+        int result = aIsRed ? redResult : -redResult;
+        if (result > 0) wins++;
+        else if (result < 0) losses++;
+        else draws++;
+    }
+
+    /**
+     * @return 1 if red wins, -1 if blue wins, 0 for a draw
+     */
+    int playGame(Board start, EngineSession red, EngineSession blue) {
+        red.newGame();
+        blue.newGame();
+        Board board = start.copy();
+        for (int ply = 0; ply < MAX_GAME_PLIES; ply++) {
+            Player mover = board.getCurrentPlayer();
+            EngineSession engine = mover == Player.RED ? red : blue;
+            SearchResult result = engine.search(board, SearchLimits.moveTime(moveTimeMs));
+            int index = engine == a ? 0 : 1;
+            nodes[index] += result.getNodes();
+            timeMs[index] += result.getTimeMs();
+            if (result.getBestMove() == null) {
+                return mover == Player.RED ? -1 : 1;           // no legal move loses
+            }
+            BitBoardUtils.makeMove(result.getBestMove().toInt(), board);
+            if (BitBoardUtils.checkplayerWon(board, mover)) {
+                return mover == Player.RED ? 1 : -1;
+            }
+        }
+        return 0;
+    }
+
+    private static Board randomOpening(BitBoardUtils utils, Random random) {
+        Board board = new Board();
+        int[] moves = new int[BitBoardUtils.MAX_MOVES];
+        for (int ply = 0; ply < OPENING_PLIES; ply++) {
+            int count = utils.generateAllLegalMoves(board, moves);
+            BitBoardUtils.makeMove(moves[random.nextInt(count)], board);
+        }
+        return board;
+    }
+
+    /**
+     * Counts the leaves of the full move tree to {@code depth} (games that end on the way count as leaves),
+     * with one move buffer and board per ply.
+     */
+    public static long perft(BitBoardUtils utils, Board root, int depth) {
+        Board[] boards = new Board[depth + 1];
+        int[][] moves = new int[depth + 1][BitBoardUtils.MAX_MOVES];
+        for (int i = 0; i <= depth; i++) boards[i] = new Board();
+        boards[0].copyFrom(root);
+        return perft(utils, boards, moves, 0, depth);
+    }
+
+    private static long perft(BitBoardUtils utils, Board[] boards, int[][] moves, int ply, int depth) {
+        if (ply == depth) {
+            return 1;
+        }
+        Board board = boards[ply];
+        Player prev = board.getCurrentPlayer() == Player.RED ? Player.BLUE : Player.RED;
+        if (ply > 0 && BitBoardUtils.checkplayerWon(board, prev)) {
+            return 1;
+        }
+        int count = utils.generateAllLegalMoves(board, moves[ply]);
+        long leaves = 0;
+        for (int i = 0; i < count; i++) {
+            boards[ply + 1].copyFrom(board);
+            BitBoardUtils.makeMove(moves[ply][i], boards[ply + 1]);
+            leaves += perft(utils, boards, moves, ply + 1, depth);
+        }
+        return leaves;
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public int getDraws() {
+        return draws;
+    }
+
+    public int getLosses() {
+        return losses;
+    }
+
+    /**
+     * @return nodes (alpha-beta) or playouts (MCTS) per second of engine a (0) or b (1)
+     */
+    public double getNodesPerSecond(int engine) {
+        return timeMs[engine] == 0 ? 0 : nodes[engine] * 1000.0 / timeMs[engine];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("+%d =%d -%d, a %.0f nodes/s, b %.0f nodes/s", wins, draws, losses,
+                getNodesPerSecond(0), getNodesPerSecond(1));
+    }
+}
@@ -0,0 +1,396 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monte Carlo tree search with UCT selection, the second engine next to {@link Search}.
+ *
+ * <p>The tree lives in a node pool of primitive arrays (index = node, children of a node are stored in one
+ * consecutive block), so a search allocates nothing per node. Playouts play random moves, but always take
+ * a move that wins at once, with the int move generator and in-place {@link BitBoardUtils#makeMove(int, Board)}
+ * on per-worker buffers; a playout that reaches {@link #MAX_PLAYOUT_PLIES} is decided by material.</p>
+ *
+ * <p>Several workers search the same tree (tree parallelisation). A worker adds a virtual loss to every node
+ * on its path until its playout is backed up, which steers the other workers to different lines. Visit and
+ * value counters are atomic, a node is expanded by exactly one worker.</p>
+ *
+ * <p>Scores in the {@link SearchResult} are derived from the root win rate (0 = even, ±400 per factor 10 in
+ * the odds); "nodes" are playouts.</p>
+ */
+public final class MonteCarloSearch {
+
+    public static final int MAX_PLAYOUT_PLIES = 150;
+    private static final double EXPLORATION = 1.4;
+    private static final int MAX_TREE_DEPTH = 128;
+    private static final int VIRTUAL_LOSS = 1;
+
+    private static final int UNEXPANDED = 0;
+    private static final int EXPANDING = 1;
+    private static final int EXPANDED = 2;
+    private static final int TERMINAL = 3;
+
+    private final BitBoardUtils utils;
+    private final int capacity;
+
+    /* ---------- node pool ---------------------------------------------------- */
+    private final int[] move;                   // move leading to the node
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final AtomicIntegerArray state;
+    private final AtomicIntegerArray visits;
+    private final AtomicIntegerArray virtualLoss;
+    private final AtomicLongArray value;        // half points (win 2, draw 1) for the player who made the move
+    private final AtomicInteger size = new AtomicInteger();
+
+    private static final AtomicBoolean NEVER = new AtomicBoolean();   // external stop flag nobody sets
+    private final AtomicBoolean stopFlag = new AtomicBoolean();
+    private final AtomicLong playouts = new AtomicLong();
+    private final AtomicLong playoutPlies = new AtomicLong();
+    private int threads = 1;
+
+    /**
+     * @param nodeCapacity number of tree nodes in the pool (about 30 bytes each); when it is full the tree
+     *                     stops growing and the remaining time goes into playouts from its leaves
+     */
+    public MonteCarloSearch(BitBoardUtils utils, int nodeCapacity) {
+        this.utils = utils;
+        this.capacity = nodeCapacity;
+        move = new int[nodeCapacity];
+        firstChild = new int[nodeCapacity];
+        childCount = new int[nodeCapacity];
+        state = new AtomicIntegerArray(nodeCapacity);
+        visits = new AtomicIntegerArray(nodeCapacity);
+        virtualLoss = new AtomicIntegerArray(nodeCapacity);
+        value = new AtomicLongArray(nodeCapacity);
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void stop() {
+        stopFlag.set(true);
+    }
+
+    /**
+     * @return number of playouts and the plies they played in the last search, for throughput numbers
+     */
+    public long getPlayouts() {
+        return playouts.get();
+    }
+
+    public long getPlayoutPlies() {
+        return playoutPlies.get();
+    }
+
+    /**
+     * Searches until the time or playout limit ({@link SearchLimits#getNodes()}) is reached; the depth limit
+     * is ignored. Without any limit it runs until {@link #stop()}.
+     */
+    public SearchResult search(Board root, SearchLimits limits) {
+        return search(root, limits, NEVER);
+    }
+
+    /**
+     * Like {@link #search(Board, SearchLimits)}, but also stops as soon as {@code externalStop} is set, e.g. by
+     * a protocol's "stop" command. The flag is only read, so it may already be set (then the search returns
+     * almost at once).
+     */
+    public SearchResult search(Board root, SearchLimits limits, AtomicBoolean externalStop) {
+        long start = System.nanoTime();
+        long deadline = limits.getMoveTimeMs() > 0 ? start + limits.getMoveTimeMs() * 1_000_000L : Long.MAX_VALUE;
+        long maxPlayouts = limits.getNodes() > 0 ? limits.getNodes() : Long.MAX_VALUE;
+        stopFlag.set(false);
+        playouts.set(0);
+        playoutPlies.set(0);
+        reset();
+
+        int rootNode = newNodes(1);
+        move[rootNode] = 0;
+        Board rootCopy = root.copy();
+
+        List<Thread> helpers = new ArrayList<>();
+        for (int i = 1; i < threads; i++) {
+            Thread t = new Thread(new Worker(rootCopy, deadline, maxPlayouts, externalStop, i), "mcts-worker-" + i);
+            t.setDaemon(true);
+            t.start();
+            helpers.add(t);
+        }
+        new Worker(rootCopy, deadline, maxPlayouts, externalStop, 0).run();
+        for (Thread t : helpers) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return result(rootNode, (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    private void reset() {
+        int n = size.getAndSet(0);
+        for (int i = 0; i < Math.min(n, capacity); i++) {
+            state.set(i, UNEXPANDED);
+            visits.set(i, 0);
+            virtualLoss.set(i, 0);
+            value.set(i, 0);
+        }
+    }
+
+    /**
+     * @return index of the first of {@code n} consecutive fresh nodes, or -1 if the pool is full
+     */
+    private int newNodes(int n) {
+        if (size.get() + n > capacity) {
+            return -1;
+        }
+        int first = size.getAndAdd(n);
+        if (first + n > capacity) {
+            return -1;
+        }
+        return first;
+    }
+
+    private SearchResult result(int rootNode, long timeMs) {
+        if (state.get(rootNode) != EXPANDED || childCount[rootNode] == 0) {
+            return new SearchResult(null, 0, 0, playouts.get(), timeMs, List.of(), List.of());
+        }
+        List<BitBoardUtils.MovePair> pv = new ArrayList<>();
+        int node = rootNode;
+        int depth = 0;
+        while (state.get(node) == EXPANDED && childCount[node] > 0) {
+            int best = mostVisitedChild(node);
+            if (visits.get(best) == 0) break;
+            pv.add(BitBoardUtils.MovePair.fromInt(move[best]));
+            node = best;
+            depth++;
+        }
+        int best = mostVisitedChild(rootNode);
+        List<SearchResult.ScoredMove> top = new ArrayList<>();
+        for (int c = firstChild[rootNode], end = c + childCount[rootNode]; c < end; c++) {
+            top.add(new SearchResult.ScoredMove(BitBoardUtils.MovePair.fromInt(move[c]), score(c)));
+        }
+        top.sort((a, b) -> Integer.compare(b.getScore(), a.getScore()));
+        return new SearchResult(BitBoardUtils.MovePair.fromInt(move[best]), score(best), depth, playouts.get(), timeMs,
+                pv, top.subList(0, Math.min(5, top.size())));
+    }
+
+    private int mostVisitedChild(int node) {
+        int best = firstChild[node];
+        for (int c = best + 1, end = firstChild[node] + childCount[node]; c < end; c++) {
+            if (visits.get(c) > visits.get(best)) best = c;
+        }
+        return best;
+    }
+
+    /**
+     * @return win rate of the player who made the move into {@code node}, as a centipawn-like score
+     */
+    private int score(int node) {
+        int n = visits.get(node);
+        if (n == 0) {
+            return 0;
+        }
+        double p = Math.min(0.999, Math.max(0.001, value.get(node) / (2.0 * n)));
+        return (int) Math.round(400 * Math.log10(p / (1 - p)));
+    }
+
+    /* =================================================================================================================
+                                              │ worker │
+       ===============================================================================================================*/
+
+    private final class Worker implements Runnable {
+        private final Board root;
+        private final AtomicBoolean externalStop;
+        private final long deadline;
+        private final long maxPlayouts;
+        private final Board board = new Board();
+        private final int[] moves = new int[BitBoardUtils.MAX_MOVES];
+        private final int[] path = new int[MAX_TREE_DEPTH + 1];
+        private long random;
+
+        Worker(Board root, long deadline, long maxPlayouts, AtomicBoolean externalStop, int id) {
+            this.root = root;
+            this.externalStop = externalStop;
+            this.deadline = deadline;
+            this.maxPlayouts = maxPlayouts;
+            this.random = 0x9E3779B97F4A7C15L * (id + 1);
+        }
+
+        @Override
+        public void run() {
+            int iteration = 0;
+            while (!stopFlag.get()) {
+                if (externalStop.get()) {
+                    stopFlag.set(true);
+                    break;
+                }
+                if ((++iteration & 63) == 0 && System.nanoTime() >= deadline) {
+                    stopFlag.set(true);
+                    break;
+                }
+                if (playouts.incrementAndGet() > maxPlayouts) {
+                    playouts.decrementAndGet();
+                    stopFlag.set(true);
+                    break;
+                }
+                iterate();
+            }
+        }
+
+        /**
+         * One selection - expansion - playout - backup cycle.
+         */
+        private void iterate() {
+            board.copyFrom(root);
+            Player rootSide = root.getCurrentPlayer();
+            int node = 0;
+            int depth = 0;
+            path[0] = 0;
+            virtualLoss.addAndGet(0, VIRTUAL_LOSS);
+
+            // selection
+            while (state.get(node) == EXPANDED && childCount[node] > 0 && depth < MAX_TREE_DEPTH) {
+                node = select(node);
+                BitBoardUtils.makeMove(move[node], board);
+                path[++depth] = node;
+                virtualLoss.addAndGet(node, VIRTUAL_LOSS);
+            }
+
+            // expansion and playout; result in half points for the root's side to move
+            int result;
+            if (state.get(node) == TERMINAL) {
+                result = terminalResult(board, rootSide);
+            } else if (isOver(board)) {
+                state.set(node, TERMINAL);
+                result = terminalResult(board, rootSide);
+            } else {
+                if (depth < MAX_TREE_DEPTH && state.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+                    expand(node);
+                }
+                result = playout(rootSide);
+            }
+
+            // backup: at odd depths the root's side made the move into the node
+            for (int d = depth; d >= 0; d--) {
+                int n = path[d];
+                value.addAndGet(n, (d & 1) == 1 ? result : 2 - result);
+                visits.incrementAndGet(n);
+                virtualLoss.addAndGet(n, -VIRTUAL_LOSS);
+            }
+        }
+
+        private int select(int node) {
+            int first = firstChild[node];
+            int end = first + childCount[node];
+            double logN = Math.log(Math.max(1, visits.get(node) + virtualLoss.get(node)));
+            int best = first;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int c = first; c < end; c++) {
+                int n = visits.get(c) + virtualLoss.get(c);   // virtual losses count as visits without value
+                if (n == 0) {
+                    return c;
+                }
+                double uct = value.get(c) / (2.0 * n) + EXPLORATION * Math.sqrt(logN / n);
+                if (uct > bestValue) {
+                    bestValue = uct;
+                    best = c;
+                }
+            }
+            return best;
+        }
+
+        private void expand(int node) {
+            int count = utils.generateAllLegalMoves(board, moves);
+            int first = count == 0 ? 0 : newNodes(count);
+            if (count == 0 || first < 0) {                     // no moves, or the pool is full: stay a leaf
+                childCount[node] = 0;
+                state.set(node, count == 0 ? TERMINAL : UNEXPANDED);
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                move[first + i] = moves[i];
+            }
+            firstChild[node] = first;
+            childCount[node] = count;
+            state.set(node, EXPANDED);                         // publishes the child block
+        }
+
+        /**
+         * Random game from {@code board} (modified); takes an immediately winning move when there is one.
+         */
+        private int playout(Player rootSide) {
+            int plies = 0;
+            while (plies < MAX_PLAYOUT_PLIES) {
+                int count = utils.generateAllLegalMoves(board, moves);
+                if (count == 0) {
+                    break;
+                }
+                int chosen = winningMove(board, moves, count);
+                if (chosen == 0) {
+                    chosen = moves[(int) ((nextRandom() >>> 33) % count)];
+                }
+                BitBoardUtils.makeMove(chosen, board);
+                plies++;
+                if (isOver(board)) {
+                    break;
+                }
+            }
+            playoutPlies.addAndGet(plies);
+            return terminalResult(board, rootSide);
+        }
+
+        private long nextRandom() {
+            long x = random;
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+            return random = x;
+        }
+    }
+
+    /* ---------- game rules ---------------------------------------------------- */
+
+    /**
+     * @return a move that captures the enemy guard or brings the own guard onto the enemy castle, or 0
+     */
+    static int winningMove(Board board, int[] moves, int count) {
+        boolean red = board.getCurrentPlayer() == Player.RED;
+        long enemyGuard = board.getGuards() & (red ? board.getBlue() : board.getRed());
+        long ownGuard = board.getGuards() & (red ? board.getRed() : board.getBlue());
+        int castle = red ? Evaluation.BLUE_CASTLE : Evaluation.RED_CASTLE;
+        for (int i = 0; i < count; i++) {
+            int m = moves[i];
+            int to = (m >>> 6) & 63;
+            if ((enemyGuard & 1L << to) != 0
+                    || (to == castle && (ownGuard & 1L << (m & 63)) != 0)) {
+                return m;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isOver(Board board) {
+        return BitBoardUtils.checkplayerWon(board, Player.RED) || BitBoardUtils.checkplayerWon(board, Player.BLUE);
+    }
+
+    /**
+     * @return half points for {@code rootSide}: 2 win, 1 draw, 0 loss; unfinished positions by material
+     */
+    private static int terminalResult(Board board, Player rootSide) {
+        int red;
+        if (BitBoardUtils.checkplayerWon(board, Player.RED)) {
+            red = 2;
+        } else if (BitBoardUtils.checkplayerWon(board, Player.BLUE)) {
+            red = 0;
+        } else {
+            int material = Evaluation.material(board);
+            red = material > 0 ? 2 : material < 0 ? 0 : 1;
+        }
+        return rootSide == Player.BLUE ? 2 - red : red;
+    }
+}
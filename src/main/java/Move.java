@@ -28,6 +28,25 @@ public class Move {
                 + (char) ('A' + toCol) + (7 - toRow) + "-" + moveHeight;
     }
 
+    /**
+     * Parses a move in the server's "A7-B7-1" format (inverse of {@link #toAlgebraic()}).
+     *
+     * @param moveStr move string, e.g. "D4-D6-2"
+     * @return parsed Move
+     */
+    public static Move fromAlgebraic(String moveStr) {
+        String[] parts = moveStr.trim().split("-");
+        if (parts.length != 3 || parts[0].length() != 2 || parts[1].length() != 2)
+            throw new IllegalArgumentException("Move must look like 'A7-B7-1' (found '" + moveStr + "')");
+
+        int fromCol = Character.toUpperCase(parts[0].charAt(0)) - 'A';
+        int fromRow = 7 - Character.getNumericValue(parts[0].charAt(1));
+        int toCol = Character.toUpperCase(parts[1].charAt(0)) - 'A';
+        int toRow = 7 - Character.getNumericValue(parts[1].charAt(1));
+        int height = Integer.parseInt(parts[2]);
+        return new Move(fromRow, fromCol, toRow, toCol, height);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -0,0 +1,194 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link SearchTable} in direct (off-heap) memory, for tables of several gigabytes: the garbage collector
+ * never scans or copies it, so a large table causes no GC pauses.
+ *
+ * <p>Same entries as {@link TranspositionTable} (key xor data, data; 16 bytes), read and written with opaque
+ * {@link VarHandle} accesses so that helper threads can share the table without locks. A direct buffer holds
+ * at most 2 GB, so the table is split into segments of {@link #SEGMENT_BYTES}.</p>
+ *
+ * <p>Direct buffers count against <code>-XX:MaxDirectMemorySize</code>, which defaults to the maximum heap
+ * size; a table of several gigabytes needs that flag (e.g. <code>-XX:MaxDirectMemorySize=9g</code> for 8 GB).
+ * If the memory is not available, the table halves its size until it fits and says so on stderr.</p>
+ *
+ * <p>{@link #save(Path)} writes the table to a file and {@link #load(Path)} reads it back, so the next game
+ * (or JVM) starts with what earlier searches learned.</p>
+ */
+public final class OffHeapTranspositionTable implements SearchTable {
+
+    static final int SEGMENT_BYTES = 1 << 30;
+    private static final int ENTRY_BYTES = 16;
+    private static final int SEGMENT_SHIFT = 26;                  // entries per segment = 2^26
+    private static final long FILE_MAGIC = 0x47545454_41424C45L;  // "GTTTABLE"
+    private static final int HEADER_BYTES = 16;                   // magic, entry count
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private ByteBuffer[] segments;
+    private long mask;
+    private int segmentMask;
+
+    public OffHeapTranspositionTable(int sizeMb) {
+        resize(sizeMb);
+    }
+
+    public static OffHeapTranspositionTable ofGigabytes(int sizeGb) {
+        return new OffHeapTranspositionTable(sizeGb * 1024);
+    }
+
+    /**
+     * Allocates a new, empty table of {@code sizeMb} (rounded down to a power of two), or of the largest
+     * half of it that the direct memory limit allows.
+     */
+    @Override
+    public void resize(int sizeMb) {
+        segments = null;                                           // let the old buffers go first
+        for (int mb = Math.max(1, sizeMb); ; mb /= 2) {
+            try {
+                allocate(mb);
+                return;
+            } catch (OutOfMemoryError e) {
+                if (mb == 1) throw e;
+                System.err.println("Hash table of " + mb + " MB does not fit into direct memory (" + e.getMessage()
+                        + "), trying " + mb / 2 + " MB; raise -XX:MaxDirectMemorySize for the full size");
+            }
+        }
+    }
+
+    private void allocate(int sizeMb) {
+        long bytes = sizeMb * 1024L * 1024L;
+        long entries = Long.highestOneBit(bytes / ENTRY_BYTES);
+        long perSegment = Math.min(entries, 1L << SEGMENT_SHIFT);
+        ByteBuffer[] fresh = new ByteBuffer[(int) (entries / perSegment)];
+        for (int i = 0; i < fresh.length; i++) {
+            fresh[i] = ByteBuffer.allocateDirect((int) (perSegment * ENTRY_BYTES)).order(ByteOrder.nativeOrder());
+        }
+        segments = fresh;
+        mask = entries - 1;
+        segmentMask = (int) (perSegment - 1);
+    }
+
+    @Override
+    public void clear() {
+        byte[] zeros = new byte[1 << 16];
+        for (ByteBuffer segment : segments) {
+            ByteBuffer b = segment.duplicate();
+            b.clear();
+            while (b.hasRemaining()) {
+                b.put(zeros, 0, Math.min(zeros.length, b.remaining()));
+            }
+        }
+    }
+
+    @Override
+    public long capacity() {
+        return mask + 1;
+    }
+
+    @Override
+    public long probe(long key) {
+        long index = key & mask;
+        ByteBuffer segment = segments[(int) (index >>> SEGMENT_SHIFT)];
+        int offset = ((int) index & segmentMask) * ENTRY_BYTES;
+        long d = (long) LONGS.getOpaque(segment, offset + 8);
+        if (((long) LONGS.getOpaque(segment, offset) ^ d) != key) {
+            return 0L;
+        }
+        return d;
+    }
+
+    /**
+     * Same replacement rule as {@link TranspositionTable#store(long, int, int, int, int)}.
+     */
+    @Override
+    public void store(long key, int depth, int bound, int score, int move) {
+        long index = key & mask;
+        ByteBuffer segment = segments[(int) (index >>> SEGMENT_SHIFT)];
+        int offset = ((int) index & segmentMask) * ENTRY_BYTES;
+        long old = (long) LONGS.getOpaque(segment, offset + 8);
+        if (((long) LONGS.getOpaque(segment, offset) ^ old) == key) {
+            if (depth < TranspositionTable.depthOf(old) && bound != TranspositionTable.BOUND_EXACT) {
+                return;
+            }
+            if (move == 0) {
+                move = TranspositionTable.moveOf(old);
+            }
+        }
+        long d = TranspositionTable.pack(score, move, depth, bound);
+        LONGS.setOpaque(segment, offset + 8, d);
+        LONGS.setOpaque(segment, offset, key ^ d);
+    }
+
+    /* ---------- persistence -------------------------------------------------- */
+
+    /**
+     * Writes all entries to {@code file} (via a temporary file, so a crash never leaves a half-written table).
+     * Call it while no search is running.
+     */
+    public void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+            header.putLong(FILE_MAGIC).putLong(capacity()).flip();
+            writeFully(channel, header);
+            for (ByteBuffer segment : segments) {
+                ByteBuffer b = segment.duplicate();
+                b.clear();
+                writeFully(channel, b);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a table written by {@link #save(Path)}. A missing file, another table size or another byte order
+     * leave the table unchanged.
+     *
+     * @return true if the entries were loaded
+     */
+    public boolean load(Path file) throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) != HEADER_BYTES + capacity() * ENTRY_BYTES) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+            readFully(channel, header);
+            header.flip();
+            if (header.getLong() != FILE_MAGIC || header.getLong() != capacity()) {
+                return false;
+            }
+            for (ByteBuffer segment : segments) {
+                ByteBuffer b = segment.duplicate();
+                b.clear();
+                readFully(channel, b);
+            }
+        }
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("table file ends early");
+            }
+        }
+    }
+}
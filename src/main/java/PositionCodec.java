@@ -0,0 +1,141 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-width binary encoding of a {@link Board} (32 bytes, little endian) with an optional score, best move
+ * and game result.
+ * Used by {@link PositionWriter} and {@link PositionCorpus} to store large position collections without
+ * re-parsing FEN strings.
+ *
+ * <pre>
+ * offset  0  long  red plane (bits 0-48) | red guard square (6 bit, 63 = none) &lt;&lt; 49
+ *                  | side to move (1 = blue) &lt;&lt; 55 | flags &lt;&lt; 56 (score, move, result + 2 bit result value)
+ * offset  8  long  blue plane (bits 0-48) | blue guard square (6 bit, 63 = none) &lt;&lt; 49
+ * offset 16  long  heights: 3 bit (height - 1) per occupied non-guard square, ascending square index
+ * offset 24  int   score (side to move point of view), valid if FLAG_SCORE
+ * offset 28  int   best move packed with {@link BitBoardUtils.MovePair#toInt()}, valid if FLAG_MOVE
+ * </pre>
+ *
+ * All methods use absolute buffer indices, so a buffer can be shared by readers without copying.
+ */
+public final class PositionCodec {
+
+    public static final int RECORD_BYTES = 32;
+    /** Maximum number of tower squares (21 * 3 bit = 63 bit); legal games never exceed 14. */
+    public static final int MAX_TOWERS = 21;
+
+    public static final int FLAG_SCORE = 1;
+    public static final int FLAG_MOVE = 1 << 1;
+    /** Game result known; the result itself is stored in flag bits 4-5 (see {@link #resultFlags(int)}). */
+    public static final int FLAG_RESULT = 1 << 2;
+
+    /* ---------- game results, red's point of view ----------------------------- */
+    public static final int RESULT_BLUE_WIN = 0;
+    public static final int RESULT_DRAW = 1;
+    public static final int RESULT_RED_WIN = 2;
+
+    private static final long PLANE_MASK = (1L << 49) - 1;
+    private static final int NO_SQUARE = 63;
+
+    private PositionCodec() {
+    }
+
+    /**
+     * Writes one record at {@code offset}.
+     *
+     * @param score side-to-move score, stored if {@code flags} contains {@link #FLAG_SCORE}
+     * @param move  packed best move, stored if {@code flags} contains {@link #FLAG_MOVE}
+     */
+    public static void encode(ByteBuffer buf, int offset, Board board, int flags, int score, int move) {
+        long red = board.getRed();
+        long blue = board.getBlue();
+        long guards = board.getGuards();
+
+        long heights = 0L;
+        int shift = 0;
+        long towers = board.getStack(0) & ~guards;
+        while (towers != 0) {
+            if (shift >= MAX_TOWERS * 3)
+                throw new IllegalArgumentException("Position has more than " + MAX_TOWERS + " towers");
+            long bit = towers & -towers;
+            int height = 1;
+            while (height < 7 && (board.getStack(height) & bit) != 0) height++;
+            heights |= (long) (height - 1) << shift;
+            shift += 3;
+            towers &= towers - 1;
+        }
+
+        long side = board.getCurrentPlayer() == Player.BLUE ? 1L : 0L;
+        buf.putLong(offset, (red & PLANE_MASK) | (long) guardSquare(guards & red) << 49 | side << 55 | (long) (flags & 0xFF) << 56);
+        buf.putLong(offset + 8, (blue & PLANE_MASK) | (long) guardSquare(guards & blue) << 49);
+        buf.putLong(offset + 16, heights);
+        buf.putInt(offset + 24, (flags & FLAG_SCORE) != 0 ? score : 0);
+        buf.putInt(offset + 28, (flags & FLAG_MOVE) != 0 ? move : 0);
+    }
+
+    /**
+     * Decodes the record at {@code offset} into an existing board (no allocation).
+     */
+    public static void decode(ByteBuffer buf, int offset, Board into) {
+        long w0 = buf.getLong(offset);
+        long w1 = buf.getLong(offset + 8);
+        long heights = buf.getLong(offset + 16);
+
+        long red = w0 & PLANE_MASK;
+        long blue = w1 & PLANE_MASK;
+        long guards = squareBit((int) (w0 >>> 49) & 63) | squareBit((int) (w1 >>> 49) & 63);
+
+        into.setRed(red);
+        into.setBlue(blue);
+        into.setGuards(guards);
+        into.setStack(0, red | blue);
+        for (int i = 1; i < 7; i++) {
+            into.setStack(i, 0L);
+        }
+        long towers = (red | blue) & ~guards;
+        while (towers != 0) {
+            long bit = towers & -towers;
+            int height = (int) (heights & 7) + 1;
+            for (int h = 1; h < height; h++) {
+                into.setStack(h, into.getStack(h) | bit);
+            }
+            heights >>>= 3;
+            towers &= towers - 1;
+        }
+        into.setCurrentPlayer(((w0 >>> 55) & 1) == 1 ? Player.BLUE : Player.RED);
+    }
+
+    public static int flags(ByteBuffer buf, int offset) {
+        return (int) (buf.getLong(offset) >>> 56);
+    }
+
+    /**
+     * @param result one of {@link #RESULT_BLUE_WIN}, {@link #RESULT_DRAW}, {@link #RESULT_RED_WIN}
+     * @return flags marking the record with this game result
+     */
+    public static int resultFlags(int result) {
+        return FLAG_RESULT | (result & 3) << 4;
+    }
+
+    /**
+     * @return game result stored in {@code flags}, valid if they contain {@link #FLAG_RESULT}
+     */
+    public static int resultOf(int flags) {
+        return (flags >>> 4) & 3;
+    }
+
+    public static int score(ByteBuffer buf, int offset) {
+        return buf.getInt(offset + 24);
+    }
+
+    public static int move(ByteBuffer buf, int offset) {
+        return buf.getInt(offset + 28);
+    }
+
+    private static int guardSquare(long guard) {
+        return guard == 0 ? NO_SQUARE : Long.numberOfTrailingZeros(guard);
+    }
+
+    private static long squareBit(int square) {
+        return square == NO_SQUARE ? 0L : 1L << square;
+    }
+}
@@ -0,0 +1,163 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped view of a corpus file written by {@link PositionWriter}.
+ *
+ * <p>Files larger than 2 GB are mapped in several segments. Records are decoded straight from the mapping
+ * into a caller-supplied {@link Board}; iterating with a {@link Cursor} allocates nothing per record.
+ * Instances are safe to share between threads as long as every thread uses its own cursor / target board.</p>
+ */
+public final class PositionCorpus implements Closeable {
+
+    private static final int RECORDS_PER_SEGMENT = 1 << 25;      // 1 GB of records per mapping
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    public PositionCorpus(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        long bytes = channel.size();
+        if (bytes < PositionWriter.HEADER_BYTES)
+            throw new IOException("Not a position corpus (file too short): " + file);
+
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, PositionWriter.HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != PositionWriter.MAGIC)
+            throw new IOException("Not a position corpus (bad magic): " + file);
+        if (header.getShort(4) != PositionWriter.VERSION || header.getShort(6) != PositionCodec.RECORD_BYTES)
+            throw new IOException("Unsupported corpus version " + header.getShort(4) + " / record size " + header.getShort(6));
+
+        this.size = (bytes - PositionWriter.HEADER_BYTES) / PositionCodec.RECORD_BYTES;
+        int segmentCount = (int) ((size + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long first = (long) i * RECORDS_PER_SEGMENT;
+            long records = Math.min(RECORDS_PER_SEGMENT, size - first);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    PositionWriter.HEADER_BYTES + first * PositionCodec.RECORD_BYTES, records * PositionCodec.RECORD_BYTES);
+            segments[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * @return number of records in the file
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Decodes record {@code index} into {@code into}.
+     */
+    public void read(long index, Board into) {
+        PositionCodec.decode(segment(index), offset(index), into);
+    }
+
+    public boolean hasScore(long index) {
+        return (PositionCodec.flags(segment(index), offset(index)) & PositionCodec.FLAG_SCORE) != 0;
+    }
+
+    /**
+     * @return flags of record {@code index}, see {@link PositionCodec#FLAG_SCORE} and friends
+     */
+    public int flags(long index) {
+        return PositionCodec.flags(segment(index), offset(index));
+    }
+
+    public int score(long index) {
+        return PositionCodec.score(segment(index), offset(index));
+    }
+
+    /**
+     * @return packed best move, 0 if the record has none
+     */
+    public int bestMove(long index) {
+        return PositionCodec.move(segment(index), offset(index));
+    }
+
+    /**
+     * @return a cursor over the records {@code [from, to)}
+     */
+    public Cursor cursor(long from, long to) {
+        return new Cursor(from, Math.min(to, size));
+    }
+
+    public Cursor cursor() {
+        return cursor(0, size);
+    }
+
+    private MappedByteBuffer segment(long index) {
+        return segments[(int) (index / RECORDS_PER_SEGMENT)];
+    }
+
+    private static int offset(long index) {
+        return (int) (index % RECORDS_PER_SEGMENT) * PositionCodec.RECORD_BYTES;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Forward iterator that decodes every record into the same {@link Board}.
+     */
+    public final class Cursor {
+        private final Board board = new Board();
+        private long index;
+        private final long end;
+
+        private Cursor(long from, long end) {
+            this.index = from - 1;
+            this.end = end;
+        }
+
+        /**
+         * Advances to the next record.
+         *
+         * @return false if there are no more records
+         */
+        public boolean next() {
+            if (index + 1 >= end) {
+                return false;
+            }
+            index++;
+            read(index, board);
+            return true;
+        }
+
+        /**
+         * @return the current position; the same instance is reused for every record
+         */
+        public Board board() {
+            return board;
+        }
+
+        public long index() {
+            return index;
+        }
+
+        public boolean hasScore() {
+            return PositionCorpus.this.hasScore(index);
+        }
+
+        public int flags() {
+            return PositionCorpus.this.flags(index);
+        }
+
+        public int score() {
+            return PositionCorpus.this.score(index);
+        }
+
+        public int bestMove() {
+            return PositionCorpus.this.bestMove(index);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Stack of {@link Board#hashKey()}s of the positions of the game and the current search path, used to find
+ * repetitions.
+ *
+ * <p>A small counting filter indexed by the low key bits answers "never seen" in O(1) for almost every
+ * position; only on a filter hit is the stack scanned, and only back to the last irreversible entry
+ * (a null move in the search, nothing earlier can repeat across it).</p>
+ */
+public final class PositionHistory {
+
+    private static final int FILTER_BITS = 13;
+    private static final int FILTER_MASK = (1 << FILTER_BITS) - 1;
+
+    private long[] keys = new long[256];
+    private int[] windowStart = new int[256];   // first index that may repeat the entry at i
+    private final int[] filter = new int[1 << FILTER_BITS];
+    private int size;
+
+    public void push(long key) {
+        push(key, false);
+    }
+
+    /**
+     * @param irreversible true if no earlier position can occur again after this one
+     */
+    public void push(long key, boolean irreversible) {
+        if (size == keys.length) {
+            keys = java.util.Arrays.copyOf(keys, size * 2);
+            windowStart = java.util.Arrays.copyOf(windowStart, size * 2);
+        }
+        keys[size] = key;
+        windowStart[size] = irreversible || size == 0 ? size : windowStart[size - 1];
+        filter[(int) key & FILTER_MASK]++;
+        size++;
+    }
+
+    public void pop() {
+        size--;
+        filter[(int) keys[size] & FILTER_MASK]--;
+    }
+
+    public void clear() {
+        while (size > 0) pop();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the most recently pushed key, or 0 if the history is empty
+     */
+    public long last() {
+        return size == 0 ? 0L : keys[size - 1];
+    }
+
+    /**
+     * @return true if {@code key} already occurs in the history since the last irreversible entry
+     */
+    public boolean isRepetition(long key) {
+        if (size == 0 || filter[(int) key & FILTER_MASK] == 0) {
+            return false;
+        }
+        for (int i = size - 1, start = windowStart[size - 1]; i >= start; i--) {
+            if (keys[i] == key) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the contents with those of {@code other}.
+     */
+    public void copyFrom(PositionHistory other) {
+        clear();
+        for (int i = 0; i < other.size; i++) {
+            push(other.keys[i], other.windowStart[i] == i && i > 0);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends positions in the {@link PositionCodec} format to a corpus file that {@link PositionCorpus} can map.
+ * Records are collected in a direct buffer and written in large blocks. Not thread-safe.
+ */
+public final class PositionWriter implements Closeable {
+
+    /** File header: magic "GTPC", format version, record size, reserved. */
+    static final int MAGIC = 0x43505447;            // "GTPC" little endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    private static final int RECORDS_PER_BLOCK = 4096;
+
+    private final FileChannel channel;
+    private final ByteBuffer block = ByteBuffer.allocateDirect(RECORDS_PER_BLOCK * PositionCodec.RECORD_BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private int buffered;
+    private long count;
+
+    /**
+     * Creates (or truncates) {@code file} and writes the header.
+     */
+    public PositionWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putShort((short) VERSION).putShort((short) PositionCodec.RECORD_BYTES).putLong(0L);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    public void write(Board board) throws IOException {
+        write(board, 0, 0, 0);
+    }
+
+    /**
+     * Writes a position with a score (side to move point of view) and best move.
+     */
+    public void write(Board board, int score, BitBoardUtils.MovePair bestMove) throws IOException {
+        write(board, PositionCodec.FLAG_SCORE | (bestMove != null ? PositionCodec.FLAG_MOVE : 0),
+                score, bestMove != null ? bestMove.toInt() : 0);
+    }
+
+    /**
+     * @param flags combination of {@link PositionCodec#FLAG_SCORE}, {@link PositionCodec#FLAG_MOVE}
+     *              and {@link PositionCodec#resultFlags(int)}
+     * @param move  packed move ({@link BitBoardUtils.MovePair#toInt()})
+     */
+    public void write(Board board, int flags, int score, int move) throws IOException {
+        PositionCodec.encode(block, buffered * PositionCodec.RECORD_BYTES, board, flags, score, move);
+        buffered++;
+        count++;
+        if (buffered == RECORDS_PER_BLOCK) {
+            flush();
+        }
+    }
+
+    /**
+     * @return number of records written so far
+     */
+    public long count() {
+        return count;
+    }
+
+    public void flush() throws IOException {
+        block.position(0).limit(buffered * PositionCodec.RECORD_BYTES);
+        while (block.hasRemaining()) {
+            channel.write(block);
+        }
+        block.clear();
+        buffered = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * Depth-first proof-number search (df-pn): proves or disproves that the side to move can force a win
+ * (own guard on the enemy castle or enemy guard captured) within a node budget.
+ *
+ * <p>The side to move at the root is the attacker; at its nodes one winning move is enough (OR node), at the
+ * defender's nodes every reply must lose (AND node). The proof and disproof numbers live in a compact hash
+ * table of two longs per entry (full key, pn &lt;&lt; 32 | dn) that is kept between calls; the attacker is
+ * mixed into the key. Lines longer than {@link #MAX_DEPTH} plies count as "no win", so a result is always
+ * sound for proofs; a disproof only means no win was found within that horizon.</p>
+ *
+ * <p>Such a horizon disproof depends on the ply at which the position was reached. Each entry therefore
+ * also keeps the smallest ply from which its disproof holds (0 for real ones, e.g. the defender has won);
+ * reached at a smaller ply, i.e. with more plies left, the position counts as unknown and is searched
+ * again.</p>
+ */
+public final class ProofNumberSearch {
+
+    public enum Status { PROVEN, DISPROVEN, UNKNOWN }
+
+    public static final int MAX_DEPTH = 40;
+    static final int INF = 1 << 28;
+    private static final int CHECK_INTERVAL = 1023;   // poll the clock every 1024 nodes
+
+    private static final long BLUE_ATTACKER_SALT = 0x5DEECE66DL * 0x9E3779B97F4A7C15L;
+    private static final long PROVEN = (long) 0 << 32 | INF;
+    private static final long DISPROVEN = (long) INF << 32;
+    private static final long UNKNOWN = 1L << 32 | 1;
+
+    private final BitBoardUtils utils;
+    private long[] keys;
+    private long[] values;
+    private byte[] validFrom;                          // disproofs: smallest ply at which they hold
+    private int mask;
+
+    /* ---------- per-ply buffers ---------------------------------------------- */
+    private final Board[] boards = new Board[MAX_DEPTH + 1];
+    private final int[][] moves = new int[MAX_DEPTH + 1][BitBoardUtils.MAX_MOVES];
+    private final long[][] childKeys = new long[MAX_DEPTH + 1][BitBoardUtils.MAX_MOVES];
+
+    private Player attacker;
+    private long nodes;
+    private long maxNodes;
+    private long deadlineNanos;                        // 0: no time limit
+    private boolean outOfNodes;
+    private int bestMove;
+
+    public ProofNumberSearch(BitBoardUtils utils, int sizeMb) {
+        this.utils = utils;
+        int entries = Integer.highestOneBit((int) Math.min(Math.max(1, sizeMb) * 1024L * 1024L / 17, 1 << 30));
+        keys = new long[entries];
+        values = new long[entries];
+        validFrom = new byte[entries];
+        mask = entries - 1;
+        for (int i = 0; i <= MAX_DEPTH; i++) {
+            boards[i] = new Board();
+        }
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(keys, 0L);
+        java.util.Arrays.fill(values, 0L);
+        java.util.Arrays.fill(validFrom, (byte) 0);
+    }
+
+    /**
+     * @param maxNodes node budget; the search returns {@link Status#UNKNOWN} when it is used up
+     */
+    public Status solve(Board root, long maxNodes) {
+        return solve(root, maxNodes, 0);
+    }
+
+    /**
+     * @param maxTimeMs also gives up (with {@link Status#UNKNOWN}) after this time; 0 = no time limit
+     */
+    public Status solve(Board root, long maxNodes, long maxTimeMs) {
+        this.attacker = root.getCurrentPlayer();
+        this.maxNodes = maxNodes;
+        this.deadlineNanos = maxTimeMs > 0 ? System.nanoTime() + maxTimeMs * 1_000_000L : 0L;
+        this.nodes = 0;
+        this.outOfNodes = false;
+        this.bestMove = 0;
+        boards[0].copyFrom(root);
+        long rootKey = key(root);
+        mid(0, rootKey, INF - 1, INF - 1);
+
+        long v = probe(rootKey, 0);
+        if (pn(v) == 0) {
+            int count = utils.generateAllLegalMoves(boards[0], moves[0]);
+            for (int i = 0; i < count; i++) {
+                if (pn(probe(childKeys[0][i], 1)) == 0) {
+                    bestMove = moves[0][i];
+                    break;
+                }
+            }
+            return Status.PROVEN;
+        }
+        return dn(v) == 0 && !outOfNodes ? Status.DISPROVEN : Status.UNKNOWN;
+    }
+
+    /**
+     * @return a winning move after {@link Status#PROVEN}, else null
+     */
+    public BitBoardUtils.MovePair getBestMove() {
+        return bestMove == 0 ? null : BitBoardUtils.MovePair.fromInt(bestMove);
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /* ---------- df-pn ---------------------------------------------------------- */
+
+    /**
+     * Expands the node at {@code ply} until its proof number reaches {@code thpn} or its disproof number
+     * reaches {@code thdn}; the final numbers are in the table.
+     */
+    private void mid(int ply, long key, int thpn, int thdn) {
+        if (++nodes >= maxNodes
+                || ((nodes & CHECK_INTERVAL) == 0 && deadlineNanos != 0 && System.nanoTime() >= deadlineNanos)) {
+            outOfNodes = true;
+            return;
+        }
+        if (ply >= MAX_DEPTH) {
+            store(key, DISPROVEN, MAX_DEPTH);             // beyond the horizon: no win found, from here on
+            return;
+        }
+        Board board = boards[ply];
+        Player mover = board.getCurrentPlayer();
+        boolean orNode = mover == attacker;
+        int[] m = moves[ply];
+        long[] ck = childKeys[ply];
+        int count = utils.generateAllLegalMoves(board, m);
+        if (count == 0) {
+            store(key, DISPROVEN, 0);
+            return;
+        }
+        Board child = boards[ply + 1];
+        for (int i = 0; i < count; i++) {
+            child.copyFrom(board);
+            BitBoardUtils.makeMove(m[i], child);
+            ck[i] = key(child);
+            if (BitBoardUtils.checkplayerWon(child, mover)) {
+                store(ck[i], orNode ? PROVEN : DISPROVEN, 0);
+            }
+        }
+
+        while (true) {
+            // combine the children: OR = min pn / sum dn, AND = sum pn / min dn
+            int pn = orNode ? INF : 0;
+            int dn = orNode ? 0 : INF;
+            int best = 0;
+            int bestPn = INF;
+            int bestDn = INF;
+            int second = INF;                             // second smallest pn (OR) / dn (AND)
+            int from = 0;                                 // OR: all children disproven, the latest ply counts
+            for (int i = 0; i < count; i++) {
+                long v = probe(ck[i], ply + 1);
+                int cpn = pn(v);
+                int cdn = dn(v);
+                if (orNode) {
+                    dn = Math.min(INF, dn + cdn);
+                    if (cdn == 0) from = Math.max(from, validFrom(ck[i]) - 1);
+                    if (cpn < bestPn) {
+                        second = bestPn;
+                        bestPn = cpn;
+                        bestDn = cdn;
+                        best = i;
+                    } else if (cpn < second) {
+                        second = cpn;
+                    }
+                } else {
+                    pn = Math.min(INF, pn + cpn);
+                    if (cdn < bestDn) {
+                        second = bestDn;
+                        bestDn = cdn;
+                        bestPn = cpn;
+                        best = i;
+                    } else if (cdn < second) {
+                        second = cdn;
+                    }
+                }
+            }
+            if (orNode) {
+                pn = bestPn;
+            } else {
+                dn = bestDn;
+                from = bestDn == 0 ? validFrom(ck[best]) - 1 : 0;
+            }
+            store(key, (long) pn << 32 | dn, Math.max(0, from));
+            if (pn >= thpn || dn >= thdn || outOfNodes) {
+                return;
+            }
+
+            int childThpn;
+            int childThdn;
+            if (orNode) {
+                childThpn = Math.min(thpn, second + 1);
+                childThdn = thdn - dn + bestDn;
+            } else {
+                childThpn = thpn - pn + bestPn;
+                childThdn = Math.min(thdn, second + 1);
+            }
+            child.copyFrom(board);
+            BitBoardUtils.makeMove(m[best], child);
+            mid(ply + 1, ck[best], childThpn, childThdn);
+            if (outOfNodes) {
+                return;
+            }
+        }
+    }
+
+    /* ---------- table -------------------------------------------------------- */
+
+    private long key(Board board) {
+        long k = board.hashKey();
+        return attacker == Player.BLUE ? k ^ BLUE_ATTACKER_SALT : k;
+    }
+
+    /**
+     * @return the stored numbers, or {@link #UNKNOWN} if there are none or a disproof does not hold at {@code ply}
+     */
+    private long probe(long key, int ply) {
+        int index = (int) key & mask;
+        if (keys[index] != key) {
+            return UNKNOWN;
+        }
+        long v = values[index];
+        return dn(v) == 0 && ply < validFrom[index] ? UNKNOWN : v;
+    }
+
+    private int validFrom(long key) {
+        return validFrom[(int) key & mask];
+    }
+
+    /**
+     * @param from smallest ply at which a disproof holds (ignored for other values)
+     */
+    private void store(long key, long value, int from) {
+        int index = (int) key & mask;
+        keys[index] = key;
+        values[index] = value;
+        validFrom[index] = (byte) from;
+    }
+
+    private static int pn(long v) {
+        return (int) (v >>> 32);
+    }
+
+    private static int dn(long v) {
+        return (int) v;
+    }
+}
@@ -0,0 +1,787 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Iterative-deepening alpha-beta search in negamax form, backed by a {@link SearchTable}.
+ *
+ * <p>Scores are always seen from the side to move. One instance must only be used by one thread at a time:
+ * it owns one preallocated {@link Board} and move buffer per ply, so the recursion does not allocate.
+ * Several instances may share a table and a stop flag to search the same position in parallel
+ * (the helpers simply fill the shared table for the main search).</p>
+ *
+ * <p>Besides the table move, moves are ordered by captures, two killer moves per ply and a history table.
+ * Null-move pruning, late move reductions, futility pruning and razoring (see {@link SearchOptions}) cut
+ * the effective branching factor; {@link SearchStatistics} counts what each of them did.</p>
+ *
+ * <p>Table entries are stored under the canonical key of the position's four symmetric orientations
+ * ({@link Symmetry}), with the move mapped into the canonical orientation.</p>
+ *
+ * <p>A position that already occurred in the game ({@link #setHistory(PositionHistory)}) or earlier on the
+ * search path is scored as a draw without being searched, so shuffling towers back and forth costs nothing.</p>
+ *
+ * <p>A finished game scores {@link #WIN} minus the distance in plies from the root (negative for the loser),
+ * so the quickest win is preferred; the table stores such scores relative to the node. Once an iteration
+ * has proven a win within its depth, deeper iterations cannot find anything better and the search stops.</p>
+ */
+public final class Search {
+
+    public static final int MAX_PLY = 64;
+    public static final int INFINITY = 1_000_000;
+    public static final int DRAW = 0;
+    public static final int WIN = 100_000;
+    /** Scores beyond this are wins / losses in at most {@code WIN - WIN_BOUND} plies. */
+    public static final int WIN_BOUND = WIN - 1000;
+
+    private static final int CHECK_INTERVAL = 1023;   // poll clock/stop flag every 1024 nodes
+    private static final int MAX_ASPIRATION_WINDOW = 1000;
+    private static final int FUTILITY_DEPTH = 2;
+    private static final int RAZOR_DEPTH = 3;
+    private static final int RACE_STEPS = 2;          // guard races this short are never pruned
+    private static final int RED_CASTLE = 45;
+    private static final int BLUE_CASTLE = 3;
+
+    private final BitBoardUtils utils;
+    private final SearchTable table;
+    private final AtomicBoolean stopFlag;
+    private SearchListener listener;
+    private SearchOptions options = new SearchOptions();
+    private int startDepth = 1;
+    private int multiPv = 1;
+    private int rootHint;
+    private PositionHistory gameHistory;
+
+    /* ---------- per-call state ---------------------------------------------- */
+    private long nodes;
+    private long nodeLimit;
+    private long startNanos;
+    private long deadlineNanos;
+    private boolean stopped;
+    private final SearchStatistics stats = new SearchStatistics();
+    private EvalCache evalCache = new EvalCache();                 // static scores, side-to-move view
+
+    /* ---------- per-ply buffers ---------------------------------------------- */
+    private final Board[] boards = new Board[MAX_PLY + 1];
+    private final int[][] moveBuffers = new int[MAX_PLY + 1][BitBoardUtils.MAX_MOVES];
+    private final PositionHistory path = new PositionHistory();   // game + current search path
+    private final Board scratch = new Board();                     // symmetric images for table keys
+    private int canonicalTransform;                                // set by tableKey()
+    private final int[][] orderKeys = new int[MAX_PLY + 1][BitBoardUtils.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final long[] threatSquares = new long[Threats.MAX_DISTANCE];  // see Threats#guardThreatSquares
+    private final int[][] history = new int[2][1 << 12];        // [side][from | to << 6]
+
+    // triangular PV table: pvTable[ply] holds the best line found from ply on
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    // root moves, kept sorted by the scores of the last completed iteration
+    private final int[] rootMoves = new int[BitBoardUtils.MAX_MOVES];
+    private final int[] rootScores = new int[BitBoardUtils.MAX_MOVES];
+    private final int[] iterationScores = new int[BitBoardUtils.MAX_MOVES];
+    private final int[] topScores = new int[BitBoardUtils.MAX_MOVES];        // scratch of kthBestScore
+    private int rootCount;
+    private final BatchEvaluator.Batch rootBatch = new BatchEvaluator.Batch(BitBoardUtils.MAX_MOVES);
+
+    public Search(BitBoardUtils utils, SearchTable table) {
+        this(utils, table, new AtomicBoolean());
+    }
+
+    public Search(BitBoardUtils utils, SearchTable table, AtomicBoolean stopFlag) {
+        this.utils = utils;
+        this.table = table;
+        this.stopFlag = stopFlag;
+        for (int i = 0; i <= MAX_PLY; i++) {
+            boards[i] = new Board();
+        }
+    }
+
+    /**
+     * Replaces the search's own evaluation cache, e.g. with one shared by all helper threads.
+     */
+    public void setEvalCache(EvalCache evalCache) {
+        this.evalCache = evalCache;
+    }
+
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    public void setOptions(SearchOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * First depth of the iterative deepening loop. Helper threads start one ply deeper than the main
+     * thread so that they do not just repeat its work.
+     */
+    public void setStartDepth(int startDepth) {
+        this.startDepth = Math.max(1, startDepth);
+    }
+
+    /**
+     * Number of root moves that get an exact score (see {@link SearchResult#getTopMoves()}). Values above 1
+     * make the search slower because fewer root moves can be cut off; at most {@link BitBoardUtils#MAX_MOVES}.
+     */
+    public void setMultiPv(int multiPv) {
+        this.multiPv = Math.max(1, Math.min(BitBoardUtils.MAX_MOVES, multiPv));
+    }
+
+    /**
+     * Positions played so far (oldest first, the root may be the last entry). Copied at the start of every
+     * search, so the caller may keep appending to it.
+     */
+    public void setHistory(PositionHistory gameHistory) {
+        this.gameHistory = gameHistory;
+    }
+
+    /**
+     * Move to try first at the root if the table has none, e.g. the continuation of the previous search's
+     * principal variation. Used for the next {@link #search} call only.
+     */
+    public void setRootHint(int move) {
+        this.rootHint = move;
+    }
+
+    /**
+     * Forgets killer moves and history scores, e.g. at the start of a new game. Between searches of the same
+     * game they are kept: the killers move up two plies, the history scores are scaled down.
+     */
+    public void clearHistory() {
+        for (int[] k : killers) java.util.Arrays.fill(k, 0);
+        for (int[] h : history) java.util.Arrays.fill(h, 0);
+    }
+
+    /**
+     * Asks a running search (and all searches sharing the stop flag) to return as soon as possible.
+     */
+    public void stop() {
+        stopFlag.set(true);
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Searches {@code root} with increasing depth until one of the limits is hit or {@link #stop()} is called.
+     * The result always belongs to the last fully completed iteration.
+     *
+     * @param root   position to search, is not modified
+     * @param limits depth / time / node limits
+     * @return best move, score and principal variation
+     */
+    public SearchResult search(Board root, SearchLimits limits) {
+        nodes = 0;
+        stopped = false;
+        stats.reset();
+        ageKillersAndHistory();
+        nodeLimit = limits.getNodes();
+        startNanos = System.nanoTime();
+        deadlineNanos = limits.getMoveTimeMs() > 0 ? startNanos + limits.getMoveTimeMs() * 1_000_000L : 0L;
+        int maxDepth = limits.getDepth() > 0 ? Math.min(limits.getDepth(), MAX_PLY) : MAX_PLY;
+
+        boards[0].copyFrom(root);
+        if (gameHistory != null) {
+            path.copyFrom(gameHistory);
+        } else {
+            path.clear();
+        }
+        long rootKey = boards[0].hashKey();
+        if (path.last() != rootKey || path.size() == 0) {
+            path.push(rootKey);
+        }
+        rootCount = utils.generateAllLegalMoves(boards[0], rootMoves);
+        if (rootCount == 0) {
+            return new SearchResult(null, relativeEvaluation(root), 0, 0, elapsedMs(), List.of(), List.of());
+        }
+        if (options.isSymmetry() && Symmetry.isMirrorSymmetric(boards[0])) {
+            rootCount = dropMirroredMoves(rootMoves, rootCount);
+        }
+        orderRootByEvaluation();
+        long rootEntry = table.probe(tableKey(boards[0], rootKey));
+        int rootTtMove = rootEntry != 0 ? Symmetry.transformMove(TranspositionTable.moveOf(rootEntry), canonicalTransform) : 0;
+        if (rootTtMove == 0) {
+            rootTtMove = rootHint;
+        }
+        rootHint = 0;
+        orderMoves(boards[0], 0, rootMoves, rootCount, rootTtMove);
+
+        List<BitBoardUtils.MovePair> bestPv = List.of(BitBoardUtils.MovePair.fromInt(rootMoves[0]));
+        List<SearchResult.ScoredMove> topMoves = List.of();
+        int bestScore = 0;
+        int completedDepth = 0;
+
+        for (int depth = Math.min(startDepth, maxDepth); depth <= maxDepth; depth++) {
+            int score = completedDepth > 0 ? aspirationSearch(depth, bestScore) : searchRoot(depth, -INFINITY, INFINITY);
+            if (stopped) {
+                break;                                  // unfinished iteration: keep the previous result
+            }
+            sortRootMoves();
+            completedDepth = depth;
+            bestScore = score;
+            bestPv = currentPv();
+            topMoves = currentTopMoves();
+            if (listener != null) {
+                listener.onIteration(depth, score, nodes, elapsedMs(), bestPv);
+            }
+            if (score >= WIN - depth && multiPv == 1) {
+                break;                                  // forced win within this depth: deeper cannot be shorter
+            }
+        }
+        stats.nodes = nodes;
+        stats.depth = completedDepth;
+        return new SearchResult(bestPv.get(0), bestScore, completedDepth, nodes, elapsedMs(), bestPv, topMoves,
+                options.isStatistics() ? stats.copy() : null);
+    }
+
+    /* ---------- core recursion ---------------------------------------------- */
+
+    /**
+     * Searches the root with a window around the previous iteration's score. On a fail low / fail high the
+     * failing side of the window is moved past the returned score and the margin doubles, until the score
+     * lies inside the window (at the latest when the window has grown to the full range).
+     */
+    private int aspirationSearch(int depth, int previousScore) {
+        if (!options.isAspiration() || multiPv > 1) {
+            return searchRoot(depth, -INFINITY, INFINITY);
+        }
+        int delta = options.getAspirationWindow();
+        int alpha = Math.max(-INFINITY, previousScore - delta);
+        int beta = Math.min(INFINITY, previousScore + delta);
+        while (true) {
+            int score = searchRoot(depth, alpha, beta);
+            if (stopped) {
+                return 0;
+            }
+            if (score <= alpha && alpha > -INFINITY) {
+                alpha = Math.max(-INFINITY, score - delta);
+            } else if (score >= beta && beta < INFINITY) {
+                beta = Math.min(INFINITY, score + delta);
+            } else {
+                return score;
+            }
+            delta *= 2;
+            if (delta > MAX_ASPIRATION_WINDOW) {
+                alpha = -INFINITY;
+                beta = INFINITY;
+            }
+        }
+    }
+
+    /**
+     * Searches all root moves inside (alpha, beta). With multiPv = k every move is searched against the k-th
+     * best score found so far instead of the best one, so the first k moves end up with exact scores.
+     */
+    private int searchRoot(int depth, int alpha, int beta) {
+        pvLength[0] = 0;
+        nodes++;
+        Board board = boards[0];
+        Board child = boards[1];
+        int best = -INFINITY;
+        int bestMove = 0;
+        java.util.Arrays.fill(iterationScores, 0, rootCount, -INFINITY);
+
+        for (int i = 0; i < rootCount; i++) {
+            int moveAlpha = Math.max(alpha, kthBestScore(i));
+            child.copyFrom(board);
+            BitBoardUtils.makeMove(rootMoves[i], child);
+            int score;
+            if (i == 0 || !options.isPvs()) {
+                score = -alphaBeta(depth - 1, 1, true, -beta, -moveAlpha);
+            } else {
+                score = -alphaBeta(depth - 1, 1, true, -moveAlpha - 1, -moveAlpha);
+                if (score > moveAlpha && score < beta && !stopped) {
+                    score = -alphaBeta(depth - 1, 1, true, -beta, -moveAlpha);
+                }
+            }
+            if (stopped) {
+                return 0;
+            }
+            iterationScores[i] = score;
+            if (score > best) {
+                best = score;
+                bestMove = rootMoves[i];
+                updatePv(0, bestMove);
+                if (best >= beta) {
+                    break;                               // fail high, the aspiration loop widens the window
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                : best <= alpha ? TranspositionTable.BOUND_UPPER : TranspositionTable.BOUND_EXACT;
+        long key = tableKey(board, board.hashKey());
+        table.store(key, depth, bound, best, Symmetry.transformMove(bestMove, canonicalTransform));
+        return best;
+    }
+
+    /**
+     * Scores repetitions as a draw, otherwise searches the node with its key on the path stack.
+     *
+     * @param nullAllowed false directly after a null move, so that two passes in a row cannot happen
+     */
+    private int alphaBeta(int depth, int ply, boolean nullAllowed, int alpha, int beta) {
+        long key = boards[ply].hashKey();
+        if (path.isRepetition(key)) {
+            pvLength[ply] = ply;
+            nodes++;
+            stats.repetitions++;
+            return DRAW;
+        }
+        path.push(key, !nullAllowed);                    // nothing before a null move can repeat after it
+        int score = searchNode(depth, ply, nullAllowed, alpha, beta, key);
+        path.pop();
+        return score;
+    }
+
+    private int searchNode(int depth, int ply, boolean nullAllowed, int alpha, int beta, long key) {
+        pvLength[ply] = ply;
+        nodes++;
+        if ((nodes & CHECK_INTERVAL) == 0 || (nodeLimit > 0 && nodes >= nodeLimit)) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        Board board = boards[ply];
+
+        /* ---------- game-ending positions and horizon ------------------------ */
+        Player prev = (board.getCurrentPlayer() == Player.RED) ? Player.BLUE : Player.RED;
+        if (BitBoardUtils.checkplayerWon(board, prev)) {
+            return -(WIN - ply);                         // the side to move has lost
+        }
+        /* ---------- win in one ----------------------------------------------- */
+        // also at the horizon: a capturable guard is a fact, not something the evaluation should guess
+        if (ply < MAX_PLY) {
+            int win = Threats.winningMove(board);
+            if (win != 0) {
+                stats.winsInOne++;
+                pvLength[ply + 1] = ply + 1;
+                updatePv(ply, win);
+                return WIN - ply - 1;
+            }
+        }
+        if (depth <= 0 || ply >= MAX_PLY) {
+            return staticEvaluation(board, key);
+        }
+
+        /* ---------- mate-distance pruning ------------------------------------ */
+        // nothing here can beat a win found closer to the root
+        alpha = Math.max(alpha, -(WIN - ply));
+        beta = Math.min(beta, WIN - ply - 1);
+        if (alpha >= beta) {
+            return alpha;
+        }
+
+        /* ---------- transposition table -------------------------------------- */
+        long ttKey = tableKey(board, key);
+        int symmetry = canonicalTransform;
+        long entry = table.probe(ttKey);
+        int ttMove = 0;
+        if (entry != 0) {
+            ttMove = Symmetry.transformMove(TranspositionTable.moveOf(entry), symmetry);
+            if (TranspositionTable.depthOf(entry) >= depth) {
+                int ttScore = scoreFromTable(TranspositionTable.scoreOf(entry), ply);
+                int bound = TranspositionTable.boundOf(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && ttScore >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && ttScore <= alpha)) {
+                    stats.ttCutoffs++;
+                    return ttScore;
+                }
+            }
+        }
+
+        boolean pvNode = beta - alpha > 1;
+        boolean inDanger = guardInDanger(board);
+        boolean winWindow = alpha <= -WIN_BOUND || beta >= WIN_BOUND;   // bounds are exact, not estimates
+        int staticEval = staticEvaluation(board, key);
+        Board child = boards[ply + 1];
+
+        /* ---------- null move ------------------------------------------------ */
+        if (options.isNullMove() && nullAllowed && !pvNode && !inDanger && !winWindow
+                && depth >= options.getNullMoveMinDepth() && staticEval >= beta && hasTowers(board)) {
+            stats.nullMoveTries++;
+            int r = options.getNullMoveReduction() + (depth > 6 ? 1 : 0);
+            child.copyFrom(board);
+            child.setCurrentPlayer(prev);
+            int score = -alphaBeta(depth - 1 - r, ply + 1, false, -beta, -beta + 1);
+            if (stopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                stats.nullMoveCutoffs++;
+                return beta;                             // even passing holds: no need to search the moves
+            }
+        }
+
+        /* ---------- razoring ------------------------------------------------- */
+        if (options.isRazoring() && !pvNode && !inDanger && !winWindow && depth <= RAZOR_DEPTH
+                && staticEval + options.getRazorMargin() * depth <= alpha) {
+            stats.razorReductions++;
+            if (--depth == 0) {
+                return staticEval;
+            }
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count = utils.generateAllLegalMoves(board, moves);
+        if (count == 0) {                                // stalemate or no moves
+            return staticEval;
+        }
+        orderMoves(board, ply, moves, count, ttMove);
+        int[] keys = orderKeys[ply];
+
+        boolean futile = options.isFutility() && !pvNode && !inDanger && !winWindow && depth <= FUTILITY_DEPTH
+                && staticEval + options.getFutilityMargin() * depth <= alpha;
+        int side = board.getCurrentPlayer() == Player.RED ? 0 : 1;
+        int alphaOrig = alpha;
+        int best = -INFINITY;
+        int bestMove = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            boolean quiet = keys[i] < KILLER_KEY;        // neither table move nor capture
+            if (futile && i > 0 && quiet) {
+                stats.futilityPruned++;
+                continue;
+            }
+            child.copyFrom(board);
+            BitBoardUtils.makeMove(move, child);
+
+            int reduction = 0;
+            if (options.isLmr() && !inDanger && quiet && i >= options.getLmrMoveIndex()
+                    && depth >= options.getLmrMinDepth() && !BitBoardUtils.isGuardAttacked(child, prev)) {
+                reduction = (depth >= 6 && i >= 2 * options.getLmrMoveIndex()) ? 2 : 1;
+                reduction = Math.min(reduction, depth - 2);
+            }
+
+            int score = 0;
+            boolean full = true;
+            if (reduction > 0) {
+                stats.lmrReductions++;
+                score = -alphaBeta(depth - 1 - reduction, ply + 1, true, -alpha - 1, -alpha);
+                full = score > alpha && !stopped;
+                if (full) stats.lmrResearches++;
+            }
+            if (full) {
+                if (i == 0 || !options.isPvs()) {
+                    score = -alphaBeta(depth - 1, ply + 1, true, -beta, -alpha);
+                } else {
+                    // scout with a null window, re-search only if the move may beat alpha
+                    score = -alphaBeta(depth - 1, ply + 1, true, -alpha - 1, -alpha);
+                    if (score > alpha && score < beta && !stopped) {
+                        score = -alphaBeta(depth - 1, ply + 1, true, -beta, -alpha);
+                    }
+                }
+            }
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, bestMove);
+                    if (alpha >= beta) {                 // cut-off
+                        stats.betaCutoffs++;
+                        if (i == 0) stats.firstMoveCutoffs++;
+                        if (quiet) rememberQuietCutoff(ply, side, move, depth);
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                : best > alphaOrig ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        table.store(ttKey, depth, bound, scoreToTable(best, ply), Symmetry.transformMove(bestMove, symmetry));
+        return best;
+    }
+
+    /**
+     * Win / loss scores count plies from the root; in the table they count from the stored node, so the
+     * entry is valid wherever the position is reached again.
+     */
+    static int scoreToTable(int score, int ply) {
+        if (score >= WIN_BOUND) return score + ply;
+        if (score <= -WIN_BOUND) return score - ply;
+        return score;
+    }
+
+    static int scoreFromTable(int score, int ply) {
+        if (score >= WIN_BOUND) return score - ply;
+        if (score <= -WIN_BOUND) return score + ply;
+        return score;
+    }
+
+    /**
+     * @return plies to the end of the game for a win (positive) or loss (negative) score, else 0
+     */
+    public static int pliesToWin(int score) {
+        if (score >= WIN_BOUND) return WIN - score;
+        if (score <= -WIN_BOUND) return -(WIN + score);
+        return 0;
+    }
+
+    /**
+     * @return the table key of {@code board}: the canonical key over all symmetric orientations (the transform
+     * that produced it is left in {@link #canonicalTransform}), or the plain {@code key} without symmetry
+     */
+    private long tableKey(Board board, long key) {
+        canonicalTransform = Symmetry.IDENTITY;
+        if (!options.isSymmetry()) {
+            return key;
+        }
+        long best = key;
+        for (int t = 1; t < Symmetry.COUNT; t++) {
+            long k = Symmetry.key(board, t, scratch);
+            if (k < best) {
+                best = k;
+                canonicalTransform = t;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Keeps one move of every pair that mirror onto each other (mirror-symmetric root only).
+     *
+     * @return new move count
+     */
+    private static int dropMirroredMoves(int[] moves, int count) {
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int m = moves[i];
+            if (m <= Symmetry.transformMove(m, Symmetry.MIRROR)) {
+                moves[n++] = m;
+            }
+        }
+        return n;
+    }
+
+    /* ---------- move ordering ---------------------------------------------- */
+
+    private static final int TT_KEY = 1 << 30;
+    private static final int GUARD_CAPTURE_KEY = 1 << 29;
+    private static final int CAPTURE_KEY = 1 << 28;
+    private static final int THREAT_KEY = (1 << 27) + 4;         // attacks the enemy guard: above killers
+    private static final int KILLER_KEY = 1 << 27;
+    private static final int MAX_HISTORY = KILLER_KEY - 1;
+
+    /**
+     * Puts the table move first, followed by captures (guard captures, then higher captured towers first),
+     * the killer moves of this ply and the quiet moves by their history score.
+     * The keys stay in {@code orderKeys[ply]} so the search can tell quiet moves apart.
+     */
+    private void orderMoves(Board board, int ply, int[] moves, int count, int ttMove) {
+        int[] keys = orderKeys[ply];
+        long enemy = board.getCurrentPlayer() == Player.RED ? board.getBlue() : board.getRed();
+        int[] sideHistory = history[board.getCurrentPlayer() == Player.RED ? 0 : 1];
+        Threats.guardThreatSquares(board, enemy & board.getGuards(), threatSquares);
+        for (int i = 0; i < count; i++) {
+            int m = moves[i];
+            long to = 1L << ((m >>> 6) & 63);
+            if (m == ttMove) {
+                keys[i] = TT_KEY;
+            } else if ((enemy & board.getGuards() & to) != 0) {
+                keys[i] = GUARD_CAPTURE_KEY;             // guard capture wins the game
+            } else if ((enemy & to) != 0) {
+                int capturedHeight = 0;
+                while (capturedHeight < 7 && (board.getStack(capturedHeight) & to) != 0) capturedHeight++;
+                keys[i] = CAPTURE_KEY + capturedHeight;
+            } else if (Threats.threatens(m, threatSquares)) {
+                keys[i] = THREAT_KEY;                    // forcing: never reduced or pruned as quiet
+            } else if (m == killers[ply][0]) {
+                keys[i] = KILLER_KEY + 1;
+            } else if (m == killers[ply][1]) {
+                keys[i] = KILLER_KEY;
+            } else {
+                keys[i] = sideHistory[m & 0xFFF];
+            }
+        }
+        sortByKeys(moves, keys, count);
+    }
+
+    /**
+     * Prepares killers and history for the next search: the position is (usually) two plies further on.
+     */
+    private void ageKillersAndHistory() {
+        for (int ply = 0; ply + 2 <= MAX_PLY; ply++) {
+            killers[ply][0] = killers[ply + 2][0];
+            killers[ply][1] = killers[ply + 2][1];
+        }
+        killers[MAX_PLY - 1][0] = killers[MAX_PLY - 1][1] = 0;
+        killers[MAX_PLY][0] = killers[MAX_PLY][1] = 0;
+        for (int[] h : history) {
+            for (int i = 0; i < h.length; i++) h[i] >>= 2;      // keep a little knowledge from the last search
+        }
+    }
+
+    private void rememberQuietCutoff(int ply, int side, int move, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] h = history[side];
+        h[move & 0xFFF] = Math.min(MAX_HISTORY, h[move & 0xFFF] + depth * depth);
+    }
+
+    /**
+     * True if passing or pruning could decide the game: the own guard can be captured, the enemy guard stands
+     * next to the own castle, or either guard has a path of at most {@link #RACE_STEPS} steps to its target
+     * that the other side cannot reach with one move ({@link GuardRace#safeCastleDistance(Board, Player)}).
+     */
+    private static boolean guardInDanger(Board board) {
+        Player side = board.getCurrentPlayer();
+        if (BitBoardUtils.isGuardAttacked(board, side)) {
+            return true;
+        }
+        Player enemy = side == Player.RED ? Player.BLUE : Player.RED;
+        long enemyGuard = board.getGuards() & (side == Player.RED ? board.getBlue() : board.getRed());
+        long ownCastle = 1L << (side == Player.RED ? RED_CASTLE : BLUE_CASTLE);
+        return (Evaluation.neighbours(ownCastle) & enemyGuard) != 0
+                || GuardRace.safeCastleDistance(board, side) <= RACE_STEPS
+                || GuardRace.safeCastleDistance(board, enemy) <= RACE_STEPS;
+    }
+
+    /**
+     * Null moves are only safe with some material besides the guard (zugzwang of a lone guard).
+     */
+    private static boolean hasTowers(Board board) {
+        long own = board.getCurrentPlayer() == Player.RED ? board.getRed() : board.getBlue();
+        return (own & ~board.getGuards()) != 0;
+    }
+
+    /**
+     * Insertion sort, descending by key and stable for equal keys (move lists are short).
+     */
+    private static void sortByKeys(int[] moves, int[] keys, int count) {
+        for (int i = 1; i < count; i++) {
+            int k = keys[i];
+            int m = moves[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] < k) {
+                keys[j + 1] = keys[j];
+                moves[j + 1] = moves[j];
+                j--;
+            }
+            keys[j + 1] = k;
+            moves[j + 1] = m;
+        }
+    }
+
+    /**
+     * Sorts the root moves by the static evaluation of the positions they lead to (one batch call), as the
+     * tie-break for the first iteration's move ordering.
+     */
+    private void orderRootByEvaluation() {
+        rootBatch.clear();
+        Board child = boards[1];
+        for (int i = 0; i < rootCount; i++) {
+            child.copyFrom(boards[0]);
+            BitBoardUtils.makeMove(rootMoves[i], child);
+            rootBatch.add(child);
+        }
+        int[] keys = orderKeys[0];
+        BatchEvaluator.evaluateRelative(rootBatch, keys);
+        for (int i = 0; i < rootCount; i++) {
+            keys[i] = -keys[i];                          // the child is seen from the opponent's side
+        }
+        sortByKeys(rootMoves, keys, rootCount);
+    }
+
+    private void sortRootMoves() {
+        System.arraycopy(iterationScores, 0, rootScores, 0, rootCount);
+        sortByKeys(rootMoves, rootScores, rootCount);
+    }
+
+    /**
+     * @return the multiPv-th best score among the first {@code searched} root moves of this iteration,
+     * or -INFINITY if fewer moves have been searched
+     */
+    private int kthBestScore(int searched) {
+        if (searched < multiPv) {
+            return -INFINITY;
+        }
+        if (multiPv == 1) {
+            int best = -INFINITY;
+            for (int i = 0; i < searched; i++) best = Math.max(best, iterationScores[i]);
+            return best;
+        }
+        int[] top = topScores;
+        java.util.Arrays.fill(top, 0, multiPv, -INFINITY);
+        for (int i = 0; i < searched; i++) {
+            int s = iterationScores[i];
+            for (int j = 0; j < multiPv; j++) {
+                if (s > top[j]) {
+                    System.arraycopy(top, j, top, j + 1, multiPv - j - 1);
+                    top[j] = s;
+                    break;
+                }
+            }
+        }
+        return top[multiPv - 1];
+    }
+
+    private void updatePv(int ply, int move) {
+        pvTable[ply][ply] = move;
+        int childLength = pvLength[ply + 1];
+        for (int i = ply + 1; i < childLength; i++) {
+            pvTable[ply][i] = pvTable[ply + 1][i];
+        }
+        pvLength[ply] = Math.max(childLength, ply + 1);
+    }
+
+    private List<BitBoardUtils.MovePair> currentPv() {
+        List<BitBoardUtils.MovePair> pv = new ArrayList<>(pvLength[0]);
+        for (int i = 0; i < pvLength[0]; i++) {
+            pv.add(BitBoardUtils.MovePair.fromInt(pvTable[0][i]));
+        }
+        return pv;
+    }
+
+    private List<SearchResult.ScoredMove> currentTopMoves() {
+        int n = Math.min(multiPv, rootCount);
+        List<SearchResult.ScoredMove> top = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            top.add(new SearchResult.ScoredMove(BitBoardUtils.MovePair.fromInt(rootMoves[i]), rootScores[i]));
+        }
+        return top;
+    }
+
+    private void checkLimits() {
+        if (stopFlag.get()
+                || (nodeLimit > 0 && nodes >= nodeLimit)
+                || (deadlineNanos != 0 && System.nanoTime() >= deadlineNanos)) {
+            stopped = true;
+        }
+    }
+
+    private long elapsedMs() {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
+    /**
+     * {@link #relativeEvaluation(Board)} through the evaluation cache; {@code key} is the board's hash key.
+     */
+    private int staticEvaluation(Board board, long key) {
+        stats.evalProbes++;
+        int eval = evalCache.probe(key);
+        if (eval != EvalCache.MISS) {
+            stats.evalHits++;
+            return eval;
+        }
+        eval = relativeEvaluation(board);
+        evalCache.store(key, eval);
+        return eval;
+    }
+
+    /**
+     * {@link BitBoardUtils#evaluate(Board)} from the point of view of the side to move.
+     */
+    static int relativeEvaluation(Board board) {
+        int eval = BitBoardUtils.evaluate(board);
+        return board.getCurrentPlayer() == Player.RED ? eval : -eval;
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Limits for one call of {@link Search#search}. A value of 0 means "no limit" for that dimension;
+ * without any limit the search runs until {@link Search#stop()} is called.
+ */
+public final class SearchLimits {
+
+    private int depth;
+    private long moveTimeMs;
+    private long nodes;
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits().setDepth(depth);
+    }
+
+    public static SearchLimits moveTime(long moveTimeMs) {
+        return new SearchLimits().setMoveTimeMs(moveTimeMs);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits().setNodes(nodes);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public SearchLimits setDepth(int depth) {
+        this.depth = depth;
+        return this;
+    }
+
+    public long getMoveTimeMs() {
+        return moveTimeMs;
+    }
+
+    public SearchLimits setMoveTimeMs(long moveTimeMs) {
+        this.moveTimeMs = moveTimeMs;
+        return this;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public SearchLimits setNodes(long nodes) {
+        this.nodes = nodes;
+        return this;
+    }
+}
@@ -0,0 +1,16 @@
+import java.util.List;
+
+/**
+ * Receives a report after every completed iteration of {@link Search#search}.
+ */
+public interface SearchListener {
+
+    /**
+     * @param depth  depth of the finished iteration
+     * @param score  score from the point of view of the side to move
+     * @param nodes  nodes visited so far
+     * @param timeMs time since the search started
+     * @param pv     principal variation, starting with the best move
+     */
+    void onIteration(int depth, int score, long nodes, long timeMs, List<BitBoardUtils.MovePair> pv);
+}
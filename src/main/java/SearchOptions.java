@@ -0,0 +1,194 @@
+/**
+ * Tunable switches and parameters of {@link Search}. The defaults are what the engine plays with;
+ * benchmarks and tests turn single techniques off to measure what they save.
+ */
+public final class SearchOptions {
+
+    private boolean pvs = true;
+    private boolean aspiration = true;
+    private int aspirationWindow = 50;       // half width of the first root window (half a piece)
+
+    private boolean nullMove = true;
+    private int nullMoveReduction = 2;       // R, one more from depth 7 on
+    private int nullMoveMinDepth = 3;
+
+    private boolean lmr = true;
+    private int lmrMinDepth = 3;
+    private int lmrMoveIndex = 3;            // moves before this index are never reduced
+
+    private boolean futility = true;
+    private int futilityMargin = 150;        // per ply of remaining depth, depth 1-2
+    private boolean razoring = true;
+    private int razorMargin = 300;           // per ply of remaining depth, depth 1-3
+
+    private boolean symmetry = true;
+
+    private boolean statistics;
+
+    public boolean isPvs() {
+        return pvs;
+    }
+
+    /**
+     * Principal variation search: only the first move of a node gets the full (alpha, beta) window, the
+     * others are scouted with a null window and re-searched only if they fail high.
+     */
+    public SearchOptions setPvs(boolean pvs) {
+        this.pvs = pvs;
+        return this;
+    }
+
+    public boolean isAspiration() {
+        return aspiration;
+    }
+
+    /**
+     * Aspiration windows: from depth 2 on the root is searched with a window around the previous iteration's
+     * score, which is widened on a fail low / fail high.
+     */
+    public SearchOptions setAspiration(boolean aspiration) {
+        this.aspiration = aspiration;
+        return this;
+    }
+
+    public int getAspirationWindow() {
+        return aspirationWindow;
+    }
+
+    public SearchOptions setAspirationWindow(int aspirationWindow) {
+        this.aspirationWindow = Math.max(1, aspirationWindow);
+        return this;
+    }
+
+    public boolean isNullMove() {
+        return nullMove;
+    }
+
+    /**
+     * Null-move pruning: in non-PV nodes whose static evaluation is already above beta the side to move passes,
+     * and if a search reduced by R still fails high the node is cut. Skipped while the own guard can be captured
+     * or the enemy guard stands next to the own castle, where passing would lose at once.
+     */
+    public SearchOptions setNullMove(boolean nullMove) {
+        this.nullMove = nullMove;
+        return this;
+    }
+
+    public int getNullMoveReduction() {
+        return nullMoveReduction;
+    }
+
+    public SearchOptions setNullMoveReduction(int nullMoveReduction) {
+        this.nullMoveReduction = Math.max(1, nullMoveReduction);
+        return this;
+    }
+
+    public int getNullMoveMinDepth() {
+        return nullMoveMinDepth;
+    }
+
+    public SearchOptions setNullMoveMinDepth(int nullMoveMinDepth) {
+        this.nullMoveMinDepth = Math.max(1, nullMoveMinDepth);
+        return this;
+    }
+
+    public boolean isLmr() {
+        return lmr;
+    }
+
+    /**
+     * Late move reductions: quiet moves ordered late are searched one ply shallower (two in long move lists)
+     * and re-searched at full depth only if they beat alpha.
+     */
+    public SearchOptions setLmr(boolean lmr) {
+        this.lmr = lmr;
+        return this;
+    }
+
+    public int getLmrMinDepth() {
+        return lmrMinDepth;
+    }
+
+    public SearchOptions setLmrMinDepth(int lmrMinDepth) {
+        this.lmrMinDepth = Math.max(2, lmrMinDepth);
+        return this;
+    }
+
+    public int getLmrMoveIndex() {
+        return lmrMoveIndex;
+    }
+
+    public SearchOptions setLmrMoveIndex(int lmrMoveIndex) {
+        this.lmrMoveIndex = Math.max(1, lmrMoveIndex);
+        return this;
+    }
+
+    public boolean isFutility() {
+        return futility;
+    }
+
+    /**
+     * Futility pruning: one or two plies before the horizon, quiet moves are skipped when the static evaluation
+     * plus {@code margin * depth} cannot reach alpha.
+     */
+    public SearchOptions setFutility(boolean futility) {
+        this.futility = futility;
+        return this;
+    }
+
+    public int getFutilityMargin() {
+        return futilityMargin;
+    }
+
+    public SearchOptions setFutilityMargin(int futilityMargin) {
+        this.futilityMargin = Math.max(0, futilityMargin);
+        return this;
+    }
+
+    public boolean isRazoring() {
+        return razoring;
+    }
+
+    /**
+     * Razoring: up to three plies before the horizon, nodes whose static evaluation is far below alpha are
+     * searched one ply shallower.
+     */
+    public SearchOptions setRazoring(boolean razoring) {
+        this.razoring = razoring;
+        return this;
+    }
+
+    public int getRazorMargin() {
+        return razorMargin;
+    }
+
+    public SearchOptions setRazorMargin(int razorMargin) {
+        this.razorMargin = Math.max(0, razorMargin);
+        return this;
+    }
+
+    public boolean isSymmetry() {
+        return symmetry;
+    }
+
+    /**
+     * Symmetry: store table entries under {@link Symmetry#canonicalKey(Board)} so mirrored and colour-flipped
+     * positions share them, and search only one move of every mirrored pair at a mirror-symmetric root.
+     */
+    public SearchOptions setSymmetry(boolean symmetry) {
+        this.symmetry = symmetry;
+        return this;
+    }
+
+    public boolean isStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Attach {@link SearchStatistics} (what each technique pruned) to the {@link SearchResult}.
+     */
+    public SearchOptions setStatistics(boolean statistics) {
+        this.statistics = statistics;
+        return this;
+    }
+}
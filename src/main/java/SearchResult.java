@@ -0,0 +1,100 @@
+import java.util.List;
+
+/**
+ * Outcome of a {@link Search#search} call.
+ */
+public final class SearchResult {
+    private final BitBoardUtils.MovePair bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long timeMs;
+    private final List<BitBoardUtils.MovePair> pv;
+    private final List<ScoredMove> topMoves;
+    private final SearchStatistics statistics;
+
+    public SearchResult(BitBoardUtils.MovePair bestMove, int score, int depth, long nodes, long timeMs,
+                        List<BitBoardUtils.MovePair> pv, List<ScoredMove> topMoves) {
+        this(bestMove, score, depth, nodes, timeMs, pv, topMoves, null);
+    }
+
+    public SearchResult(BitBoardUtils.MovePair bestMove, int score, int depth, long nodes, long timeMs,
+                        List<BitBoardUtils.MovePair> pv, List<ScoredMove> topMoves, SearchStatistics statistics) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMs = timeMs;
+        this.pv = pv;
+        this.topMoves = topMoves;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return best move found, or null if the side to move has no legal move
+     */
+    public BitBoardUtils.MovePair getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return score of the best move from the point of view of the side to move
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return depth of the last completed iteration
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMs() {
+        return timeMs;
+    }
+
+    public List<BitBoardUtils.MovePair> getPv() {
+        return pv;
+    }
+
+    /**
+     * @return the best root moves with their scores, best first (as many as {@link Search#setMultiPv(int)} asked for)
+     */
+    public List<ScoredMove> getTopMoves() {
+        return topMoves;
+    }
+
+    /**
+     * @return pruning statistics, or null unless {@link SearchOptions#setStatistics(boolean)} was on
+     */
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * A root move together with its search score (point of view of the side to move).
+     */
+    public static final class ScoredMove {
+        private final BitBoardUtils.MovePair move;
+        private final int score;
+
+        public ScoredMove(BitBoardUtils.MovePair move, int score) {
+            this.move = move;
+            this.score = score;
+        }
+
+        public BitBoardUtils.MovePair getMove() {
+            return move;
+        }
+
+        public int getScore() {
+            return score;
+        }
+    }
+}
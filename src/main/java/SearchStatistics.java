@@ -0,0 +1,144 @@
+/**
+ * Counters of the selective techniques in {@link Search}: how often each one was tried and how often it
+ * actually saved work. Filled during every search; handed out with the {@link SearchResult} when
+ * {@link SearchOptions#setStatistics(boolean)} is on.
+ */
+public final class SearchStatistics {
+
+    long nodes;
+    long nullMoveTries;
+    long nullMoveCutoffs;
+    long lmrReductions;
+    long lmrResearches;
+    long futilityPruned;
+    long razorReductions;
+    long ttCutoffs;
+    long repetitions;
+    long betaCutoffs;
+    long firstMoveCutoffs;
+    long evalProbes;
+    long evalHits;
+    long winsInOne;
+    int depth;
+
+    void reset() {
+        nodes = 0;
+        nullMoveTries = 0;
+        nullMoveCutoffs = 0;
+        lmrReductions = 0;
+        lmrResearches = 0;
+        futilityPruned = 0;
+        razorReductions = 0;
+        ttCutoffs = 0;
+        repetitions = 0;
+        betaCutoffs = 0;
+        firstMoveCutoffs = 0;
+        evalProbes = 0;
+        evalHits = 0;
+        winsInOne = 0;
+        depth = 0;
+    }
+
+    SearchStatistics copy() {
+        SearchStatistics c = new SearchStatistics();
+        c.nodes = nodes;
+        c.nullMoveTries = nullMoveTries;
+        c.nullMoveCutoffs = nullMoveCutoffs;
+        c.lmrReductions = lmrReductions;
+        c.lmrResearches = lmrResearches;
+        c.futilityPruned = futilityPruned;
+        c.razorReductions = razorReductions;
+        c.ttCutoffs = ttCutoffs;
+        c.repetitions = repetitions;
+        c.betaCutoffs = betaCutoffs;
+        c.firstMoveCutoffs = firstMoveCutoffs;
+        c.evalProbes = evalProbes;
+        c.evalHits = evalHits;
+        c.winsInOne = winsInOne;
+        c.depth = depth;
+        return c;
+    }
+
+    public long getNullMoveTries() {
+        return nullMoveTries;
+    }
+
+    public long getNullMoveCutoffs() {
+        return nullMoveCutoffs;
+    }
+
+    public long getLmrReductions() {
+        return lmrReductions;
+    }
+
+    /**
+     * @return reduced moves that beat alpha and had to be searched again at full depth
+     */
+    public long getLmrResearches() {
+        return lmrResearches;
+    }
+
+    public long getFutilityPruned() {
+        return futilityPruned;
+    }
+
+    public long getRazorReductions() {
+        return razorReductions;
+    }
+
+    public long getTtCutoffs() {
+        return ttCutoffs;
+    }
+
+    /**
+     * @return nodes scored as a draw because the position already occurred in the game or on the search path
+     */
+    public long getRepetitions() {
+        return repetitions;
+    }
+
+    /**
+     * @return share of beta cut-offs caused by the first move searched (move ordering quality)
+     */
+    public double getFirstMoveCutoffRate() {
+        return betaCutoffs == 0 ? 0 : (double) firstMoveCutoffs / betaCutoffs;
+    }
+
+    /**
+     * @return nodes scored as won at once because the side to move had a winning move ({@link Threats}),
+     *         in particular every move that allowed an immediate loss, refuted without expanding its node
+     */
+    public long getWinsInOne() {
+        return winsInOne;
+    }
+
+    /**
+     * @return static evaluations requested by the search (leaves and pruning decisions)
+     */
+    public long getEvalProbes() {
+        return evalProbes;
+    }
+
+    /**
+     * @return share of static evaluations answered by the {@link EvalCache}
+     */
+    public double getEvalHitRate() {
+        return evalProbes == 0 ? 0 : (double) evalHits / evalProbes;
+    }
+
+    /**
+     * @return nodes^(1/depth) of the search, the average number of moves searched per node
+     */
+    public double getEffectiveBranchingFactor() {
+        return depth == 0 || nodes == 0 ? 0 : Math.pow(nodes, 1.0 / depth);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ebf %.2f, null move %d/%d cut, lmr %d reduced/%d re-searched, futility %d pruned, "
+                        + "razoring %d reduced, tt %d cut, %d repetitions, first move cut %.1f%%, eval cache hit %.1f%%, %d wins in one",
+                getEffectiveBranchingFactor(), nullMoveCutoffs, nullMoveTries, lmrReductions, lmrResearches,
+                futilityPruned, razorReductions, ttCutoffs, repetitions, 100 * getFirstMoveCutoffRate(),
+                100 * getEvalHitRate(), winsInOne);
+    }
+}
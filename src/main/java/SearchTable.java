@@ -0,0 +1,31 @@
+/**
+ * Hash table of search results, shared by all searches of a session or analysis pool.
+ *
+ * <p>Implementations store one data word per position in the layout of {@link TranspositionTable}
+ * (score | move | depth | bound, read with its static accessors) and must tolerate concurrent probes and
+ * stores without locks: a torn entry has to read as "not found".</p>
+ */
+public interface SearchTable {
+
+    /**
+     * @return the data word stored for {@code key}, or 0 if the position is not in the table
+     */
+    long probe(long key);
+
+    /**
+     * Stores a search result; whether an existing entry is replaced is up to the implementation.
+     */
+    void store(long key, int depth, int bound, int score, int move);
+
+    void clear();
+
+    /**
+     * Reallocates the table for {@code sizeMb} megabytes. All stored entries are lost.
+     */
+    void resize(int sizeMb);
+
+    /**
+     * @return number of entries
+     */
+    long capacity();
+}
@@ -0,0 +1,253 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless self-play: plays many games in parallel with fixed-node searches and writes every searched
+ * position with its score, best move and the final game result to a {@link PositionWriter} corpus, e.g. as
+ * input for {@link EvalTuner} or benchmarks.
+ *
+ * <p>Every game starts from the start position plus {@code random} uniformly random plies. Game g uses its
+ * own seed and starts with a cleared table and history, so the corpus holds the same records (in another
+ * order) whatever the number of threads. A game ends with a win, when the side to move has no move, when a
+ * position repeats (draw) or after {@link Match#MAX_GAME_PLIES} plies (draw). Nothing is printed per move;
+ * the generation rate is reported every {@code report} seconds.</p>
+ *
+ * <pre>
+ * usage: SelfPlay [out=selfplay.gtpc] [games=1000] [positions=0] [nodes=200] [random=8]
+ *                 [threads=&lt;cores&gt;] [seed=1] [report=10]
+ * </pre>
+ */
+public final class SelfPlay {
+
+    public static final long DEFAULT_NODES = 200;
+    public static final int DEFAULT_RANDOM_PLIES = 8;
+    private static final int TABLE_MB = 1;              // per thread; a few hundred nodes per move fit easily
+
+    private final Path out;
+    private final int games;
+    private final long maxPositions;
+    private final long nodes;
+    private final int randomPlies;
+    private final int threads;
+    private final long seed;
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private final AtomicInteger finishedGames = new AtomicInteger();
+    private final AtomicLong positions = new AtomicLong();
+    private final AtomicLong[] results = {new AtomicLong(), new AtomicLong(), new AtomicLong()};
+    private volatile IOException failure;
+    private PositionWriter writer;
+    private long elapsedNanos;
+
+    /**
+     * @param games        number of games to play
+     * @param maxPositions no new game is started once this many positions are written (0 = no limit)
+     * @param nodes        node limit of every search
+     * @param randomPlies  random plies before the first searched position
+     */
+    public SelfPlay(Path out, int games, long maxPositions, long nodes, int randomPlies, int threads, long seed) {
+        this.out = out;
+        this.games = games;
+        this.maxPositions = maxPositions;
+        this.nodes = nodes;
+        this.randomPlies = randomPlies;
+        this.threads = Math.max(1, threads);
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path out = Paths.get("selfplay.gtpc");
+        int games = 1000;
+        long positions = 0;
+        long nodes = DEFAULT_NODES;
+        int random = DEFAULT_RANDOM_PLIES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        int report = 10;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "out" -> out = Paths.get(kv[1]);
+                case "games" -> games = Integer.parseInt(kv[1]);
+                case "positions" -> positions = Long.parseLong(kv[1]);
+                case "nodes" -> nodes = Long.parseLong(kv[1]);
+                case "random" -> random = Integer.parseInt(kv[1]);
+                case "threads" -> threads = Integer.parseInt(kv[1]);
+                case "seed" -> seed = Long.parseLong(kv[1]);
+                case "report" -> report = Integer.parseInt(kv[1]);
+                default -> throw new IllegalArgumentException("unknown argument " + arg);
+            }
+        }
+        SelfPlay selfPlay = new SelfPlay(out, games, positions, nodes, random, threads, seed);
+        selfPlay.run(System.out, report * 1000L);
+        System.out.println(selfPlay);
+    }
+
+    /**
+     * Plays the games on {@code threads} threads and writes the corpus.
+     *
+     * @param progress   receives a progress line every {@code reportMs} milliseconds, may be null
+     * @throws IOException if the corpus could not be written
+     */
+    public void run(PrintStream progress, long reportMs) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try (PositionWriter w = new PositionWriter(out)) {
+            writer = w;
+            Thread[] workers = new Thread[threads];
+            for (int i = 0; i < threads; i++) {
+                workers[i] = new Thread(this::work, "selfplay-" + i);
+                workers[i].start();
+            }
+            for (Thread worker : workers) {
+                while (worker.isAlive()) {
+                    worker.join(reportMs > 0 ? reportMs : 0);
+                    if (progress != null && reportMs > 0 && worker.isAlive()) {
+                        progress.printf("%d games, %d positions, %.0f positions/s%n", finishedGames.get(),
+                                positions.get(), positions.get() / ((System.nanoTime() - start) / 1e9));
+                    }
+                }
+            }
+        } finally {
+            elapsedNanos = System.nanoTime() - start;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public int getGames() {
+        return finishedGames.get();
+    }
+
+    public long getPositions() {
+        return positions.get();
+    }
+
+    /**
+     * @return number of games with this {@link PositionCodec} result (red's point of view)
+     */
+    public long getResults(int result) {
+        return results[result].get();
+    }
+
+    public double getPositionsPerSecond() {
+        return elapsedNanos == 0 ? 0 : positions.get() / (elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games (red +%d =%d -%d), %d positions in %.1f s, %.0f positions/s", getGames(),
+                getResults(PositionCodec.RESULT_RED_WIN), getResults(PositionCodec.RESULT_DRAW),
+                getResults(PositionCodec.RESULT_BLUE_WIN), getPositions(), elapsedNanos / 1e9,
+                getPositionsPerSecond());
+    }
+
+    /* ---------- worker ---------------------------------------------------------- */
+
+    private void work() {
+        Game game = new Game();
+        int g;
+        while (failure == null && (maxPositions == 0 || positions.get() < maxPositions)
+                && (g = nextGame.getAndIncrement()) < games) {
+            int result = game.play(new Random(seed * 0x9E3779B97F4A7C15L + g));
+            try {
+                synchronized (writer) {                 // a whole game per lock, the encoding is cheap
+                    int flags = PositionCodec.FLAG_SCORE | PositionCodec.FLAG_MOVE | PositionCodec.resultFlags(result);
+                    for (int i = 0; i < game.count; i++) {
+                        writer.write(game.boards[i], flags, game.scores[i], game.moves[i]);
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+                return;
+            }
+            positions.addAndGet(game.count);
+            results[result].incrementAndGet();
+            finishedGames.incrementAndGet();
+        }
+    }
+
+    /**
+     * Search state and the positions of the current game, reused for all games of one thread.
+     */
+    private final class Game {
+        final BitBoardUtils utils = new BitBoardUtils();
+        final TranspositionTable table = new TranspositionTable(TABLE_MB);
+        final Search search = new Search(utils, table);
+        final PositionHistory history = new PositionHistory();
+        final SearchLimits limits = SearchLimits.nodes(nodes);
+        final int[] buffer = new int[BitBoardUtils.MAX_MOVES];
+        final Board start = new Board();
+        final Board board = new Board();
+        final Board[] boards = new Board[Match.MAX_GAME_PLIES];
+        final int[] scores = new int[Match.MAX_GAME_PLIES];
+        final int[] moves = new int[Match.MAX_GAME_PLIES];
+        int count;
+
+        Game() {
+            for (int i = 0; i < boards.length; i++) boards[i] = new Board();
+            search.setHistory(history);
+        }
+
+        /**
+         * @return the {@link PositionCodec} result; the searched positions are in {@code boards[0..count)}
+         */
+        int play(Random random) {
+            openWith(random);
+            table.clear();
+            search.clearHistory();
+            history.clear();
+            history.push(board.hashKey());
+            count = 0;
+            for (int ply = 0; ply < Match.MAX_GAME_PLIES; ply++) {
+                Player mover = board.getCurrentPlayer();
+                int move = Threats.winningMove(board);
+                int score = Search.WIN - 1;
+                if (move == 0) {
+                    SearchResult r = search.search(board, limits);
+                    if (r.getBestMove() == null) {
+                        return mover == Player.RED ? PositionCodec.RESULT_BLUE_WIN : PositionCodec.RESULT_RED_WIN;
+                    }
+                    move = r.getBestMove().toInt();
+                    score = r.getScore();
+                }
+                boards[count].copyFrom(board);
+                scores[count] = score;
+                moves[count] = move;
+                count++;
+                BitBoardUtils.makeMove(move, board);
+                if (BitBoardUtils.checkplayerWon(board, mover)) {
+                    return mover == Player.RED ? PositionCodec.RESULT_RED_WIN : PositionCodec.RESULT_BLUE_WIN;
+                }
+                long key = board.hashKey();
+                if (history.isRepetition(key)) {
+                    break;
+                }
+                history.push(key);
+            }
+            return PositionCodec.RESULT_DRAW;
+        }
+
+        /**
+         * Plays the random opening plies; an opening that ends the game is started again.
+         */
+        private void openWith(Random random) {
+            boolean over = true;
+            while (over) {
+                board.copyFrom(start);
+                over = false;
+                for (int ply = 0; ply < randomPlies && !over; ply++) {
+                    int n = utils.generateAllLegalMoves(board, buffer);
+                    Player mover = board.getCurrentPlayer();
+                    over = n == 0 || BitBoardUtils.checkplayerWon(BitBoardUtils.makeMove(buffer[random.nextInt(n)], board), mover);
+                }
+                over |= utils.generateAllLegalMoves(board, buffer) == 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * The symmetries of the game: mirroring the files, and swapping the colours together with flipping the ranks
+ * (red's castle on D7 becomes blue's castle on D1 and vice versa). Both castles lie on the middle file, so
+ * {@link BitBoardUtils#checkplayerWon(Board, Player)}, the move rules and {@link Evaluation} look the same from
+ * every one of the four resulting orientations, and a score from the side to move's point of view is the same
+ * for all of them.
+ *
+ * <p>The plane transforms are bit-parallel (one mask and shift per file or rank pair). {@link #canonicalKey(Board)}
+ * picks the smallest {@link Board#hashKey()} of the four orientations, so one table, book or tablebase entry
+ * serves all equivalent positions; moves stored with such an entry have to be mapped with
+ * {@link #transformMove(int, int)}.</p>
+ */
+public final class Symmetry {
+
+    public static final int IDENTITY = 0;
+    public static final int MIRROR = 1;        // files A-G reversed
+    public static final int COLOR_FLIP = 2;    // ranks reversed, colours and side to move swapped
+    public static final int ROTATE_COLOR = 3;  // rotated by 180°, colours and side to move swapped
+    public static final int COUNT = 4;
+
+    private static final long ROW_0 = 0x7FL;
+    private static final long COL_0 = 0x0040810204081L;
+
+    /** SQUARE_MAP[t][square] = image of square under transform t (every transform is its own inverse). */
+    private static final int[][] SQUARE_MAP = new int[COUNT][49];
+
+    static {
+        for (int sq = 0; sq < 49; sq++) {
+            int row = sq / 7;
+            int col = sq % 7;
+            SQUARE_MAP[IDENTITY][sq] = sq;
+            SQUARE_MAP[MIRROR][sq] = row * 7 + (6 - col);
+            SQUARE_MAP[COLOR_FLIP][sq] = (6 - row) * 7 + col;
+            SQUARE_MAP[ROTATE_COLOR][sq] = 48 - sq;
+        }
+    }
+
+    private Symmetry() {
+    }
+
+    /* ---------- plane transforms --------------------------------------------- */
+
+    public static long mirrorFiles(long x) {
+        return (x & COL_0) << 6 | (x & COL_0 << 6) >>> 6
+                | (x & COL_0 << 1) << 4 | (x & COL_0 << 5) >>> 4
+                | (x & COL_0 << 2) << 2 | (x & COL_0 << 4) >>> 2
+                | (x & COL_0 << 3);
+    }
+
+    public static long flipRanks(long x) {
+        return (x & ROW_0) << 42 | (x & ROW_0 << 42) >>> 42
+                | (x & ROW_0 << 7) << 28 | (x & ROW_0 << 35) >>> 28
+                | (x & ROW_0 << 14) << 14 | (x & ROW_0 << 28) >>> 14
+                | (x & ROW_0 << 21);
+    }
+
+    public static long rotate180(long x) {
+        return mirrorFiles(flipRanks(x));
+    }
+
+    static long transformPlane(long x, int t) {
+        switch (t) {
+            case MIRROR:
+                return mirrorFiles(x);
+            case COLOR_FLIP:
+                return flipRanks(x);
+            case ROTATE_COLOR:
+                return rotate180(x);
+            default:
+                return x;
+        }
+    }
+
+    /* ---------- boards and moves -------------------------------------------- */
+
+    /**
+     * Writes the image of {@code src} under transform {@code t} into {@code dst} (no allocation).
+     */
+    public static void transform(Board src, int t, Board dst) {
+        boolean swap = t >= COLOR_FLIP;
+        long red = transformPlane(src.getRed(), t);
+        long blue = transformPlane(src.getBlue(), t);
+        dst.setGuards(transformPlane(src.getGuards(), t));
+        dst.setRed(swap ? blue : red);
+        dst.setBlue(swap ? red : blue);
+        for (int i = 0; i < 7; i++) {
+            dst.setStack(i, transformPlane(src.getStack(i), t));
+        }
+        Player side = src.getCurrentPlayer();
+        if (swap && side != null) {
+            side = side == Player.RED ? Player.BLUE : Player.RED;
+        }
+        dst.setCurrentPlayer(side);
+    }
+
+    /**
+     * Maps a move packed with {@link BitBoardUtils.MovePair#toInt()}; transform {@code t} is its own inverse.
+     */
+    public static int transformMove(int move, int t) {
+        if (move == 0 || t == IDENTITY) {
+            return move;
+        }
+        int from = SQUARE_MAP[t][move & 63];
+        int to = SQUARE_MAP[t][(move >>> 6) & 63];
+        return from | to << 6 | (move & ~0xFFF);
+    }
+
+    public static int transformSquare(int square, int t) {
+        return SQUARE_MAP[t][square];
+    }
+
+    /**
+     * @return {@link Board#hashKey()} of the image of {@code board} under {@code t}, built in {@code scratch}
+     */
+    public static long key(Board board, int t, Board scratch) {
+        if (t == IDENTITY) {
+            return board.hashKey();
+        }
+        transform(board, t, scratch);
+        return scratch.hashKey();
+    }
+
+    /**
+     * @return the transform whose image of {@code board} has the smallest hash key
+     */
+    public static int canonicalTransform(Board board, Board scratch) {
+        int best = IDENTITY;
+        long bestKey = board.hashKey();
+        for (int t = 1; t < COUNT; t++) {
+            long k = key(board, t, scratch);
+            if (k < bestKey) {
+                bestKey = k;
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the same key for all four orientations of a position
+     */
+    public static long canonicalKey(Board board) {
+        Board scratch = new Board();
+        return key(board, canonicalTransform(board, scratch), scratch);
+    }
+
+    /**
+     * @return true if mirroring the files leaves the position unchanged, so every move and its mirror image
+     * lead to equivalent positions
+     */
+    public static boolean isMirrorSymmetric(Board board) {
+        if (mirrorFiles(board.getRed()) != board.getRed()
+                || mirrorFiles(board.getBlue()) != board.getBlue()
+                || mirrorFiles(board.getGuards()) != board.getGuards()) {
+            return false;
+        }
+        for (int i = 0; i < 7; i++) {
+            if (mirrorFiles(board.getStack(i)) != board.getStack(i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Immediate tactics as bitboards: which squares each side attacks (by the number of moved pieces, i.e. the
+ * move distance), whether the side to move wins with its next move, and where a piece would have to land
+ * to threaten the enemy guard.
+ *
+ * <p>The rays are the same shifted target sets as in {@link BitBoardUtils#generateAllLegalMoves(Board, int[])}:
+ * a tower of height h moves k &lt;= h pieces exactly k squares over empty squares and may capture an enemy
+ * piece of height &lt;= k; a guard steps one square. Nothing here allocates.</p>
+ */
+public final class Threats {
+
+    private static final long FULL = Evaluation.FULL;
+    private static final long NOT_COL_0 = FULL & ~Evaluation.COL_0;
+    private static final long NOT_COL_6 = FULL & ~Evaluation.COL_6;
+    /** Longest possible move (7 squares per line), the length of the per-distance arrays. */
+    public static final int MAX_DISTANCE = 6;
+
+    private Threats() {
+    }
+
+    /**
+     * @param byDistance receives at index k - 1 the squares reachable by moving exactly k pieces (k steps);
+     *                   index 0 includes the guard's steps. Needs {@link #MAX_DISTANCE} entries.
+     * @return union of all attacked squares (equals {@link GuardRace#attacks(Board, long)})
+     */
+    public static long attacks(Board board, long side, long[] byDistance) {
+        long guards = board.getGuards();
+        long towers = side & ~guards;
+        long empty = FULL & ~board.getStack(0);
+        long all = 0;
+        for (int k = 1; k <= MAX_DISTANCE; k++) {
+            long origins = towers & board.getStack(k - 1);  // towers that can move k pieces
+            long reached = 0;
+            for (int dir = 0; dir < 4; dir++) {
+                long ray = origins;
+                for (int step = 1; step <= k && ray != 0; step++) {
+                    ray = shift(step == 1 ? ray : ray & empty, dir);
+                }
+                reached |= ray;
+            }
+            if (k == 1) {
+                reached |= Evaluation.neighbours(guards & side);
+            }
+            byDistance[k - 1] = reached;
+            all |= reached;
+        }
+        return all;
+    }
+
+    /**
+     * @return true if the side to move wins with its next move (enemy guard capturable, or own guard next
+     *         to the enemy castle and the castle not blocked by an own piece)
+     */
+    public static boolean winInOne(Board board) {
+        return winningMove(board) != 0;
+    }
+
+    /**
+     * @return a move of the side to move that ends the game at once, packed like the move generator's
+     *         moves, or 0 if there is none. A guard capture is preferred over entering the castle.
+     */
+    public static int winningMove(Board board) {
+        boolean red = board.getCurrentPlayer() == Player.RED;
+        long own = red ? board.getRed() : board.getBlue();
+        long enemy = red ? board.getBlue() : board.getRed();
+        long guards = board.getGuards();
+        long ownGuard = guards & own;
+        long enemyGuard = guards & enemy;
+
+        if (enemyGuard != 0) {
+            int target = Long.numberOfTrailingZeros(enemyGuard);
+            long empty = FULL & ~board.getStack(0);
+            for (int dir = 0; dir < 4; dir++) {
+                long ray = enemyGuard;
+                for (int k = 1; k <= MAX_DISTANCE; k++) {
+                    ray = shift(ray, dir);
+                    if (ray == 0) break;
+                    if ((ray & empty) != 0) continue;
+                    // first piece on the ray, k squares away: it captures with a k-piece move
+                    if ((ray & own) != 0 && ((ray & ownGuard) != 0 ? k == 1 : (ray & board.getStack(k - 1)) != 0)) {
+                        return Long.numberOfTrailingZeros(ray) | target << 6 | k << 12;
+                    }
+                    break;
+                }
+            }
+        }
+        long castle = 1L << (red ? Evaluation.BLUE_CASTLE : Evaluation.RED_CASTLE);
+        if (ownGuard != 0 && (Evaluation.neighbours(ownGuard) & castle & ~own) != 0) {
+            return Long.numberOfTrailingZeros(ownGuard) | Long.numberOfTrailingZeros(castle) << 6 | 1 << 12;
+        }
+        return 0;
+    }
+
+    /**
+     * Landing squares that would attack {@code enemyGuard}: {@code byDistance[k - 1]} holds the squares k steps
+     * from the guard along a free line, so a piece of height &gt;= k arriving there threatens to capture it.
+     *
+     * @return union of all entries
+     */
+    public static long guardThreatSquares(Board board, long enemyGuard, long[] byDistance) {
+        long empty = FULL & ~board.getStack(0);
+        long north = enemyGuard;
+        long south = enemyGuard;
+        long east = enemyGuard;
+        long west = enemyGuard;
+        long all = 0;
+        for (int k = 1; k <= MAX_DISTANCE; k++) {
+            long pass = k == 1 ? FULL : empty;            // the guard itself, then only free squares
+            north = shift(north & pass, BitBoardUtils.NORTH);
+            south = shift(south & pass, BitBoardUtils.SOUTH);
+            east = shift(east & pass, BitBoardUtils.EAST);
+            west = shift(west & pass, BitBoardUtils.WEST);
+            byDistance[k - 1] = north | south | east | west;
+            all |= byDistance[k - 1];
+        }
+        return all;
+    }
+
+    /**
+     * @return whether the packed {@code move} lands on a square from which the moved pieces attack the
+     *         square whose threat rings are {@code threatSquares} (see {@link #guardThreatSquares})
+     */
+    public static boolean threatens(int move, long[] threatSquares) {
+        long to = 1L << ((move >>> 6) & 63);
+        int height = (move >>> 12) & 7;
+        for (int k = 0; k < height && k < MAX_DISTANCE; k++) {
+            if ((threatSquares[k] & to) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * One square in direction {@code dir}, shifted the way the move generator of {@link BitBoardUtils} does:
+     * north {@code << 7}, south {@code >>> 7}, east {@code >>> 1}, west {@code << 1}; pieces leaving the board
+     * on a side are dropped instead of wrapping to the next row.
+     */
+    private static long shift(long b, int dir) {
+        switch (dir) {
+            case BitBoardUtils.NORTH:
+                return (b << 7) & FULL;
+            case BitBoardUtils.SOUTH:
+                return b >>> 7;
+            case BitBoardUtils.EAST:
+                return (b & NOT_COL_0) >>> 1;
+            default:
+                return (b & NOT_COL_6) << 1;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Fixed-size hash table that remembers search results per position (key = {@link Board#hashKey()}).
+ *
+ * <p>Every entry consists of two longs: the key xor-ed with the data word, and the data word itself.
+ * A torn write from a concurrent search thread therefore shows up as a key mismatch instead of
+ * a wrong score, so helper threads can share one table without locks.</p>
+ *
+ * <p>Data word layout: score (32 bit) | move (15 bit) | depth (8 bit) | bound (2 bit).</p>
+ */
+public final class TranspositionTable implements SearchTable {
+
+    public static final int BOUND_NONE = 0;
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2;   // score >= stored value (fail high)
+    public static final int BOUND_UPPER = 3;   // score <= stored value (fail low)
+
+    private static final int ENTRY_BYTES = 16;
+
+    private long[] keys;
+    private long[] data;
+    private int mask;
+
+    public TranspositionTable(int sizeMb) {
+        resize(sizeMb);
+    }
+
+    /**
+     * Reallocates the table with the largest power-of-two number of entries that fits into {@code sizeMb}.
+     * All stored entries are lost.
+     */
+    @Override
+    public void resize(int sizeMb) {
+        long bytes = Math.max(1, sizeMb) * 1024L * 1024L;
+        int entries = Integer.highestOneBit((int) Math.min(bytes / ENTRY_BYTES, 1 << 30));
+        this.keys = new long[entries];
+        this.data = new long[entries];
+        this.mask = entries - 1;
+    }
+
+    @Override
+    public void clear() {
+        java.util.Arrays.fill(keys, 0L);
+        java.util.Arrays.fill(data, 0L);
+    }
+
+    @Override
+    public long capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the data word stored for {@code key}, or 0 if the position is not in the table
+     */
+    @Override
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long d = data[index];
+        if ((keys[index] ^ d) != key) {
+            return 0L;
+        }
+        return d;
+    }
+
+    /**
+     * Stores a search result. An entry of another position is always replaced, an entry of the same
+     * position only by a search of at least the same depth (or by an exact score).
+     */
+    @Override
+    public void store(long key, int depth, int bound, int score, int move) {
+        int index = (int) key & mask;
+        long old = data[index];
+        if ((keys[index] ^ old) == key) {
+            if (depth < depthOf(old) && bound != BOUND_EXACT) {
+                return;
+            }
+            if (move == 0) {
+                move = moveOf(old);                 // keep the known best move
+            }
+        }
+        long d = pack(score, move, depth, bound);
+        data[index] = d;
+        keys[index] = key ^ d;
+    }
+
+    /* ---------- data word accessors ---------------------------------------- */
+
+    static long pack(int score, int move, int depth, int bound) {
+        return ((long) score << 32) | ((long) (move & 0x7FFF) << 10) | ((long) (depth & 0xFF) << 2) | (bound & 3);
+    }
+
+    public static int scoreOf(long data) {
+        return (int) (data >> 32);
+    }
+
+    public static int moveOf(long data) {
+        return (int) (data >>> 10) & 0x7FFF;
+    }
+
+    public static int depthOf(long data) {
+        return (int) (data >>> 2) & 0xFF;
+    }
+
+    public static int boundOf(long data) {
+        return (int) data & 3;
+    }
+}
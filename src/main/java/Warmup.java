@@ -0,0 +1,207 @@
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Warms up the JIT while there is nothing else to do (e.g. while the client waits for the opponent), so the
+ * first real search already runs in optimised code instead of the interpreter or C1.
+ *
+ * <p>Runs a fixed, deterministic mix of move generation, {@link BitBoardUtils#makeMove(int, Board)},
+ * {@link Evaluation#evaluate(Board)} and short searches over built-in positions on a background thread until
+ * {@link #stop()} is called. Compilations are watched with a JFR event stream: the report says whether the
+ * hot search methods have been compiled by C2 (tier 4), or that this is unknown if the JVM has no JFR.</p>
+ */
+public final class Warmup {
+
+    private static final String[] POSITIONS = {
+            "r1r11RG1r1r1/2r11r12/3r13/7/3b13/2b11b12/b1b11BG1b1b1 r",
+            "3RG3/1r25/7/3r3b42/1b1BG4/4b12/7 r",
+            "3RG3/2r11r12/1r21r11r21/7/3b33/2b11b12/1b21BG3 b",
+            "7/6r3/1RG5/3b43/1r25/7/2BG3r1 r",
+            "b36/3b12r3/7/7/1r2RG4/2BG4/6r1 b",
+            "r1r11RG1r1r1/2r11r12/3r13/7/3b13/2b11b12/b1b11BG1b1b1 b"
+    };
+    private static final long NODES_PER_SEARCH = 20_000;
+    private static final int C2_LEVEL = 4;
+
+    /** Methods that decide how deep the search gets; "Class.method". */
+    static final Set<String> HOT_METHODS = Set.of(
+            "Search.searchNode", "BitBoardUtils.generateAllLegalMoves", "Evaluation.evaluate", "Board.hashKey");
+
+    /** Receives the workload's checksum, so the JIT cannot drop the work as dead code. */
+    static volatile long sink;
+
+    private final BitBoardUtils utils;
+    private final AtomicBoolean stopFlag = new AtomicBoolean();
+    private final CountDownLatch firstRound = new CountDownLatch(1);
+    private final Set<String> optimised = ConcurrentHashMap.newKeySet();
+    private Thread thread;
+    private RecordingStream compilations;
+    private boolean jfrAvailable;
+    private volatile long rounds;
+    private volatile long nodes;
+    private long startNanos;
+    private long stopNanos;
+
+    /**
+     * @param utils the move tables the real searches will use
+     */
+    public Warmup(BitBoardUtils utils) {
+        this.utils = utils;
+    }
+
+    /**
+     * Starts warming up in the background.
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+        watchCompilations();
+        thread = new Thread(this::run, "jit-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stops at once (the running search polls the stop flag every 1024 nodes) and reports what was reached.
+     */
+    public Report stop() throws InterruptedException {
+        stopFlag.set(true);
+        if (thread != null) {
+            thread.join();
+        }
+        stopNanos = System.nanoTime();
+        if (compilations != null) {
+            compilations.close();
+        }
+        return report();
+    }
+
+    /**
+     * Waits until at least one full round of the workload is done.
+     *
+     * @return false if that did not happen within {@code timeoutMs}
+     */
+    boolean awaitFirstRound(long timeoutMs) throws InterruptedException {
+        return firstRound.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    public Report report() {
+        long end = stopNanos != 0 ? stopNanos : System.nanoTime();
+        return new Report(rounds, nodes, (end - startNanos) / 1_000_000L,
+                jfrAvailable ? Set.copyOf(optimised) : null);
+    }
+
+    /* ---------- workload ----------------------------------------------------- */
+
+    private void run() {
+        Board[] positions = new Board[POSITIONS.length];
+        for (int i = 0; i < POSITIONS.length; i++) {
+            positions[i] = new Board(POSITIONS[i]);
+        }
+        Search search = new Search(utils, new TranspositionTable(1), stopFlag);
+        int[] moves = new int[BitBoardUtils.MAX_MOVES];
+        Board child = new Board();
+        long checksum = 0;
+
+        while (!stopFlag.get()) {
+            for (Board position : positions) {
+                int count = utils.generateAllLegalMoves(position, moves);
+                for (int i = 0; i < count; i++) {
+                    child.copyFrom(position);
+                    BitBoardUtils.makeMove(moves[i], child);
+                    checksum += Evaluation.evaluate(child) + utils.generateAllLegalMoves(child).size();
+                }
+                if (stopFlag.get()) break;
+                SearchResult result = search.search(position, SearchLimits.nodes(NODES_PER_SEARCH));
+                nodes += result.getNodes();
+            }
+            rounds++;
+            firstRound.countDown();
+        }
+        sink = checksum;
+    }
+
+    /* ---------- compilation watch -------------------------------------------- */
+
+    private void watchCompilations() {
+        try {
+            compilations = new RecordingStream();
+            compilations.enable("jdk.Compilation");
+            compilations.onEvent("jdk.Compilation", this::onCompilation);
+            compilations.startAsync();
+            jfrAvailable = true;
+        } catch (RuntimeException | LinkageError e) {        // no JFR in this JVM
+            compilations = null;
+            jfrAvailable = false;
+        }
+    }
+
+    private void onCompilation(RecordedEvent event) {
+        if (event.getInt("compileLevel") < C2_LEVEL) {
+            return;
+        }
+        RecordedMethod method = event.getValue("method");
+        String name = method.getType().getName() + "." + method.getName();
+        if (HOT_METHODS.contains(name)) {
+            optimised.add(name);
+        }
+    }
+
+    /**
+     * Outcome of a warm-up.
+     */
+    public static final class Report {
+        private final long rounds;
+        private final long nodes;
+        private final long timeMs;
+        private final Set<String> c2Methods;
+
+        Report(long rounds, long nodes, long timeMs, Set<String> c2Methods) {
+            this.rounds = rounds;
+            this.nodes = nodes;
+            this.timeMs = timeMs;
+            this.c2Methods = c2Methods;
+        }
+
+        public long getRounds() {
+            return rounds;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getTimeMs() {
+            return timeMs;
+        }
+
+        /**
+         * @return hot methods seen compiled at tier 4, or null if compilations could not be observed
+         */
+        public Set<String> getC2Methods() {
+            return c2Methods;
+        }
+
+        /**
+         * @return true / false whether the search recursion runs C2 code, null if unknown
+         */
+        public Boolean isSearchOptimised() {
+            return c2Methods == null ? null : c2Methods.contains("Search.searchNode");
+        }
+
+        @Override
+        public String toString() {
+            String c2 = c2Methods == null ? "C2 status unknown (no JFR)"
+                    : (isSearchOptimised() ? "search compiled by C2" : "search NOT yet compiled by C2")
+                    + ", C2: " + c2Methods;
+            return String.format("warm-up: %d rounds, %d nodes in %d ms, %s", rounds, nodes, timeMs, c2);
+        }
+    }
+}
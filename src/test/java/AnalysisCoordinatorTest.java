@@ -0,0 +1,221 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalysisCoordinatorTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<Board> positions(int count) {
+        return BenchmarkPositions.random(count * 2, 11).stream()
+                .filter(b -> !BitBoardUtils.checkplayerWon(b, Player.RED) && !BitBoardUtils.checkplayerWon(b, Player.BLUE))
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    private static Thread startWorker(int port) {
+        Thread t = new Thread(new AnalysisWorker("localhost", port, 4));
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private static void assertLegal(List<Board> positions, List<AnalysisCoordinator.Result> results) {
+        BitBoardUtils utils = new BitBoardUtils();
+        assertEquals(positions.size(), results.size());
+        for (int i = 0; i < positions.size(); i++) {
+            List<BitBoardUtils.MovePair> legal = utils.generateAllLegalMoves(positions.get(i));
+            assertTrue(legal.contains(results.get(i).getMove()), positions.get(i).toFen());
+        }
+    }
+
+    @Test
+    void workersAnalyseAllPositionsInOrder() throws Exception {
+        List<Board> positions = positions(40);
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(0, null, 60_000)) {
+            coordinator.setBatchSize(4);
+            startWorker(coordinator.getPort());
+            startWorker(coordinator.getPort());
+            List<AnalysisCoordinator.Result> results = coordinator.analyse(positions, 3);
+            assertLegal(positions, results);
+            assertTrue(coordinator.getNodes() > 0);
+            assertEquals(0, coordinator.getFailures());
+        }
+    }
+
+    @Test
+    void jobOfAFailedWorkerIsReassigned() throws Exception {
+        List<Board> positions = positions(8);
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(0, null, 60_000)) {
+            coordinator.setBatchSize(8);
+            // a worker that takes the only job and dies
+            Thread crashing = new Thread(() -> {
+                try (Socket socket = new Socket("localhost", coordinator.getPort())) {
+                    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    AnalysisFrames.write(out, AnalysisFrames.HELLO, AnalysisFrames.hello());
+                    ByteBuffer job = AnalysisFrames.read(new DataInputStream(socket.getInputStream()));
+                    assertEquals(AnalysisFrames.JOB, job.get(0));
+                    assertEquals(8, AnalysisFrames.jobBoards(job).length);
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            crashing.start();
+            while (coordinator.getWorkers() == 0) {
+                Thread.sleep(5);
+            }
+            AtomicReference<List<AnalysisCoordinator.Result>> results = new AtomicReference<>();
+            Thread caller = new Thread(() -> {
+                try {
+                    results.set(coordinator.analyse(positions, 2));
+                } catch (InterruptedException ignored) {
+                }
+            });
+            caller.start();
+            crashing.join();
+            startWorker(coordinator.getPort());
+            caller.join(30_000);
+            assertNotNull(results.get());
+            assertLegal(positions, results.get());
+            assertEquals(1, coordinator.getFailures());
+        }
+    }
+
+    @Test
+    void checkpointResumesFinishedJobs() throws Exception {
+        List<Board> positions = positions(12);
+        Path checkpoint = dir.resolve("analysis.ckpt");
+        List<AnalysisCoordinator.Result> first;
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(0, checkpoint, 60_000)) {
+            coordinator.setBatchSize(4);
+            startWorker(coordinator.getPort());
+            first = coordinator.analyse(positions, 3);
+        }
+        try (AnalysisCoordinator again = new AnalysisCoordinator(0, checkpoint, 60_000)) {
+            again.setBatchSize(4);
+            List<AnalysisCoordinator.Result> second = again.analyse(positions, 3);   // no worker needed
+            assertEquals(3, again.getResumed());
+            for (int i = 0; i < first.size(); i++) {
+                assertEquals(first.get(i).getMove(), second.get(i).getMove());
+                assertEquals(first.get(i).getScore(), second.get(i).getScore());
+            }
+        }
+    }
+
+    @Test
+    void malformedReplyCountsAsAFailedWorker() throws Exception {
+        List<Board> positions = positions(4);
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(0, null, 60_000)) {
+            coordinator.setBatchSize(4);
+            // answers its job with a RESULT frame that claims a huge count but has no payload
+            Thread broken = new Thread(() -> {
+                try (Socket socket = new Socket("localhost", coordinator.getPort())) {
+                    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+                    AnalysisFrames.write(out, AnalysisFrames.HELLO, AnalysisFrames.hello());
+                    ByteBuffer job = AnalysisFrames.read(in);
+                    ByteBuffer reply = AnalysisFrames.allocate(20);
+                    reply.putLong(0, AnalysisFrames.jobId(job)).putInt(16, Integer.MAX_VALUE);
+                    AnalysisFrames.write(out, AnalysisFrames.RESULT, reply);
+                    in.read();                                    // until the coordinator hangs up
+                } catch (IOException ignored) {
+                }
+            });
+            broken.start();
+            while (coordinator.getWorkers() == 0) {
+                Thread.sleep(5);
+            }
+            AtomicReference<List<AnalysisCoordinator.Result>> results = new AtomicReference<>();
+            Thread caller = new Thread(() -> {
+                try {
+                    results.set(coordinator.analyse(positions, 2));
+                } catch (InterruptedException ignored) {
+                }
+            });
+            caller.start();
+            broken.join(30_000);
+            startWorker(coordinator.getPort());
+            caller.join(30_000);
+            assertNotNull(results.get());
+            assertLegal(positions, results.get());
+            assertEquals(1, coordinator.getFailures());
+        }
+    }
+
+    @Test
+    void tornCheckpointRecordIsCutOff() throws Exception {
+        List<Board> positions = positions(16);
+        Path checkpoint = dir.resolve("analysis.ckpt");
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(0, checkpoint, 60_000)) {
+            coordinator.setBatchSize(4);
+            startWorker(coordinator.getPort());
+            coordinator.analyse(positions.subList(0, 12), 3);
+        }
+        long complete = Files.size(checkpoint);
+        // a crash while writing: id and count of a record, but only one of its three ints
+        ByteBuffer torn = ByteBuffer.allocate(16).putLong(7).putInt(3).putInt(5);
+        Files.write(checkpoint, torn.array(), StandardOpenOption.APPEND);
+
+        List<AnalysisCoordinator.Result> second;
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(0, checkpoint, 60_000)) {
+            assertEquals(complete, Files.size(checkpoint));
+            coordinator.setBatchSize(4);
+            startWorker(coordinator.getPort());
+            second = coordinator.analyse(positions, 3);
+            assertEquals(3, coordinator.getResumed());
+        }
+        try (AnalysisCoordinator again = new AnalysisCoordinator(0, checkpoint, 60_000)) {
+            again.setBatchSize(4);
+            List<AnalysisCoordinator.Result> third = again.analyse(positions, 3);   // no worker needed
+            assertEquals(4, again.getResumed());
+            for (int i = 0; i < second.size(); i++) {
+                assertEquals(second.get(i).getMove(), third.get(i).getMove());
+                assertEquals(second.get(i).getScore(), third.get(i).getScore());
+            }
+        }
+    }
+
+    @Test
+    void rootMovesAreSplitIntoJobs() throws Exception {
+        Board root = new Board("7/3RG3/7/3r23/3b13/3BG3/7 r");
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(0, null, 60_000)) {
+            startWorker(coordinator.getPort());
+            startWorker(coordinator.getPort());
+            AnalysisCoordinator.Result best = coordinator.analyseRootMoves(root, 4);
+            assertTrue(new BitBoardUtils().generateAllLegalMoves(root).contains(best.getMove()));
+            SearchResult local = new Search(new BitBoardUtils(), new TranspositionTable(4)).search(root, SearchLimits.depth(4));
+            assertEquals(local.getScore() >= Search.WIN_BOUND, best.getScore() >= Search.WIN_BOUND);
+            if (local.getScore() >= Search.WIN_BOUND) {
+                assertEquals(local.getScore(), best.getScore(), "same distance to the win");
+            }
+        }
+    }
+
+    @Test
+    void framesRoundTripPositions() {
+        List<Board> positions = positions(5);
+        ByteBuffer payload = AnalysisFrames.job(42, 6, positions.toArray(new Board[0]));
+        ByteBuffer frame = AnalysisFrames.allocate(1 + payload.limit());
+        frame.put(0, AnalysisFrames.JOB);
+        for (int i = 0; i < payload.limit(); i++) frame.put(1 + i, payload.get(i));
+        assertEquals(42, AnalysisFrames.jobId(frame));
+        assertEquals(6, AnalysisFrames.jobDepth(frame));
+        Board[] decoded = AnalysisFrames.jobBoards(frame);
+        assertEquals(positions, new ArrayList<>(List.of(decoded)));
+    }
+}
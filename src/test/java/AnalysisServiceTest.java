@@ -0,0 +1,115 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalysisServiceTest {
+
+    private static final String[] FENS = {
+            "r1r11RG1r1r1/2r11r12/3r13/7/3b13/2b11b12/b1b11BG1b1b1 r",
+            "3RG3/1r25/7/3r3b42/1b1BG4/4b12/7 r",
+            "3RG3/2r11r12/1r21r11r21/7/3b33/2b11b12/1b21BG3 b",
+            "3RG3/7/7/7/4b11b1/4r4r11/3BG1b11 b"
+    };
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final Gson gson = new Gson();
+
+    private CompletableFuture<HttpResponse<String>> post(int port, String json) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/analyse"))
+                .POST(HttpRequest.BodyPublishers.ofString(json)).build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void concurrentRequestsReturnLegalMoves() throws Exception {
+        AnalysisService service = new AnalysisService(0, 4, 64, 8);
+        service.start();
+        try {
+            List<CompletableFuture<HttpResponse<String>>> pending = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                pending.add(post(service.getPort(), "{\"fen\": \"" + FENS[i % FENS.length] + "\", \"depth\": 3, \"top\": 3}"));
+            }
+            for (int i = 0; i < pending.size(); i++) {
+                HttpResponse<String> response = pending.get(i).get();
+                assertEquals(200, response.statusCode(), response.body());
+                JsonObject json = gson.fromJson(response.body(), JsonObject.class);
+                Board board = new Board(FENS[i % FENS.length]);
+                BitBoardUtils.MovePair best = BitBoardUtils.MovePair.fromMove(Move.fromAlgebraic(json.get("bestMove").getAsString()));
+                assertTrue(new BitBoardUtils().generateAllLegalMoves(board).contains(best));
+                assertEquals(3, json.get("depth").getAsInt());
+                assertEquals(3, json.getAsJsonArray("topMoves").size());
+            }
+        } finally {
+            service.stop();
+        }
+    }
+
+    @Test
+    void fullQueueIsRejected() throws Exception {
+        AnalysisService service = new AnalysisService(0, 1, 1, 1);
+        service.start();
+        try {
+            List<CompletableFuture<HttpResponse<String>>> pending = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                pending.add(post(service.getPort(), "{\"fen\": \"" + FENS[0] + "\", \"depth\": 30, \"deadlineMs\": 300}"));
+            }
+            int rejected = 0;
+            for (CompletableFuture<HttpResponse<String>> f : pending) {
+                int status = f.get().statusCode();
+                assertTrue(status == 200 || status == 503 || status == 504, "unexpected status " + status);
+                if (status == 503) rejected++;
+            }
+            assertTrue(rejected > 0);
+        } finally {
+            service.stop();
+        }
+    }
+
+    @Test
+    void deadlineReturnsPartialResult() throws Exception {
+        AnalysisService service = new AnalysisService(0, 1, 4, 1);
+        service.start();
+        try {
+            HttpResponse<String> response = post(service.getPort(), "{\"fen\": \"" + FENS[1] + "\", \"depth\": 40, \"deadlineMs\": 200}").get();
+            assertEquals(200, response.statusCode());
+            assertFalse(gson.fromJson(response.body(), JsonObject.class).get("complete").getAsBoolean());
+        } finally {
+            service.stop();
+        }
+    }
+
+    @Test
+    void hugeTopIsClampedToTheLegalMoves() throws Exception {
+        AnalysisService service = new AnalysisService(0, 1, 1, 1);
+        service.start();
+        try {
+            HttpResponse<String> response = post(service.getPort(), "{\"fen\": \"" + FENS[3] + "\", \"depth\": 2, \"top\": 100000000}").get();
+            assertEquals(200, response.statusCode(), response.body());
+            int legal = new BitBoardUtils().generateAllLegalMoves(new Board(FENS[3])).size();
+            assertEquals(legal, gson.fromJson(response.body(), JsonObject.class).getAsJsonArray("topMoves").size());
+        } finally {
+            service.stop();
+        }
+    }
+
+    @Test
+    void badFenIsRejected() throws Exception {
+        AnalysisService service = new AnalysisService(0, 1, 1, 1);
+        service.start();
+        try {
+            assertEquals(400, post(service.getPort(), "{\"fen\": \"xx\"}").get().statusCode());
+        } finally {
+            service.stop();
+        }
+    }
+}
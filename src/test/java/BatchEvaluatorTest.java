@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchEvaluatorTest {
+
+    @Test
+    void batchMatchesSingleEvaluation() {
+        List<Board> positions = BenchmarkPositions.random(1000, 7);
+        BatchEvaluator.Batch batch = new BatchEvaluator.Batch(positions.size());
+        positions.forEach(batch::add);
+        int[] scores = new int[batch.size()];
+        int[] relative = new int[batch.size()];
+        BatchEvaluator.evaluate(batch, scores);
+        BatchEvaluator.evaluateRelative(batch, relative);
+        for (int i = 0; i < positions.size(); i++) {
+            assertEquals(Evaluation.evaluate(positions.get(i)), scores[i], "position " + i);
+            assertEquals(Search.relativeEvaluation(positions.get(i)), relative[i], "position " + i);
+        }
+    }
+
+    @Test
+    void scalarKernelMatchesWithAllFeatureWeights() {
+        List<Board> positions = BenchmarkPositions.random(300, 11);
+        BatchEvaluator.Batch batch = new BatchEvaluator.Batch(positions.size());
+        positions.forEach(batch::add);
+        int[] weights = {100, -7, 3, 11, 5, 13, 17};
+        int[] scores = new int[batch.size()];
+        new BatchEvaluator.ScalarKernel().evaluate(batch, 0, batch.size(), weights, scores);
+        int[] f = new int[Evaluation.FEATURE_COUNT];
+        for (int i = 0; i < positions.size(); i++) {
+            Evaluation.features(positions.get(i), f);
+            int expected = 0;
+            for (int j = 0; j < f.length; j++) expected += weights[j] * f[j];
+            assertEquals(expected, scores[i], "position " + i);
+        }
+    }
+
+    @Test
+    void batchThroughput() {
+        List<Board> positions = BenchmarkPositions.random(4096, 3);
+        BatchEvaluator.Batch batch = new BatchEvaluator.Batch(positions.size());
+        positions.forEach(batch::add);
+        int[] scores = new int[batch.size()];
+        long sum = 0;
+        for (int warm = 0; warm < 200; warm++) {
+            BatchEvaluator.evaluate(batch, scores);
+            for (Board b : positions) sum += Evaluation.evaluate(b);
+        }
+        int rounds = 500;
+        long t0 = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            BatchEvaluator.evaluate(batch, scores);
+            sum += scores[r % scores.length];
+        }
+        long t1 = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (Board b : positions) sum += Evaluation.evaluate(b);
+        }
+        long t2 = System.nanoTime();
+        double batchRate = (double) rounds * positions.size() / ((t1 - t0) / 1e9);
+        double singleRate = (double) rounds * positions.size() / ((t2 - t1) / 1e9);
+        System.out.printf("%s batch kernel: %.1f M positions/s, single calls: %.1f M positions/s (checksum %d)%n",
+                BatchEvaluator.kernelName(), batchRate / 1e6, singleRate / 1e6, sum);
+        assertTrue(batchRate > 0);
+    }
+}
@@ -0,0 +1,42 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test positions shared by the test classes: the benchmark positions and random games played from them.
+ */
+final class BenchmarkPositions {
+
+    static final String[] FENS = {
+            "r1r11RG1r1r1/2r11r12/3r13/7/3b13/2b11b12/b1b11BG1b1b1 r",
+            "3RG3/1r25/7/3r3b42/1b1BG4/4b12/7 r",
+            "3RG3/2r11r12/1r21r11r21/7/3b33/2b11b12/1b21BG3 b",
+            "7/6r3/1RG5/3b43/1r25/7/2BG3r1 r",
+            "b36/3b12r3/7/7/1r2RG4/2BG4/6r1 b",
+            "r1r11RG1r1r1/2r11r12/3r13/7/3b13/2b11b12/b1b11BG1b1b1 b"
+    };
+
+    private BenchmarkPositions() {
+    }
+
+    /**
+     * Positions from random games starting at the benchmark positions, so towers of all heights, both sides to
+     * move and won positions occur; the same {@code seed} gives the same positions.
+     */
+    static List<Board> random(int count, long seed) {
+        BitBoardUtils utils = new BitBoardUtils();
+        Random random = new Random(seed);
+        List<Board> positions = new ArrayList<>();
+        while (positions.size() < count) {
+            Board board = new Board(FENS[random.nextInt(FENS.length)]);
+            for (int ply = 0; ply < 40 && positions.size() < count; ply++) {
+                List<BitBoardUtils.MovePair> moves = utils.generateAllLegalMoves(board);
+                if (moves.isEmpty()) break;
+                board = BitBoardUtils.makeMove(moves.get(random.nextInt(moves.size())), board.copy());
+                positions.add(board);
+                if (BitBoardUtils.checkplayerWon(board, Player.RED) || BitBoardUtils.checkplayerWon(board, Player.BLUE)) break;
+            }
+        }
+        return positions;
+    }
+}
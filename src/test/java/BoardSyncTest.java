@@ -0,0 +1,49 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoardSyncTest {
+
+    @Test
+    void followsAGameMoveByMove() {
+        BitBoardUtils utils = new BitBoardUtils();
+        BoardSync sync = new BoardSync(utils);
+        Board reference = new Board();
+        Board live = sync.update(reference.toFen());
+        assertEquals(1, sync.getParsed());
+
+        Random random = new Random(7);
+        int[] moves = new int[BitBoardUtils.MAX_MOVES];
+        int plies = 0;
+        while (plies < 60 && !BitBoardUtils.checkplayerWon(reference, Player.RED)
+                && !BitBoardUtils.checkplayerWon(reference, Player.BLUE)) {
+            int count = utils.generateAllLegalMoves(reference, moves);
+            if (count == 0) break;
+            int move = moves[random.nextInt(count)];
+            BitBoardUtils.makeMove(move, reference);
+            if (plies % 2 == 0) sync.predictReplies();      // as the client does while waiting
+            String fen = reference.toFen();
+            assertSame(live, sync.update(fen));
+            assertSame(live, sync.update(fen), "polling the same state changes nothing");
+            assertEquals(reference, live);
+            assertEquals(move, sync.getLastMove());
+            plies++;
+        }
+        assertEquals(plies, sync.getApplied());
+        assertEquals(1, sync.getParsed());
+    }
+
+    @Test
+    void parsesPositionsThatNoMoveLeadsTo() {
+        BoardSync sync = new BoardSync(new BitBoardUtils());
+        sync.update(new Board().toFen());
+        String other = "3RG3/2r11r12/1r21r11r21/7/3b33/2b11b12/1b21BG3 b";
+        Board board = sync.update(other);
+        assertEquals(new Board(other), board);
+        assertEquals(0, sync.getLastMove());
+        assertEquals(2, sync.getParsed());
+        assertEquals(0, sync.getApplied());
+    }
+}
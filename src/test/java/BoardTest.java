@@ -22,4 +22,14 @@ public class BoardTest {
         assertEquals(board.numPieces(Player.BLUE), 8);
         assertEquals(board.numPieces(Player.RED), 8);
     }
+
+    @Test
+    public void toFenIsInverseOfParsing(){
+        String start = "r1r11RG1r1r1/2r11r12/3r13/7/3b13/2b11b12/b1b11BG1b1b1 r";
+        assertEquals(start, new Board(start).toFen());
+        assertEquals(start, new Board().toFen());
+        for (Board board : BenchmarkPositions.random(300, 4)) {
+            assertEquals(board, new Board(board.toFen()));
+        }
+    }
 }
@@ -0,0 +1,37 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DifferentialFuzzerTest {
+
+    @Test
+    void fastCodeAgreesWithReferenceModel() throws InterruptedException {
+        DifferentialFuzzer fuzzer = new DifferentialFuzzer(20_000, 4, 7);
+        List<DifferentialFuzzer.Failure> failures = fuzzer.run();
+        assertEquals(List.of(), failures);
+        assertEquals(20_000, fuzzer.getChecked());
+        assertTrue(fuzzer.getMovesChecked() > 100_000);
+    }
+
+    @Test
+    void referenceMovesMatchInStartPosition() {
+        Board start = new Board();
+        DifferentialFuzzer.Ref ref = DifferentialFuzzer.Ref.of(start);
+        assertEquals(new BitBoardUtils().generateAllLegalMoves(start).size(), ref.moves().length);
+        assertEquals(start, ref.toBoard());
+        assertNull(new DifferentialFuzzer.Checker(new BitBoardUtils()).firstFailure(start, true));
+    }
+
+    @Test
+    void shrinkKeepsOnlyWhatTheFailureNeeds() {
+        // injected "bug": fails whenever red has a tower of height >= 2 somewhere
+        String minimal = DifferentialFuzzer.shrink(new Board("3RG3/1r25/7/3r3b42/1b1BG4/4b12/7 r"),
+                b -> (b.getRed() & b.getStack(1) & ~b.getGuards()) != 0);
+        Board shrunk = new Board(minimal);
+        assertEquals(1, Long.bitCount(shrunk.getStack(0)), minimal);    // a single red tower of height two
+        assertEquals(shrunk.getRed(), shrunk.getStack(1), minimal);
+        assertEquals(0, shrunk.getStack(2), minimal);
+    }
+}
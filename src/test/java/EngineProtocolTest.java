@@ -0,0 +1,76 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EngineProtocolTest {
+
+    private static String run(String input) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        new EngineProtocol(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out).run();
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void goDepthStreamsInfoAndBestMove() throws Exception {
+        String output = run("uci\nisready\nposition startpos\ngo depth 3\n");
+        assertTrue(output.contains("uciok"));
+        assertTrue(output.contains("readyok"));
+        assertTrue(output.contains("info depth 3 score cp"));
+        assertTrue(output.contains("bestmove "));
+    }
+
+    @Test
+    void batchOfPositionsIsAnsweredInOrder() throws Exception {
+        String output = run("position fen 7/6r3/1RG5/3b43/1r25/7/2BG3r1 r\ngo nodes 2000\n"
+                + "position startpos moves D5-D4-1\ngo depth 2\n"
+                + "setoption name Threads value 2\nposition fen 3RG3/7/7/7/4b11b1/4r4r11/3BG1b11 b\ngo movetime 50\n");
+        long bestMoves = output.lines().filter(l -> l.startsWith("bestmove")).count();
+        assertEquals(3, bestMoves);
+    }
+
+    @Test
+    void monteCarloEngineCanBeSelected() throws Exception {
+        String output = run("setoption name Engine value mcts\nsetoption name Threads value 2\nposition startpos\ngo nodes 3000\n"
+                + "go depth 1\n");
+        assertEquals(2, output.lines().filter(l -> l.startsWith("bestmove")).count(), output);
+        assertFalse(output.contains("bestmove (none)"));
+        assertFalse(output.contains("error"), output);
+    }
+
+    @Test
+    void bestMoveIsLegal() throws Exception {
+        String fen = "3RG3/1r25/7/3r3b42/1b1BG4/4b12/7 r";
+        String output = run("position fen " + fen + "\ngo depth 3\n");
+        String best = output.lines().filter(l -> l.startsWith("bestmove")).findFirst().orElseThrow().substring(9);
+        List<BitBoardUtils.MovePair> legal = new BitBoardUtils().generateAllLegalMoves(new Board(fen));
+        assertTrue(legal.contains(BitBoardUtils.MovePair.fromMove(Move.fromAlgebraic(best))));
+    }
+
+    @Test
+    void stopEndsInfiniteSearch() throws Exception {
+        String output = run("go infinite\nstop\n");
+        assertTrue(output.contains("bestmove "));
+    }
+
+    @Test
+    void commandDuringInfiniteSearchStopsIt() throws Exception {
+        String output = run("go infinite\nposition startpos moves D5-D4-1\nstop\nisready\n");
+        assertEquals(1, output.lines().filter(l -> l.startsWith("bestmove")).count(), output);
+        assertTrue(output.contains("readyok"));
+        assertFalse(output.contains("error"), output);
+    }
+
+    @Test
+    void illegalMoveIsReportedNotFatal() throws Exception {
+        String output = run("position startpos moves A1-A7-1\nisready\n");
+        assertTrue(output.contains("info string error"));
+        assertTrue(output.contains("readyok"));
+    }
+}
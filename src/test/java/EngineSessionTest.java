@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EngineSessionTest {
+
+    @Test
+    void laterMovesReuseWhatEarlierSearchesLearned() {
+        EngineSession session = new EngineSession();
+        Board board = new Board(BenchmarkPositions.FENS[2]);
+        SearchResult first = session.search(board, SearchLimits.depth(7));
+        List<BitBoardUtils.MovePair> pv = session.getLastPv();
+        assertEquals(first.getPv(), pv);
+        assertTrue(pv.size() >= 3, "needs a reply in the principal variation");
+
+        // the opponent answers as predicted
+        Board next = board.copy();
+        BitBoardUtils.makeMove(pv.get(0), next);
+        BitBoardUtils.makeMove(pv.get(1), next);
+        session.record(next);
+
+        long warm = session.search(next, SearchLimits.depth(7)).getNodes();
+        long cold = new EngineSession().search(next, SearchLimits.depth(7)).getNodes();
+        System.out.printf("second move depth 7: %d nodes with the session, %d from scratch%n", warm, cold);
+        assertTrue(warm < cold);
+        assertEquals(2, session.getHistory().size());
+    }
+
+    @Test
+    void newGameForgetsEverything() {
+        EngineSession session = new EngineSession();
+        session.search(new Board(), SearchLimits.depth(4));
+        session.newGame();
+        assertEquals(0, session.getHistory().size());
+        assertTrue(session.getLastPv().isEmpty());
+        assertEquals(0, session.getTable().probe(new Board().hashKey()));
+    }
+
+    @Test
+    void referenceSearchesUseSessionTables() {
+        EngineSession session = new EngineSession();
+        Board board = new Board(BenchmarkPositions.FENS[0]);
+        AtomicInteger a = new AtomicInteger();
+        AtomicInteger b = new AtomicInteger();
+        assertEquals(BitBoardUtils.minimax(board, 3, true, a), session.minimax(board, 3, true, b));
+        assertEquals(a.get(), b.get());
+    }
+
+    @Test
+    void concurrentSearchesMatchSequentialOnes() throws Exception {
+        BitBoardUtils utils = new BitBoardUtils();             // the move tables are shared by all threads
+        int n = BenchmarkPositions.FENS.length;
+        SearchResult[] sequential = new SearchResult[n];
+        int[] minimax = new int[n];
+        for (int i = 0; i < n; i++) {
+            Board board = new Board(BenchmarkPositions.FENS[i]);
+            sequential[i] = new EngineSession(utils, 4, 1000).search(board, SearchLimits.depth(6));
+            minimax[i] = BitBoardUtils.minimax(utils, board, 3, true, new AtomicInteger());
+        }
+
+        SearchResult[] parallel = new SearchResult[n];
+        int[] parallelMinimax = new int[n];
+        Thread[] threads = new Thread[n];
+        for (int i = 0; i < n; i++) {
+            int game = i;
+            threads[i] = new Thread(() -> {
+                Board board = new Board(BenchmarkPositions.FENS[game]);
+                parallel[game] = new EngineSession(utils, 4, 1000).search(board, SearchLimits.depth(6));
+                parallelMinimax[game] = BitBoardUtils.minimax(utils, board, 3, true, new AtomicInteger());
+            });
+            threads[i].start();
+        }
+        for (Thread t : threads) t.join();
+        for (int i = 0; i < n; i++) {
+            assertEquals(sequential[i].getPv(), parallel[i].getPv(), BenchmarkPositions.FENS[i]);
+            assertEquals(sequential[i].getNodes(), parallel[i].getNodes());
+            assertEquals(minimax[i], parallelMinimax[i]);
+        }
+    }
+
+    @Test
+    void solverTimeCountsAgainstTheMoveTime() {
+        EngineSession session = new EngineSession(new BitBoardUtils(), 1, 400);
+        session.setSolverNodes(50_000_000);                // far more than fits into the move time
+        Board board = new Board();
+        session.pickMove(board);                             // warm-up
+        session.newGame();
+        long start = System.nanoTime();
+        session.pickMove(board);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+        assertTrue(elapsedMs < 400 + 150, "move took " + elapsedMs + " ms");
+    }
+}
@@ -0,0 +1,85 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EvalTunerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Board randomPosition(BitBoardUtils utils, Random random) {
+        Board board = new Board();
+        int plies = 4 + random.nextInt(30);
+        for (int i = 0; i < plies; i++) {
+            List<BitBoardUtils.MovePair> moves = utils.generateAllLegalMoves(board);
+            if (moves.isEmpty() || BitBoardUtils.checkplayerWon(board, Player.RED) || BitBoardUtils.checkplayerWon(board, Player.BLUE)) break;
+            board = BitBoardUtils.makeMove(moves.get(random.nextInt(moves.size())), board);
+        }
+        return board;
+    }
+
+    @Test
+    void evaluateIsDotProductOfFeatures() {
+        BitBoardUtils utils = new BitBoardUtils();
+        Random random = new Random(1);
+        int[] weights = Evaluation.weights();
+        int[] f = new int[Evaluation.FEATURE_COUNT];
+        for (int n = 0; n < 500; n++) {
+            Board board = randomPosition(utils, random);
+            Evaluation.features(board, f);
+            int dot = 0;
+            for (int j = 0; j < f.length; j++) dot += weights[j] * f[j];
+            assertEquals(dot, BitBoardUtils.evaluate(board));
+            assertEquals(board.numPieces(Player.RED) - board.numPieces(Player.BLUE), f[Evaluation.MATERIAL]);
+        }
+    }
+
+    @Test
+    void tunerLearnsTheLabellingFeature() throws IOException {
+        // label every position by who has the guard closer to the enemy castle
+        BitBoardUtils utils = new BitBoardUtils();
+        Random random = new Random(7);
+        Path file = tempDir.resolve("labelled.bin");
+        try (PositionWriter writer = new PositionWriter(file)) {
+            for (int n = 0; n < 20_000; n++) {
+                Board board = randomPosition(utils, random);
+                int race = Evaluation.guardDistance(board);
+                int result = race > 0 ? PositionCodec.RESULT_RED_WIN : race < 0 ? PositionCodec.RESULT_BLUE_WIN : PositionCodec.RESULT_DRAW;
+                writer.write(board, PositionCodec.resultFlags(result), 0, 0);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (PositionCorpus corpus = new PositionCorpus(file)) {
+            EvalTuner tuner = EvalTuner.load(corpus, EvalTuner.Label.RESULT, 0.5, pool);
+            assertEquals(20_000, tuner.size());
+
+            double[] start = new double[Evaluation.FEATURE_COUNT];
+            start[Evaluation.MATERIAL] = 100;
+            double before = tuner.error(start, EvalTuner.SCORE_SCALE);
+            int[] tuned = tuner.tune(start, EvalTuner.SCORE_SCALE, 300, false);
+            double[] tunedD = new double[tuned.length];
+            for (int j = 0; j < tuned.length; j++) tunedD[j] = tuned[j];
+
+            assertTrue(tuner.error(tunedD, EvalTuner.SCORE_SCALE) < before);
+            assertTrue(tuned[Evaluation.GUARD_DISTANCE] > 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void weightsFileRoundTrip() throws IOException {
+        int[] weights = {90, 12, -3, 4, 5, 6, 7};
+        Path file = tempDir.resolve("weights.properties");
+        Evaluation.writeWeights(file, weights, "test");
+        assertArrayEquals(weights, Evaluation.readWeights(file));
+    }
+}
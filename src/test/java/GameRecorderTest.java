@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameRecorderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void gameIsWrittenAsOneLinePerRecord() throws IOException {
+        BitBoardUtils utils = new BitBoardUtils();
+        Board board = new Board();
+        BitBoardUtils.MovePair move = utils.generateAllLegalMoves(board).get(0);
+        SearchResult result = new SearchResult(move, 42, 7, 12345, 980, List.of(move), List.of());
+
+        GameRecorder recorder = new GameRecorder(dir, 64, 1 << 20, false);
+        recorder.start();
+        recorder.startGame("I am RED");
+        recorder.position(board, 0, 60_000);
+        recorder.move(board, move, result, 60_000);
+        recorder.info("hello");
+        recorder.endGame("done");
+        recorder.close();
+
+        List<String> lines = readAll();
+        assertEquals(5, lines.size(), lines.toString());
+        assertTrue(lines.get(0).startsWith("START\t") && lines.get(0).endsWith("\tI am RED"));
+        String[] pos = lines.get(1).split("\t");
+        assertEquals(List.of("POS", board.toFen(), "-", "60000"), List.of(pos[0], pos[2], pos[3], pos[4]));
+        String[] mv = lines.get(2).split("\t");
+        assertEquals(List.of("MOVE", board.toFen(), move.toMove().toAlgebraic(), "42", "7", "12345", "980", "60000"),
+                List.of(mv[0], mv[2], mv[3], mv[4], mv[5], mv[6], mv[7], mv[8]));
+        assertTrue(lines.get(3).endsWith("\thello"));
+        assertTrue(lines.get(4).startsWith("END\t"));
+        assertEquals(0, recorder.getDropped());
+    }
+
+    @Test
+    void fullBufferDropsInsteadOfBlocking() throws IOException {
+        GameRecorder recorder = new GameRecorder(dir, 8, 1 << 20, false);   // not started: nothing drains
+        for (int i = 0; i < 13; i++) {
+            recorder.info("line " + i);
+        }
+        assertEquals(5, recorder.getDropped());
+        recorder.close();                                                    // drains on the caller
+        List<String> lines = readAll();
+        assertEquals(8, lines.size());
+        assertTrue(lines.get(7).endsWith("\tline 7"));
+    }
+
+    @Test
+    void concurrentProducersLoseNothingAndFilesRotate() throws Exception {
+        GameRecorder recorder = new GameRecorder(dir, 1 << 16, 4096, false);
+        recorder.start();
+        recorder.startGame("rotation");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    recorder.info(id + ":" + i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        recorder.close();
+
+        assertEquals(0, recorder.getDropped());
+        List<String> lines = readAll();
+        Set<String> seen = new HashSet<>();
+        for (String line : lines) {
+            if (line.startsWith("INFO\t")) {
+                assertTrue(seen.add(line.substring(line.lastIndexOf('\t') + 1)), line);
+            }
+        }
+        assertEquals(20_000, seen.size());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.count() > 10);                                  // ~300 KB in parts of 4 KB
+        }
+    }
+
+    private List<String> readAll() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = new ArrayList<>(list.sorted((a, b) -> {
+                String x = a.getFileName().toString();
+                String y = b.getFileName().toString();
+                return x.length() != y.length() ? Integer.compare(x.length(), y.length()) : x.compareTo(y);
+            }).toList());
+        }
+        List<String> lines = new ArrayList<>();
+        for (Path file : files) {
+            lines.addAll(Files.readAllLines(file));
+        }
+        return lines;
+    }
+}
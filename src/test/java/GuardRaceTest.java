@@ -0,0 +1,107 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GuardRaceTest {
+
+    @Test
+    void attacksCoverExactlyTheMoveTargets() {
+        BitBoardUtils utils = new BitBoardUtils();
+        int[] moves = new int[BitBoardUtils.MAX_MOVES];
+        for (Board board : BenchmarkPositions.random(500, 3)) {
+            long side = board.getCurrentPlayer() == Player.RED ? board.getRed() : board.getBlue();
+            long attacks = GuardRace.attacks(board, side);
+            long targets = 0;
+            int count = utils.generateAllLegalMoves(board, moves);
+            for (int i = 0; i < count; i++) {
+                targets |= 1L << ((moves[i] >>> 6) & 63);
+            }
+            long empty = Evaluation.FULL & ~board.getStack(0);
+            assertEquals(0, targets & ~attacks, board.toString());
+            assertEquals(targets & empty, attacks & empty, board.toString());   // occupied squares may be blocked by rules
+        }
+    }
+
+    @Test
+    void floodFillMatchesQueueBfs() {
+        for (Board board : BenchmarkPositions.random(500, 8)) {
+            for (Player p : new Player[]{Player.RED, Player.BLUE}) {
+                long own = p == Player.RED ? board.getRed() : board.getBlue();
+                long guard = board.getGuards() & own;
+                int castle = p == Player.RED ? Evaluation.BLUE_CASTLE : Evaluation.RED_CASTLE;
+                long passable = Evaluation.FULL & ~own;
+                assertEquals(bfs(guard, passable, 1L << castle), GuardRace.distance(guard, passable, 1L << castle));
+
+                long[] layers = new long[49];
+                int n = GuardRace.fill(guard, passable, layers);
+                for (int d = 0; d < n; d++) {
+                    for (long l = layers[d]; l != 0; l &= l - 1) {
+                        assertEquals(d, bfs(guard, passable, Long.lowestOneBit(l)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void distancesOnKnownPositions() {
+        Board board = new Board("3RG3/7/7/7/7/7/3BG3 r");
+        assertEquals(6, GuardRace.enemyDistance(board, Player.RED));
+        // the blue guard still stands on its castle and covers every square next to it
+        assertEquals(GuardRace.UNREACHABLE, GuardRace.safeCastleDistance(board, Player.RED));
+        // own towers in the way force a detour, enemy ones can be captured
+        Board blocked = new Board("3RG3/2r1r1r12/7/7/7/7/3BG3 r");
+        assertEquals(10, GuardRace.castleDistance(
+                blocked.getGuards() & blocked.getRed(), blocked.getRed(), Evaluation.BLUE_CASTLE));
+        assertEquals(6, GuardRace.castleDistance(
+                blocked.getGuards() & blocked.getBlue(), blocked.getBlue(), Evaluation.RED_CASTLE));
+        assertEquals(GuardRace.UNREACHABLE, GuardRace.distance(0L, Evaluation.FULL, 1L));
+    }
+
+    @Test
+    void fastEnoughForEveryLeaf() {
+        List<Board> boards = BenchmarkPositions.random(1024, 21);
+        long sum = 0;
+        long start = 0;
+        int rounds = 2000;
+        for (int r = 0; r < rounds; r++) {
+            if (r == rounds / 2) start = System.nanoTime();             // first half warms up
+            for (Board b : boards) {
+                sum += GuardRace.safeCastleDistance(b, Player.RED) + GuardRace.safeCastleDistance(b, Player.BLUE);
+            }
+        }
+        double ns = (System.nanoTime() - start) / (rounds / 2.0 * boards.size() * 2);
+        System.out.printf("safe castle distance (attacks + flood fill): %.1f ns%n", ns);
+        assertTrue(sum > 0);
+    }
+
+    private static int bfs(long from, long passable, long target) {
+        if (from == 0) return GuardRace.UNREACHABLE;
+        int[] dist = new int[49];
+        java.util.Arrays.fill(dist, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        int start = Long.numberOfTrailingZeros(from);
+        dist[start] = 0;
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            int sq = queue.poll();
+            if ((target >>> sq & 1) != 0) return dist[sq];
+            int x = sq % 7;
+            int y = sq / 7;
+            int[][] steps = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+            for (int[] s : steps) {
+                int nx = x + s[0];
+                int ny = y + s[1];
+                if (nx < 0 || nx > 6 || ny < 0 || ny > 6) continue;
+                int n = ny * 7 + nx;
+                if (dist[n] >= 0 || ((passable | target) >>> n & 1) == 0) continue;
+                dist[n] = dist[sq] + 1;
+                queue.add(n);
+            }
+        }
+        return GuardRace.UNREACHABLE;
+    }
+}
@@ -21,9 +21,9 @@ public class MinimaxTest {
     @Test
     void minimaxAlphaBetaTest(){
         Board board = new Board("7/6r3/1RG5/3b43/1r25/7/2BG3r1 r19");
-        BitBoardUtils utils = new BitBoardUtils();
+        EngineSession session = new EngineSession();
 
-        System.out.println(utils.pickMove(board).toMove().toAlgebraic());
+        System.out.println(session.pickMove(board).toMove().toAlgebraic());
     }
 
     @Test
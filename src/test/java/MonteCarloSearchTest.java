@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MonteCarloSearchTest {
+
+    @Test
+    void playsAnImmediateWin() {
+        BitBoardUtils utils = new BitBoardUtils();
+        int[] moves = new int[BitBoardUtils.MAX_MOVES];
+        int checked = 0;
+        for (Board board : BenchmarkPositions.random(400, 5)) {
+            Player mover = board.getCurrentPlayer();
+            if (BitBoardUtils.checkplayerWon(board, Player.RED) || BitBoardUtils.checkplayerWon(board, Player.BLUE)) continue;
+            int count = utils.generateAllLegalMoves(board, moves);
+            if (MonteCarloSearch.winningMove(board, moves, count) == 0) continue;
+
+            SearchResult result = new MonteCarloSearch(utils, 1 << 16).search(board, SearchLimits.nodes(3000));
+            Board after = BitBoardUtils.makeMove(result.getBestMove(), board.copy());
+            assertTrue(BitBoardUtils.checkplayerWon(after, mover), "MCTS missed a win in one");
+            if (++checked == 5) break;
+        }
+        assertTrue(checked > 0, "no test position with a win in one");
+    }
+
+    @Test
+    void parallelSearchReturnsLegalMoveWithinLimits() {
+        BitBoardUtils utils = new BitBoardUtils();
+        MonteCarloSearch mcts = new MonteCarloSearch(utils, 1 << 18);
+        mcts.setThreads(4);
+        for (String fen : BenchmarkPositions.FENS) {
+            Board board = new Board(fen);
+            SearchResult result = mcts.search(board, SearchLimits.nodes(20_000));
+            List<BitBoardUtils.MovePair> legal = utils.generateAllLegalMoves(board);
+            assertTrue(legal.contains(result.getBestMove()), fen);
+            assertTrue(result.getNodes() <= 20_000);
+            assertEquals(board, new Board(fen), "search must not modify the root");
+        }
+        long start = System.nanoTime();
+        mcts.search(new Board(), SearchLimits.moveTime(300));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("MCTS, 4 threads: %.0f playouts/s, %.1f M playout plies/s%n",
+                mcts.getPlayouts() / seconds, mcts.getPlayoutPlies() / seconds / 1e6);
+    }
+
+    @Test
+    void externalStopFlagEndsAnUnlimitedSearch() throws InterruptedException {
+        MonteCarloSearch mcts = new MonteCarloSearch(new BitBoardUtils(), 1 << 16);
+        mcts.setThreads(2);
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread stopper = new Thread(() -> {
+            while (mcts.getPlayouts() < 1000) Thread.onSpinWait();
+            stop.set(true);
+        });
+        stopper.start();
+        SearchResult result = mcts.search(new Board(), new SearchLimits(), stop);
+        stopper.join();
+        assertTrue(new BitBoardUtils().generateAllLegalMoves(new Board()).contains(result.getBestMove()));
+    }
+
+    @Test
+    void engineTypeAcceptsTheProtocolSpelling() {
+        assertEquals(EngineSession.EngineType.ALPHA_BETA, EngineSession.EngineType.parse("alphabeta"));
+        assertEquals(EngineSession.EngineType.ALPHA_BETA, EngineSession.EngineType.parse("ALPHA_BETA"));
+        assertEquals(EngineSession.EngineType.MCTS, EngineSession.EngineType.parse("mcts"));
+        assertThrows(IllegalArgumentException.class, () -> EngineSession.EngineType.parse("minimax"));
+    }
+
+    @Test
+    void matchRunnerPlaysBothColours() {
+        BitBoardUtils utils = new BitBoardUtils();
+        EngineSession alphaBeta = new EngineSession(utils, 1, 20);
+        EngineSession mcts = new EngineSession(utils, 1, 20);
+        mcts.setEngine(EngineSession.EngineType.MCTS);
+        Match match = new Match(alphaBeta, mcts, 20);
+        match.play(2, 3);
+        System.out.println("alpha-beta vs MCTS at 20 ms: " + match);
+        assertEquals(2, match.getWins() + match.getDraws() + match.getLosses());
+        assertTrue(match.getNodesPerSecond(0) > 0);
+        assertTrue(match.getNodesPerSecond(1) > 0);
+    }
+
+    @Test
+    void perftMatchesMoveListGenerator() {
+        BitBoardUtils utils = new BitBoardUtils();
+        Board start = new Board();
+        long expected = 0;
+        for (BitBoardUtils.MovePair m : utils.generateAllLegalMoves(start)) {
+            expected += utils.generateAllLegalMoves(BitBoardUtils.makeMove(m, start.copy())).size();
+        }
+        assertEquals(expected, Match.perft(utils, start, 2));
+    }
+}
@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapTranspositionTableTest {
+
+    @Test
+    void behavesLikeTheHeapTable() {
+        SearchTable heap = new TranspositionTable(2);
+        SearchTable offHeap = new OffHeapTranspositionTable(2);
+        assertEquals(heap.capacity(), offHeap.capacity());
+        Random random = new Random(5);
+        long[] keys = new long[5000];
+        for (int i = 0; i < 20_000; i++) {
+            long key = i < keys.length ? (keys[i] = random.nextLong()) : keys[random.nextInt(keys.length)];
+            int depth = random.nextInt(20);
+            int bound = 1 + random.nextInt(3);
+            int score = random.nextInt(2 * Search.WIN) - Search.WIN;
+            int move = random.nextInt(1 << 15);
+            heap.store(key, depth, bound, score, move);
+            offHeap.store(key, depth, bound, score, move);
+        }
+        for (long key : keys) {
+            assertEquals(heap.probe(key), offHeap.probe(key));
+        }
+        offHeap.clear();
+        assertEquals(0, offHeap.probe(keys[0]));
+    }
+
+    @Test
+    void searchesGiveTheSameResultWithEitherTable() {
+        BitBoardUtils utils = new BitBoardUtils();
+        for (String fen : BenchmarkPositions.FENS) {
+            SearchResult heap = new Search(utils, new TranspositionTable(8)).search(new Board(fen), SearchLimits.depth(6));
+            SearchResult offHeap = new Search(utils, new OffHeapTranspositionTable(8)).search(new Board(fen), SearchLimits.depth(6));
+            assertEquals(heap.getPv(), offHeap.getPv(), fen);
+            assertEquals(heap.getNodes(), offHeap.getNodes(), fen);
+        }
+    }
+
+    @Test
+    void savedTableStartsTheNextSessionWarm(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("table.bin");
+        BitBoardUtils utils = new BitBoardUtils();
+        Board board = new Board(BenchmarkPositions.FENS[1]);
+
+        EngineSession first = new EngineSession(utils, new OffHeapTranspositionTable(4), 1000, file);
+        long cold = first.search(board, SearchLimits.depth(7)).getNodes();
+        first.saveTable();
+
+        OffHeapTranspositionTable loaded = new OffHeapTranspositionTable(4);
+        assertTrue(loaded.load(file));
+        assertFalse(new OffHeapTranspositionTable(8).load(file), "size mismatch must be rejected");
+        EngineSession second = new EngineSession(utils, loaded, 1000, file);
+        second.newGame();                                   // a persisted table survives a new game
+        long warm = second.search(board, SearchLimits.depth(7)).getNodes();
+        System.out.printf("depth 7: %d nodes cold, %d with the loaded table%n", cold, warm);
+        assertTrue(warm < cold);
+    }
+
+    @Test
+    void helperThreadsShareTheTable() throws Exception {
+        BitBoardUtils utils = new BitBoardUtils();
+        SearchTable table = new OffHeapTranspositionTable(16);
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread[] helpers = new Thread[3];
+        for (int i = 0; i < helpers.length; i++) {
+            Search helper = new Search(utils, table, stop);
+            helper.setStartDepth(1 + i);
+            helpers[i] = new Thread(() -> helper.search(new Board(), SearchLimits.depth(Search.MAX_PLY)));
+            helpers[i].start();
+        }
+        SearchResult result = new Search(utils, table).search(new Board(), SearchLimits.depth(7));
+        stop.set(true);
+        for (Thread t : helpers) t.join();
+        assertTrue(utils.generateAllLegalMoves(new Board()).contains(result.getBestMove()));
+    }
+}
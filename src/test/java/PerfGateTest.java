@@ -0,0 +1,283 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Performance gate: speed and allocation of the hot paths on fixed positions, compared with the baselines in
+ * <code>src/test/resources/perf-baseline.properties</code>. Runs only with <code>mvn test -Pperf</code>.
+ *
+ * <p>Speeds are gated relative to a fixed reference loop of plain long arithmetic measured in the same JVM
+ * ({@code *.speed} = operations per 1000 reference operations), so the baselines hardly depend on how fast the
+ * machine is. They may fall at most the tolerance below their baseline (default <code>tolerance.speed</code>
+ * of the file, overridable with <code>-Dperf.tolerance=0.3</code>); allocations ({@code *.bytesPer*}, measured
+ * with the per-thread counter of {@link com.sun.management.ThreadMXBean}) may not exceed their baseline by
+ * more than {@link #ALLOCATION_SLACK} bytes. Everything measured, including the absolute rates
+ * ({@code *.perSecond}, for information only), is written to <code>target/perf-results.properties</code>; copy
+ * values from there to update a baseline on purpose.</p>
+ */
+@Tag("perf")
+public class PerfGateTest {
+
+    static final String[] POSITIONS = {
+            "r1r11RG1r1r1/2r11r12/3r13/7/3b13/2b11b12/b1b11BG1b1b1 r",      // start position
+            "7/6r3/1RG5/3b43/1r25/7/2BG3r1 r",
+            "b36/3b12r3/7/7/1r2RG4/2BG4/6r1 b",
+            "3RG3/1r25/7/3r3b42/1b1BG4/4b12/7 r",
+    };
+    /** Absolute slack per operation for allocation checks; one-off allocations spread over many operations. */
+    static final double ALLOCATION_SLACK = 0.05;
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long ROUND_NANOS = 500_000_000L;
+    private static final int ROUNDS = 5;
+    private static final int REFERENCE_OPS = 1024;
+
+    /** Results of the measured code end up here, so the JIT cannot drop it as dead code. */
+    static volatile long sink;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final Properties baseline = new Properties();
+    private static final TreeMap<String, String> results = new TreeMap<>();
+    private static double tolerance;
+
+    private final BitBoardUtils utils = new BitBoardUtils();
+
+    @BeforeAll
+    static void loadBaseline() throws IOException {
+        try (InputStream in = PerfGateTest.class.getResourceAsStream("/perf-baseline.properties")) {
+            assertNotNull(in, "perf-baseline.properties missing");
+            baseline.load(in);
+        }
+        tolerance = Double.parseDouble(System.getProperty("perf.tolerance", baseline.getProperty("tolerance.speed", "0.3")));
+        assertTrue(THREADS.isThreadAllocatedMemorySupported(), "JVM cannot count allocated bytes per thread");
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Xorshift steps and bit counts: register-only work whose speed follows the machine, not our code.
+     */
+    private static void referenceLoop() {
+        long x = 0x9E3779B97F4A7C15L;
+        long acc = 0;
+        for (int i = 0; i < REFERENCE_OPS; i++) {
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+            acc += Long.bitCount(x & 0x1FFFFFFFFFFFFL);
+        }
+        sink = acc;
+    }
+
+    @AfterAll
+    static void writeResults() throws IOException {
+        Path file = Path.of("target", "perf-results.properties");
+        Files.createDirectories(file.getParent());
+        Properties out = new Properties();
+        out.putAll(results);
+        try (OutputStream o = Files.newOutputStream(file)) {
+            out.store(o, "measured by PerfGateTest");
+        }
+    }
+
+    /* ---------- measurements --------------------------------------------------- */
+
+    @Test
+    void perft() {
+        Board[] boards = boards();
+        Runnable run = () -> {
+            long total = 0;
+            for (Board b : boards) total += Match.perft(utils, b, 3);
+            sink = total;
+        };
+        long leaves = 0;
+        for (Board b : boards) leaves += Match.perft(utils, b, 3);
+        Measurement m = measure(run, leaves);
+        checkAllocation("perft.bytesPerMove", m.bytesPerOp());
+        checkSpeed("perft", "movesPerSecond", m);
+    }
+
+    @Test
+    void moveGenerationAndMakeMove() {
+        Board[] boards = boards();
+        int[] moves = new int[BitBoardUtils.MAX_MOVES];
+        Board child = new Board();
+        long[] calls = {0};
+        Runnable run = () -> {
+            for (Board b : boards) {
+                int count = utils.generateAllLegalMoves(b, moves);
+                for (int i = 0; i < count; i++) {
+                    child.copyFrom(b);
+                    BitBoardUtils.makeMove(moves[i], child);
+                }
+            }
+            sink = child.hashKey();
+        };
+        for (Board b : boards) calls[0] += 1 + utils.generateAllLegalMoves(b, moves);
+        Measurement m = measure(run, calls[0]);
+        checkAllocation("movegen.bytesPerCall", m.bytesPerOp());
+        checkSpeed("movegen", "callsPerSecond", m);
+    }
+
+    @Test
+    void evaluation() {
+        Board[] boards = boards();
+        Runnable run = () -> {
+            int total = 0;
+            for (Board b : boards) total += Evaluation.evaluate(b);
+            sink = total;
+        };
+        Measurement m = measure(run, boards.length);
+        checkAllocation("evaluate.bytesPerCall", m.bytesPerOp());
+        checkSpeed("evaluate", "callsPerSecond", m);
+    }
+
+    @Test
+    void searchNodesPerSecond() {
+        Board[] boards = boards();
+        TranspositionTable table = new TranspositionTable(2);
+        Search search = new Search(utils, table);
+        long[] nodes = {0};
+        Runnable run = () -> {
+            for (Board b : boards) {
+                table.clear();                                          // every run searches the same tree
+                search.clearHistory();
+                nodes[0] += search.search(b, SearchLimits.depth(5)).getNodes();
+            }
+        };
+        run.run();
+        Measurement m = measure(run, nodes[0]);
+        checkAllocation("search.bytesPerNode", m.bytesPerOp());
+        checkSpeed("search", "nodesPerSecond", m);
+    }
+
+    @Test
+    void legacyAlphaBetaNodesPerSecond() {
+        Board board = new Board(POSITIONS[1]);
+        AtomicInteger counter = new AtomicInteger();
+        Runnable run = () -> BitBoardUtils.minimaxAlphaBeta(utils, board, 100, counter);
+        run.run();
+        counter.set(0);
+        run.run();                                                      // fixed depth, normally well within 100 ms
+        Measurement m = measure(run, counter.get());
+        checkSpeed("minimaxAlphaBeta", "nodesPerSecond", m);
+    }
+
+    /* ---------- helpers -------------------------------------------------------- */
+
+    private static Board[] boards() {
+        Board[] boards = new Board[POSITIONS.length];
+        for (int i = 0; i < boards.length; i++) boards[i] = new Board(POSITIONS[i]);
+        return boards;
+    }
+
+    private static final class Measurement {
+        final long ops;
+        final long nanos;
+        final double bytesPerOp;
+        final double speed;
+
+        Measurement(long ops, long nanos, double bytesPerOp, double speed) {
+            this.ops = ops;
+            this.nanos = nanos;
+            this.bytesPerOp = bytesPerOp;
+            this.speed = speed;
+        }
+
+        double perSecond() {
+            return ops / (nanos / 1e9);
+        }
+
+        double bytesPerOp() {
+            return bytesPerOp;
+        }
+    }
+
+    /**
+     * Runs {@code body} (worth {@code opsPerRun} operations) for a second to warm up, then {@link #ROUNDS}
+     * measured rounds, each followed by a shorter round of the reference loop, so that both see the same
+     * load of the machine. Rate and relative speed use the best round of each (least disturbed), the
+     * allocation is averaged over all rounds.
+     */
+    private static Measurement measure(Runnable body, long opsPerRun) {
+        long end = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < end) {
+            body.run();
+            referenceLoop();
+        }
+        long bestNanosPerRun = Long.MAX_VALUE;
+        double bestReferenceNanosPerRun = Double.MAX_VALUE;
+        long totalRuns = 0;
+        long bytes = THREADS.getCurrentThreadAllocatedBytes();
+        for (int round = 0; round < ROUNDS; round++) {
+            long runs = 0;
+            long start = System.nanoTime();
+            long now;
+            do {
+                body.run();
+                runs++;
+                now = System.nanoTime();
+            } while (now - start < ROUND_NANOS);
+            double nanosPerRun = (double) (now - start) / runs;
+            totalRuns += runs;
+
+            long referenceRuns = 0;
+            start = System.nanoTime();
+            do {
+                referenceLoop();
+                referenceRuns++;
+                now = System.nanoTime();
+            } while (now - start < ROUND_NANOS / 4);
+            double referenceNanosPerRun = (double) (now - start) / referenceRuns;
+
+            bestNanosPerRun = Math.min(bestNanosPerRun, (long) nanosPerRun);
+            bestReferenceNanosPerRun = Math.min(bestReferenceNanosPerRun, referenceNanosPerRun);
+        }
+        double speed = 1000.0 * opsPerRun / Math.max(1, bestNanosPerRun) * bestReferenceNanosPerRun / REFERENCE_OPS;
+        bytes = THREADS.getCurrentThreadAllocatedBytes() - bytes;
+        return new Measurement(opsPerRun, Math.max(1, bestNanosPerRun), (double) bytes / (totalRuns * opsPerRun),
+                speed);
+    }
+
+    private static double baseline(String key, double measured) {
+        String value = baseline.getProperty(key);
+        assertNotNull(value, "no baseline for " + key + " (measured " + format(measured) + ")");
+        return Double.parseDouble(value);
+    }
+
+    /**
+     * @param rate name of the absolute rate, e.g. "nodesPerSecond"; gated is {@code name.speed}
+     */
+    private static void checkSpeed(String name, String rate, Measurement m) {
+        results.put(name + "." + rate, format(m.perSecond()));
+        String key = name + ".speed";
+        double measured = m.speed;
+        results.put(key, format(measured));
+        double min = baseline(key, measured) * (1 - tolerance);
+        assertTrue(measured >= min, String.format("%s regressed: %s < %s (baseline %s, tolerance %.0f%%)",
+                key, format(measured), format(min), baseline.getProperty(key), tolerance * 100));
+    }
+
+    private static void checkAllocation(String key, double measured) {
+        results.put(key, format(measured));
+        double max = baseline(key, measured) + ALLOCATION_SLACK;
+        assertTrue(measured <= max, String.format("%s regressed: %s bytes > %s (new allocation in the hot path?)",
+                key, format(measured), format(max)));
+    }
+
+    private static String format(double v) {
+        return v >= 100 ? String.valueOf(Math.round(v)) : String.format(java.util.Locale.ROOT, "%.3f", v);
+    }
+}
@@ -0,0 +1,79 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionCorpusTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void roundTripThroughFile() throws IOException {
+        List<Board> positions = BenchmarkPositions.random(10_000, 42);
+        Path file = tempDir.resolve("corpus.bin");
+        try (PositionWriter writer = new PositionWriter(file)) {
+            for (int i = 0; i < positions.size(); i++) {
+                if (i % 2 == 0) {
+                    writer.write(positions.get(i), i - 5000, new BitBoardUtils.MovePair(i % 49, (i + 1) % 49, 1));
+                } else {
+                    writer.write(positions.get(i));
+                }
+            }
+            assertEquals(positions.size(), writer.count());
+        }
+
+        try (PositionCorpus corpus = new PositionCorpus(file)) {
+            assertEquals(positions.size(), corpus.size());
+            PositionCorpus.Cursor cursor = corpus.cursor();
+            int i = 0;
+            while (cursor.next()) {
+                assertEquals(positions.get(i), cursor.board(), "record " + i);
+                assertEquals(i % 2 == 0, cursor.hasScore());
+                if (i % 2 == 0) {
+                    assertEquals(i - 5000, cursor.score());
+                    assertEquals(new BitBoardUtils.MovePair(i % 49, (i + 1) % 49, 1).toInt(), cursor.bestMove());
+                }
+                i++;
+            }
+            assertEquals(positions.size(), i);
+
+            Board random = new Board();
+            corpus.read(1234, random);
+            assertEquals(positions.get(1234), random);
+        }
+    }
+
+    @Test
+    void fenPositionsRoundTrip() throws IOException {
+        String[] fens = {
+                "r1r11RG1r1r1/2r11r12/3r13/7/3b13/2b11b12/b1b11BG1b1b1 r",
+                "7/6r3/1RG5/3b43/1r25/7/2BG3r1 b",
+                "7/7/7/7/7/7/5BG1 r",
+                "b36/3b12r3/7/7/1r2RG4/2BG4/6r1 b"
+        };
+        Path file = tempDir.resolve("fens.bin");
+        try (PositionWriter writer = new PositionWriter(file)) {
+            for (String fen : fens) writer.write(new Board(fen));
+        }
+        try (PositionCorpus corpus = new PositionCorpus(file)) {
+            Board board = new Board();
+            for (int i = 0; i < fens.length; i++) {
+                corpus.read(i, board);
+                assertEquals(new Board(fens[i]), board, fens[i]);
+            }
+        }
+    }
+
+    @Test
+    void rejectsForeignFiles() throws IOException {
+        Path file = tempDir.resolve("foreign.bin");
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> new PositionCorpus(file));
+    }
+}
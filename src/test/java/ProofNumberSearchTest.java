@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProofNumberSearchTest {
+
+    @Test
+    void provesWinInOne() {
+        BitBoardUtils utils = new BitBoardUtils();
+        ProofNumberSearch solver = new ProofNumberSearch(utils, 1);
+        int[] moves = new int[BitBoardUtils.MAX_MOVES];
+        int checked = 0;
+        for (Board board : BenchmarkPositions.random(400, 5)) {
+            if (isOver(board)) continue;
+            int count = utils.generateAllLegalMoves(board, moves);
+            if (MonteCarloSearch.winningMove(board, moves, count) == 0) continue;
+
+            assertEquals(ProofNumberSearch.Status.PROVEN, solver.solve(board, 1000));
+            Board after = BitBoardUtils.makeMove(solver.getBestMove(), board.copy());
+            assertTrue(BitBoardUtils.checkplayerWon(after, board.getCurrentPlayer()));
+            checked++;
+        }
+        assertTrue(checked > 0, "no test position with a win in one");
+    }
+
+    @Test
+    void provenMovesWinAgainstEveryReply() {
+        BitBoardUtils utils = new BitBoardUtils();
+        ProofNumberSearch solver = new ProofNumberSearch(utils, 4);
+        int[] moves = new int[BitBoardUtils.MAX_MOVES];
+        int[] replies = new int[BitBoardUtils.MAX_MOVES];
+        int deeper = 0;
+        long nodes = 0;
+        long start = System.nanoTime();
+        for (Board board : BenchmarkPositions.random(300, 11)) {
+            if (isOver(board)) continue;
+            int count = utils.generateAllLegalMoves(board, moves);
+            if (MonteCarloSearch.winningMove(board, moves, count) != 0) continue;
+            ProofNumberSearch.Status status = solver.solve(board, 20_000);
+            nodes += solver.getNodes();
+            if (status != ProofNumberSearch.Status.PROVEN) continue;
+
+            // no win in one, so every reply to the proven move must leave a proven win again
+            Player attacker = board.getCurrentPlayer();
+            Board after = BitBoardUtils.makeMove(solver.getBestMove(), board.copy());
+            assertFalse(BitBoardUtils.checkplayerWon(after, attacker));
+            int replyCount = utils.generateAllLegalMoves(after, replies);
+            assertTrue(replyCount > 0);
+            for (int i = 0; i < replyCount; i++) {
+                Board next = BitBoardUtils.makeMove(replies[i], after.copy());
+                assertFalse(BitBoardUtils.checkplayerWon(next, after.getCurrentPlayer()), "defender escapes by winning");
+                assertEquals(ProofNumberSearch.Status.PROVEN, new ProofNumberSearch(utils, 4).solve(next, 200_000));
+            }
+            deeper++;
+        }
+        System.out.printf("df-pn: %d deeper wins proven, %.1f M nodes/s%n",
+                deeper, nodes / ((System.nanoTime() - start) / 1e9) / 1e6);
+        assertTrue(deeper > 0, "no forced win beyond one move found");
+    }
+
+    @Test
+    void startPositionIsNotProven() {
+        ProofNumberSearch solver = new ProofNumberSearch(new BitBoardUtils(), 1);
+        assertEquals(ProofNumberSearch.Status.UNKNOWN, solver.solve(new Board(), 10_000));
+        assertNull(solver.getBestMove());
+        assertTrue(solver.getNodes() <= 10_000);
+    }
+
+    @Test
+    void sessionPlaysProvenWinWithoutSearching() {
+        // a forced win beyond one move, so the session's win-in-one check (ThreatsTest) does not take it
+        BitBoardUtils utils = new BitBoardUtils();
+        ProofNumberSearch solver = new ProofNumberSearch(utils, 4);
+        for (Board board : BenchmarkPositions.random(300, 11)) {
+            if (isOver(board) || Threats.winningMove(board) != 0) continue;
+            if (solver.solve(board, 20_000) != ProofNumberSearch.Status.PROVEN) continue;
+
+            EngineSession session = new EngineSession(utils, 1, 60_000);
+            session.setSolverNodes(20_000);
+            long start = System.nanoTime();
+            BitBoardUtils.MovePair move = session.pickMove(board);
+            assertTrue((System.nanoTime() - start) / 1_000_000L < 30_000, "the full move time was used");
+            assertEquals(Search.WIN - ProofNumberSearch.MAX_DEPTH, session.getLastResult().getScore(), "not played by the solver");
+            assertEquals("mate " + ProofNumberSearch.MAX_DEPTH / 2, EngineProtocol.formatScore(session.getLastResult().getScore()));
+            assertEquals(0, session.getLastResult().getDepth());
+
+            ProofNumberSearch check = new ProofNumberSearch(utils, 4);
+            Board after = BitBoardUtils.makeMove(move, board.copy());
+            assertFalse(BitBoardUtils.checkplayerWon(after, board.getCurrentPlayer()));
+            int[] replies = new int[BitBoardUtils.MAX_MOVES];
+            int replyCount = utils.generateAllLegalMoves(after, replies);
+            for (int i = 0; i < replyCount; i++) {
+                assertEquals(ProofNumberSearch.Status.PROVEN, check.solve(BitBoardUtils.makeMove(replies[i], after.copy()), 200_000));
+            }
+            return;
+        }
+        fail("no test position with a forced win beyond one move");
+    }
+
+    private static boolean isOver(Board board) {
+        return BitBoardUtils.checkplayerWon(board, Player.RED) || BitBoardUtils.checkplayerWon(board, Player.BLUE);
+    }
+}
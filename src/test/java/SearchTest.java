@@ -0,0 +1,182 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchTest {
+
+    private static long nodesAtDepth(SearchOptions options, int depth) {
+        BitBoardUtils utils = new BitBoardUtils();
+        long total = 0;
+        for (String fen : BenchmarkPositions.FENS) {
+            Search search = new Search(utils, new TranspositionTable(16));
+            search.setOptions(options);
+            total += search.search(new Board(fen), SearchLimits.depth(depth)).getNodes();
+        }
+        return total;
+    }
+
+    @Test
+    void pvsAndAspirationReduceNodes() {
+        int depth = 6;
+        long plain = nodesAtDepth(new SearchOptions().setPvs(false).setAspiration(false), depth);
+        long pvs = nodesAtDepth(new SearchOptions().setAspiration(false), depth);
+        long both = nodesAtDepth(new SearchOptions(), depth);
+        System.out.printf("depth %d: alpha-beta %d nodes, PVS %d (%.1f%%), PVS + aspiration %d (%.1f%%)%n",
+                depth, plain, pvs, 100.0 * pvs / plain, both, 100.0 * both / plain);
+        assertTrue(both < plain);
+    }
+
+    @Test
+    void selectivePruningReducesNodes() {
+        int depth = 7;
+        SearchOptions none = new SearchOptions().setNullMove(false).setLmr(false).setFutility(false).setRazoring(false);
+        long full = nodesAtDepth(none, depth);
+        long nullMove = nodesAtDepth(new SearchOptions().setLmr(false).setFutility(false).setRazoring(false), depth);
+        long lmr = nodesAtDepth(new SearchOptions().setNullMove(false).setFutility(false).setRazoring(false), depth);
+        long futility = nodesAtDepth(new SearchOptions().setNullMove(false).setLmr(false), depth);
+        long all = nodesAtDepth(new SearchOptions(), depth);
+        System.out.printf("depth %d: no pruning %d nodes, null move %.1f%%, LMR %.1f%%, futility/razoring %.1f%%, all %.1f%%%n",
+                depth, full, 100.0 * nullMove / full, 100.0 * lmr / full, 100.0 * futility / full, 100.0 * all / full);
+        assertTrue(all < full);
+    }
+
+    @Test
+    void statisticsOnlyWhenRequested() {
+        Board board = new Board(BenchmarkPositions.FENS[0]);
+        BitBoardUtils utils = new BitBoardUtils();
+        assertNull(new Search(utils, new TranspositionTable(1)).search(board, SearchLimits.depth(4)).getStatistics());
+
+        Search search = new Search(utils, new TranspositionTable(1));
+        search.setOptions(new SearchOptions().setStatistics(true));
+        SearchStatistics stats = search.search(board, SearchLimits.depth(6)).getStatistics();
+        assertNotNull(stats);
+        System.out.println("depth 6: " + stats);
+        assertTrue(stats.getEffectiveBranchingFactor() > 1);
+        assertTrue(stats.getLmrReductions() >= stats.getLmrResearches());
+        assertTrue(stats.getNullMoveTries() >= stats.getNullMoveCutoffs());
+    }
+
+    @Test
+    void repeatedPositionsAreScoredAsDraw() {
+        BitBoardUtils utils = new BitBoardUtils();
+        Board root = new Board(BenchmarkPositions.FENS[1]);
+        PositionHistory history = new PositionHistory();
+        for (BitBoardUtils.MovePair move : utils.generateAllLegalMoves(root)) {
+            history.push(BitBoardUtils.makeMove(move, root.copy()).hashKey());
+        }
+        history.push(root.hashKey());
+
+        Search search = new Search(utils, new TranspositionTable(1));
+        search.setHistory(history);
+        search.setOptions(new SearchOptions().setStatistics(true));
+        SearchResult result = search.search(root, SearchLimits.depth(3));
+        assertEquals(Search.DRAW, result.getScore(), "every reply repeats a game position");
+        assertTrue(result.getStatistics().getRepetitions() > 0);
+    }
+
+    @Test
+    void historyWindowEndsAtIrreversibleEntry() {
+        PositionHistory history = new PositionHistory();
+        history.push(1L);
+        history.push(2L);
+        assertTrue(history.isRepetition(1L));
+        history.push(3L, true);
+        assertFalse(history.isRepetition(1L));
+        assertTrue(history.isRepetition(3L));
+        history.pop();
+        assertTrue(history.isRepetition(2L));
+        assertFalse(history.isRepetition(3L));
+
+        PositionHistory copy = new PositionHistory();
+        copy.copyFrom(history);
+        assertEquals(2, copy.size());
+        assertEquals(2L, copy.last());
+    }
+
+    @Test
+    void forcedWinsAreScoredByDistanceAndEndTheSearch() {
+        BitBoardUtils utils = new BitBoardUtils();
+        int[] moves = new int[BitBoardUtils.MAX_MOVES];
+        int winsInOne = 0;
+        int deeper = 0;
+        for (Board board : BenchmarkPositions.random(300, 11)) {
+            if (BitBoardUtils.checkplayerWon(board, Player.RED) || BitBoardUtils.checkplayerWon(board, Player.BLUE)) continue;
+            int count = utils.generateAllLegalMoves(board, moves);
+            boolean winInOne = MonteCarloSearch.winningMove(board, moves, count) != 0;
+            SearchResult result = new Search(utils, new TranspositionTable(4))
+                    .search(board, SearchLimits.depth(5));
+            if (winInOne) {
+                assertEquals(Search.WIN - 1, result.getScore());
+                assertEquals(1, result.getDepth(), "a win in one must stop the search at once");
+                winsInOne++;
+            } else if (result.getScore() >= Search.WIN_BOUND) {
+                int plies = Search.pliesToWin(result.getScore());
+                assertTrue(plies >= 3 && plies % 2 == 1, "wins end on our own move: " + plies);
+                assertTrue(result.getDepth() <= plies, "searched on after the win was proven");
+                deeper++;
+            }
+            if (winsInOne >= 5 && deeper >= 1) break;
+        }
+        assertTrue(winsInOne > 0 && deeper > 0, "not enough won test positions");
+    }
+
+    @Test
+    void winScoresAreStoredRelativeToTheNode() {
+        for (int score : new int[]{Search.WIN - 7, -(Search.WIN - 4), 250, -Search.WIN_BOUND + 1}) {
+            for (int ply = 0; ply < Search.MAX_PLY; ply += 9) {
+                assertEquals(score, Search.scoreFromTable(Search.scoreToTable(score, ply), ply));
+            }
+        }
+        // win in 5 plies from a node at ply 3 is a win in 2 plies from that node
+        assertEquals(Search.WIN - 2, Search.scoreToTable(Search.WIN - 5, 3));
+        assertEquals("mate 2", EngineProtocol.formatScore(Search.WIN - 3));
+        assertEquals("mate -1", EngineProtocol.formatScore(-(Search.WIN - 2)));
+        assertEquals("cp -40", EngineProtocol.formatScore(-40));
+    }
+
+    @Test
+    void searchReturnsLegalMoveWithinLimits() {
+        BitBoardUtils utils = new BitBoardUtils();
+        for (String fen : BenchmarkPositions.FENS) {
+            Board board = new Board(fen);
+            SearchResult result = new Search(utils, new TranspositionTable(1)).search(board, SearchLimits.nodes(5000));
+            assertTrue(utils.generateAllLegalMoves(board).contains(result.getBestMove()), fen);
+            assertTrue(result.getNodes() <= 5000);
+            assertEquals(board, new Board(fen), "search must not modify the root");
+        }
+    }
+
+    @Test
+    void evalCacheHitsWithoutChangingTheResult() {
+        BitBoardUtils utils = new BitBoardUtils();
+        double hits = 0;
+        for (String fen : BenchmarkPositions.FENS) {
+            Board board = new Board(fen);
+            Search cached = new Search(utils, new TranspositionTable(1));
+            cached.setOptions(new SearchOptions().setStatistics(true));
+            SearchResult result = cached.search(board, SearchLimits.depth(5));
+            hits += result.getStatistics().getEvalHitRate();
+
+            Search uncached = new Search(utils, new TranspositionTable(1));
+            uncached.setEvalCache(new EvalCache(1));                  // one entry: (almost) never hits
+            SearchResult reference = uncached.search(board, SearchLimits.depth(5));
+            assertEquals(reference.getScore(), result.getScore(), fen);
+            assertEquals(reference.getBestMove(), result.getBestMove(), fen);
+        }
+        assertTrue(hits > 0);
+    }
+
+    @Test
+    void evalCacheChecksTheKey() {
+        EvalCache cache = new EvalCache(16);
+        long key = new Board().hashKey();
+        assertEquals(EvalCache.MISS, cache.probe(key));
+        cache.store(key, -123);
+        assertEquals(-123, cache.probe(key));
+        assertEquals(EvalCache.MISS, cache.probe(key ^ (1L << 40)), "same slot, other position");
+        cache.store(key ^ (1L << 40), 7);                              // same slot, replaces
+        assertEquals(EvalCache.MISS, cache.probe(key));
+        assertEquals(7, cache.probe(key ^ (1L << 40)));
+        assertEquals(EvalCache.MISS, cache.probe(-1L), "an empty entry matches no key");
+    }
+}
@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SelfPlayTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<String> records(Path file) throws IOException {
+        List<String> records = new ArrayList<>();
+        try (PositionCorpus corpus = new PositionCorpus(file)) {
+            PositionCorpus.Cursor cursor = corpus.cursor();
+            while (cursor.next()) {
+                records.add(cursor.board().toFen() + " " + cursor.flags() + " " + cursor.score() + " " + cursor.bestMove());
+            }
+        }
+        return records;
+    }
+
+    @Test
+    void corpusHoldsScoredPositionsWithResults() throws Exception {
+        Path file = dir.resolve("selfplay.gtpc");
+        SelfPlay selfPlay = new SelfPlay(file, 12, 0, 100, 6, 2, 7);
+        selfPlay.run(null, 0);
+        assertEquals(12, selfPlay.getGames());
+        assertEquals(12, selfPlay.getResults(PositionCodec.RESULT_RED_WIN) + selfPlay.getResults(PositionCodec.RESULT_DRAW)
+                + selfPlay.getResults(PositionCodec.RESULT_BLUE_WIN));
+
+        BitBoardUtils utils = new BitBoardUtils();
+        int required = PositionCodec.FLAG_SCORE | PositionCodec.FLAG_MOVE | PositionCodec.FLAG_RESULT;
+        try (PositionCorpus corpus = new PositionCorpus(file)) {
+            assertEquals(selfPlay.getPositions(), corpus.size());
+            PositionCorpus.Cursor cursor = corpus.cursor();
+            while (cursor.next()) {
+                assertEquals(required, cursor.flags() & required);
+                Board board = cursor.board();
+                assertTrue(utils.generateAllLegalMoves(board).contains(BitBoardUtils.MovePair.fromInt(cursor.bestMove())),
+                        board.toFen());
+                assertFalse(BitBoardUtils.checkplayerWon(board, Player.RED) || BitBoardUtils.checkplayerWon(board, Player.BLUE));
+            }
+        }
+    }
+
+    @Test
+    void lastRecordCarriesTheGameResult() throws Exception {
+        Path file = dir.resolve("selfplay.gtpc");
+        new SelfPlay(file, 1, 0, 100, 6, 1, 3).run(null, 0);
+        try (PositionCorpus corpus = new PositionCorpus(file)) {
+            long last = corpus.size() - 1;
+            Board board = new Board();
+            corpus.read(last, board);
+            Player mover = board.getCurrentPlayer();
+            BitBoardUtils.makeMove(corpus.bestMove(last), board);
+            int result = PositionCodec.resultOf(corpus.flags(last));
+            if (BitBoardUtils.checkplayerWon(board, mover)) {
+                assertEquals(mover == Player.RED ? PositionCodec.RESULT_RED_WIN : PositionCodec.RESULT_BLUE_WIN, result);
+            } else {
+                assertEquals(PositionCodec.RESULT_DRAW, result);
+            }
+        }
+    }
+
+    @Test
+    void recordsDoNotDependOnTheNumberOfThreads() throws Exception {
+        Path one = dir.resolve("one.gtpc");
+        Path three = dir.resolve("three.gtpc");
+        new SelfPlay(one, 9, 0, 100, 6, 1, 5).run(null, 0);
+        new SelfPlay(three, 9, 0, 100, 6, 3, 5).run(null, 0);
+        List<String> a = records(one);
+        List<String> b = records(three);
+        Collections.sort(a);
+        Collections.sort(b);
+        assertEquals(a, b);
+    }
+
+    @Test
+    void positionLimitStopsStartingGames() throws Exception {
+        SelfPlay selfPlay = new SelfPlay(dir.resolve("limit.gtpc"), 1000, 50, 100, 6, 1, 1);
+        selfPlay.run(null, 0);
+        assertTrue(selfPlay.getPositions() >= 50);
+        assertTrue(selfPlay.getGames() < 1000);
+    }
+}
@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SymmetryTest {
+
+    private static Board image(Board board, int t) {
+        Board out = new Board();
+        Symmetry.transform(board, t, out);
+        return out;
+    }
+
+    @Test
+    void transformsAreInvolutions() {
+        for (String fen : BenchmarkPositions.FENS) {
+            Board board = new Board(fen);
+            for (int t = 0; t < Symmetry.COUNT; t++) {
+                assertEquals(board, image(image(board, t), t), fen + " / " + t);
+            }
+        }
+        assertEquals(0x1L << 48, Symmetry.rotate180(1L));
+        assertEquals(1L << 6, Symmetry.mirrorFiles(1L));
+        assertEquals(1L << 42, Symmetry.flipRanks(1L));
+    }
+
+    @Test
+    void startPositionIsSymmetric() {
+        Board start = new Board();
+        assertTrue(Symmetry.isMirrorSymmetric(start));
+        Board flipped = image(start, Symmetry.ROTATE_COLOR);
+        flipped.setCurrentPlayer(start.getCurrentPlayer());
+        assertEquals(start, flipped, "180° rotation with swapped colours maps the start position onto itself");
+    }
+
+    @Test
+    void movesAndEvaluationCommuteWithTransforms() {
+        BitBoardUtils utils = new BitBoardUtils();
+        for (String fen : BenchmarkPositions.FENS) {
+            Board board = new Board(fen);
+            int[] moves = new int[BitBoardUtils.MAX_MOVES];
+            int count = utils.generateAllLegalMoves(board, moves);
+            for (int t = 1; t < Symmetry.COUNT; t++) {
+                Board other = image(board, t);
+                int[] otherMoves = new int[BitBoardUtils.MAX_MOVES];
+                int otherCount = utils.generateAllLegalMoves(other, otherMoves);
+                assertEquals(count, otherCount, fen + " / " + t);
+
+                Set<Integer> expected = new HashSet<>();
+                for (int i = 0; i < count; i++) expected.add(Symmetry.transformMove(moves[i], t));
+                Set<Integer> actual = new HashSet<>();
+                for (int i = 0; i < otherCount; i++) actual.add(otherMoves[i]);
+                assertEquals(expected, actual, fen + " / " + t);
+
+                assertEquals(Search.relativeEvaluation(board), Search.relativeEvaluation(other), fen + " / " + t);
+                assertEquals(Symmetry.canonicalKey(board), Symmetry.canonicalKey(other), fen + " / " + t);
+            }
+        }
+    }
+
+    @Test
+    void symmetryKeepsSearchResultAndSavesNodes() {
+        BitBoardUtils utils = new BitBoardUtils();
+        Board start = new Board();
+        SearchOptions plain = new SearchOptions().setSymmetry(false);
+        Search without = new Search(utils, new TranspositionTable(16));
+        without.setOptions(plain);
+        Search with = new Search(utils, new TranspositionTable(16));
+        SearchResult a = without.search(start, SearchLimits.depth(6));
+        SearchResult b = with.search(start, SearchLimits.depth(6));
+        System.out.printf("start position depth 6: %d nodes without symmetry, %d with (%.1f%%)%n",
+                a.getNodes(), b.getNodes(), 100.0 * b.getNodes() / a.getNodes());
+        assertEquals(a.getScore(), b.getScore());
+        assertTrue(b.getNodes() < a.getNodes());
+    }
+}
@@ -0,0 +1,95 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThreatsTest {
+
+    @Test
+    void winningMoveExistsExactlyWhenAMoveWins() {
+        BitBoardUtils utils = new BitBoardUtils();
+        int wins = 0;
+        for (Board board : BenchmarkPositions.random(3000, 21)) {
+            Player side = board.getCurrentPlayer();
+            boolean anyWin = false;
+            for (BitBoardUtils.MovePair m : utils.generateAllLegalMoves(board)) {
+                anyWin |= BitBoardUtils.checkplayerWon(BitBoardUtils.makeMove(m, board.copy()), side);
+            }
+            int win = Threats.winningMove(board);
+            assertEquals(anyWin, win != 0, board.toFen());
+            if (win != 0) {
+                wins++;
+                List<BitBoardUtils.MovePair> legal = utils.generateAllLegalMoves(board);
+                assertTrue(legal.contains(BitBoardUtils.MovePair.fromInt(win)), board.toFen());
+                Board after = board.copy();
+                BitBoardUtils.makeMove(win, after);
+                assertTrue(BitBoardUtils.checkplayerWon(after, side), board.toFen());
+            }
+        }
+        assertTrue(wins > 10, "sample has too few sharp positions: " + wins);
+    }
+
+    @Test
+    void attacksByDistanceMatchTheMoveTargets() {
+        BitBoardUtils utils = new BitBoardUtils();
+        int[] moves = new int[BitBoardUtils.MAX_MOVES];
+        long[] byDistance = new long[Threats.MAX_DISTANCE];
+        for (Board board : BenchmarkPositions.random(500, 5)) {
+            long side = board.getCurrentPlayer() == Player.RED ? board.getRed() : board.getBlue();
+            long all = Threats.attacks(board, side, byDistance);
+            assertEquals(GuardRace.attacks(board, side), all);
+            long empty = Evaluation.FULL & ~board.getStack(0);
+            long[] targets = new long[Threats.MAX_DISTANCE];
+            int count = utils.generateAllLegalMoves(board, moves);
+            for (int i = 0; i < count; i++) {
+                targets[((moves[i] >>> 12) & 7) - 1] |= 1L << ((moves[i] >>> 6) & 63);
+            }
+            for (int k = 0; k < Threats.MAX_DISTANCE; k++) {
+                assertEquals(0, targets[k] & ~byDistance[k], board.toFen());
+                assertEquals(targets[k] & empty, byDistance[k] & empty, board.toFen());
+            }
+        }
+    }
+
+    @Test
+    void threateningMovesAttackTheEnemyGuard() {
+        BitBoardUtils utils = new BitBoardUtils();
+        int[] moves = new int[BitBoardUtils.MAX_MOVES];
+        long[] rings = new long[Threats.MAX_DISTANCE];
+        int threats = 0;
+        for (Board board : BenchmarkPositions.random(500, 9)) {
+            Player side = board.getCurrentPlayer();
+            Player enemy = side == Player.RED ? Player.BLUE : Player.RED;
+            long enemyGuard = board.getGuards() & (side == Player.RED ? board.getBlue() : board.getRed());
+            Threats.guardThreatSquares(board, enemyGuard, rings);
+            int count = utils.generateAllLegalMoves(board, moves);
+            for (int i = 0; i < count; i++) {
+                long to = 1L << ((moves[i] >>> 6) & 63);
+                long from = 1L << (moves[i] & 63);
+                if (!Threats.threatens(moves[i], rings) || (board.getStack(0) & to) != 0 || (rings[0] & from) != 0) {
+                    continue;                            // only simple cases: empty target, nothing unblocked
+                }
+                Board after = board.copy();
+                BitBoardUtils.makeMove(moves[i], after);
+                if (BitBoardUtils.checkplayerWon(after, side)) continue;
+                threats++;
+                assertTrue(BitBoardUtils.isGuardAttacked(after, enemy), board.toFen() + " " + moves[i]);
+            }
+        }
+        assertTrue(threats > 0);
+    }
+
+    @Test
+    void searchAndPickMovePlayAnImmediateWin() {
+        Board board = new Board("7/3RG3/7/3r23/7/3BG3/7 r");   // the red tower takes the guard two squares away
+        int win = Threats.winningMove(board);
+        assertNotEquals(0, win);
+        EngineSession session = new EngineSession(new BitBoardUtils(), 1, 10_000);
+        long start = System.nanoTime();
+        BitBoardUtils.MovePair move = session.pickMove(board);
+        assertTrue(System.nanoTime() - start < 50_000_000L, "no search for a win in one");
+        assertEquals(BitBoardUtils.MovePair.fromInt(win), move);
+        assertEquals(Search.WIN - 1, session.getLastResult().getScore());
+    }
+}
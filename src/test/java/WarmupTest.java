@@ -0,0 +1,24 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WarmupTest {
+
+    @Test
+    void runsUntilStoppedAndStopsPromptly() throws InterruptedException {
+        Warmup warmup = new Warmup(new BitBoardUtils());
+        warmup.start();
+        assertTrue(warmup.awaitFirstRound(30_000), "no warm-up round finished");
+        long before = System.nanoTime();
+        Warmup.Report report = warmup.stop();
+        long stopMs = (System.nanoTime() - before) / 1_000_000L;
+        System.out.println(report + ", stopped in " + stopMs + " ms");
+
+        assertTrue(report.getRounds() > 0);
+        assertTrue(report.getNodes() > 0);
+        assertTrue(stopMs < 1000, "stop must not wait for the warm-up to finish a round");
+        if (report.getC2Methods() != null) {
+            assertTrue(Warmup.HOT_METHODS.containsAll(report.getC2Methods()));
+        }
+    }
+}
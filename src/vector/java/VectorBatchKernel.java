@@ -0,0 +1,87 @@
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API version of {@link BatchEvaluator.ScalarKernel}: evaluates {@code SPECIES.length()} positions per
+ * step. Only compiled with the <code>vector</code> profile and loaded by {@link BatchEvaluator} when the JVM
+ * runs with <code>--add-modules jdk.incubator.vector</code>.
+ *
+ * <p>Population counts are done with the SWAR method (shift, mask, multiply) because lane-wise bit counting
+ * only exists in newer incubator versions; the guard distance is a flood fill
+ * ({@link BatchEvaluator#guardDistance}) and stays scalar.</p>
+ */
+final class VectorBatchKernel implements BatchEvaluator.Kernel {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private final BatchEvaluator.Kernel tail = new BatchEvaluator.ScalarKernel();
+
+    @Override
+    public void evaluate(BatchEvaluator.Batch b, int from, int count, int[] w, int[] out) {
+        int lanes = SPECIES.length();
+        int end = from + count;
+        long[] lane = new long[lanes];
+        int wMaterial = w[Evaluation.MATERIAL];
+        int wStacked = w[Evaluation.STACKED];
+        int wTowers = w[Evaluation.TOWERS];
+        int wCenter = w[Evaluation.CENTER];
+        int wAdvance = w[Evaluation.ADVANCE];
+        int wShield = w[Evaluation.GUARD_SHIELD];
+        int wDistance = w[Evaluation.GUARD_DISTANCE];
+
+        int i = from;
+        for (; i <= end - lanes; i += lanes) {
+            LongVector red = LongVector.fromArray(SPECIES, b.red, i);
+            LongVector blue = LongVector.fromArray(SPECIES, b.blue, i);
+            LongVector guards = LongVector.fromArray(SPECIES, b.guards, i);
+            LongVector ground = LongVector.fromArray(SPECIES, b.stacks[0], i);
+
+            LongVector score = difference(ground, red, blue).mul(wMaterial);
+            for (int level = 1; level < 7; level++) {
+                LongVector s = LongVector.fromArray(SPECIES, b.stacks[level], i);
+                score = score.add(difference(s, red, blue).mul(wMaterial + wStacked));
+            }
+
+            LongVector towers = ground.and(guards.not());
+            LongVector r = towers.and(red);
+            LongVector bl = towers.and(blue);
+            score = score.add(bitCount(r).sub(bitCount(bl)).mul(wTowers))
+                    .add(bitCount(r.and(Evaluation.CENTER_MASK)).sub(bitCount(bl.and(Evaluation.CENTER_MASK))).mul(wCenter))
+                    .add(bitCount(r.and(Evaluation.BLUE_HALF)).sub(bitCount(bl.and(Evaluation.RED_HALF))).mul(wAdvance));
+
+            LongVector redGuard = guards.and(red);
+            LongVector blueGuard = guards.and(blue);
+            score = score.add(bitCount(neighbours(redGuard).and(red.and(guards.not())))
+                    .sub(bitCount(neighbours(blueGuard).and(blue.and(guards.not())))).mul(wShield));
+
+            score.intoArray(lane, 0);
+            for (int k = 0; k < lanes; k++) {
+                int j = i + k;
+                out[j] = (int) lane[k] + (wDistance == 0 ? 0 : wDistance * BatchEvaluator.guardDistance(
+                        b.guards[j] & b.red[j], b.guards[j] & b.blue[j], b.red[j], b.blue[j]));
+            }
+        }
+        if (i < end) {
+            tail.evaluate(b, i, end - i, w, out);
+        }
+    }
+
+    private static LongVector difference(LongVector plane, LongVector red, LongVector blue) {
+        return bitCount(plane.and(red)).sub(bitCount(plane.and(blue)));
+    }
+
+    private static LongVector neighbours(LongVector x) {
+        return x.lanewise(VectorOperators.LSHL, 7)
+                .or(x.lanewise(VectorOperators.LSHR, 7))
+                .or(x.and(~Evaluation.COL_6).lanewise(VectorOperators.LSHL, 1))
+                .or(x.and(~Evaluation.COL_0).lanewise(VectorOperators.LSHR, 1))
+                .and(Evaluation.FULL);
+    }
+
+    private static LongVector bitCount(LongVector x) {
+        x = x.sub(x.lanewise(VectorOperators.LSHR, 1).and(0x5555555555555555L));
+        x = x.and(0x3333333333333333L).add(x.lanewise(VectorOperators.LSHR, 2).and(0x3333333333333333L));
+        x = x.add(x.lanewise(VectorOperators.LSHR, 4)).and(0x0F0F0F0F0F0F0F0FL);
+        return x.mul(0x0101010101010101L).lanewise(VectorOperators.LSHR, 56);
+    }
+}